@@ -0,0 +1,40 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+import java.util.List;
+
+/**
+ * {@link Dispatcher Dispatchers} created with
+ * {@link Connection#createDispatcher(BatchMessageHandler, int, java.time.Duration) createDispatcher()}
+ * use the BatchMessageHandler interface to receive their messages several at a time. This is
+ * useful for handlers that write to a store that prefers bulk inserts.
+ * 
+ * <p>Messages in a batch are in the order they were received and may come from any of the
+ * dispatcher's subscriptions.
+ */
+public interface BatchMessageHandler {
+    /**
+     * Called to deliver a batch of messages to the handler. This call is in the dispatcher's thread
+     * and can block all other messages being delivered.
+     * 
+     * <p>The list is never empty and holds at most the dispatcher's maximum batch size.
+     * 
+     * <p>The thread used to call onMessages will be interrupted if the connection is closed, or the dispatcher is stopped.
+     *
+     * @param msgs the received Messages
+     * @throws InterruptedException if the dispatcher interrupts this handler
+     */
+    void onMessages(List<Message> msgs) throws InterruptedException;
+}
@@ -15,8 +15,11 @@ package io.nats.client;
 
 import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
  * The Connection class is at the heart of the NATS Java client. Fundamentally a connection represents
@@ -157,10 +160,27 @@ public interface Connection extends AutoCloseable {
      */
     public CompletableFuture<Message> request(String subject, byte[] data);
 
+    /**
+     * Send a request, with a deadline. The returned future will be completed when the
+     * response comes back, or completed exceptionally with a {@link TimeoutException}
+     * if no response arrives before the timeout.
+     * 
+     * <p>Unlike the future returned by {@link #request(String, byte[]) request()}, the application
+     * doesn't have to cancel this future to free it, the connection removes it when the timeout
+     * expires. Timeouts are tracked with a coarse timer, so the future may complete a few
+     * milliseconds after the deadline.
+     * 
+     * @param subject the subject for the service that will handle the request
+     * @param data the content of the message
+     * @param timeout the time to wait for a response
+     * @return a Future for the response
+     */
+    public CompletableFuture<Message> requestWithTimeout(String subject, byte[] data, Duration timeout);
+
     /**
      * Send a request and returns the reply or null. This version of request is equivalent
-     * to calling get on the future returned from {@link #request(String, byte[]) request()} with
-     * the timeout and handling the ExecutionException and TimeoutException.
+     * to calling get on the future returned from {@link #requestWithTimeout(String, byte[], Duration) requestWithTimeout()}
+     * with the timeout and handling the ExecutionException and TimeoutException.
      * 
      * @param subject the subject for the service that will handle the request
      * @param data the content of the message
@@ -170,6 +190,64 @@ public interface Connection extends AutoCloseable {
      */
     public Message request(String subject, byte[] data, Duration timeout) throws InterruptedException;
 
+    /**
+     * Send a request, and if no reply has arrived after the hedge delay, send a second copy. The
+     * returned future completes with whichever reply arrives first and the other request is cancelled.
+     * This trims tail latency when one member of a queue group occasionally stalls, at the cost
+     * of a few extra requests.
+     * 
+     * <p>With a null hedge delay the connection uses the 95th percentile of the request latencies it has
+     * seen so far, so roughly one request in twenty is hedged. Until the connection has seen enough replies
+     * to estimate it, no hedge is sent. Hedged requests aren't answered from the request cache.
+     * 
+     * <p>The future is completed exceptionally with a {@link TimeoutException} if no reply arrives before the
+     * timeout. See {@link Statistics#getHedgesSent() getHedgesSent()} and {@link Statistics#getHedgeWins() getHedgeWins()}
+     * to see how often the hedge is sent and how often it wins.
+     * 
+     * @param subject the subject for the service that will handle the request
+     * @param data the content of the message
+     * @param hedgeDelay how long to wait before sending the hedge, or null to use the observed 95th percentile
+     * @param timeout the time to wait for a response
+     * @return a Future for the response
+     * @throws IllegalArgumentException if the timeout is null or not positive, or the hedge delay is negative
+     */
+    public CompletableFuture<Message> requestHedged(String subject, byte[] data, Duration hedgeDelay, Duration timeout);
+
+    /**
+     * Send a request and gather multiple replies. This is useful for scatter-gather patterns, like
+     * service discovery or querying a set of shards, where several services answer the same request.
+     * 
+     * <p>The returned future completes with the replies, in the order they arrived, once
+     * {@code maxReplies} replies are in or the timeout expires, whichever comes first. It is not
+     * completed exceptionally when the timeout expires, the list may just have fewer replies, or be empty.
+     * 
+     * @param subject the subject for the services that will handle the request
+     * @param data the content of the message
+     * @param maxReplies the most replies to gather
+     * @param timeout the longest time to wait for replies
+     * @return a Future for the replies
+     * @throws IllegalArgumentException if maxReplies is less than 1 or the timeout is null or not positive
+     */
+    public CompletableFuture<List<Message>> requestMany(String subject, byte[] data, int maxReplies, Duration timeout);
+
+    /**
+     * Send a request and gather multiple replies, passing each reply to the handler as it arrives. See
+     * {@link #requestMany(String, byte[], int, Duration) requestMany()}.
+     * 
+     * <p>The handler is called on the thread that delivers all request replies for this connection, so it
+     * should hand off any slow work.
+     * 
+     * @param subject the subject for the services that will handle the request
+     * @param data the content of the message
+     * @param maxReplies the most replies to gather
+     * @param timeout the longest time to wait for replies
+     * @param handler called with each reply as it arrives
+     * @return a Future for the replies
+     * @throws IllegalArgumentException if maxReplies is less than 1 or the timeout is null or not positive
+     */
+    public CompletableFuture<List<Message>> requestMany(String subject, byte[] data, int maxReplies, Duration timeout,
+            MessageHandler handler);
+
     /**
      * Create a synchronous subscription to the specified subject.
      * 
@@ -218,6 +296,56 @@ public interface Connection extends AutoCloseable {
      */
     public Dispatcher createDispatcher(MessageHandler handler);
 
+    /**
+     * Create a {@code Dispatcher} that delivers messages on several lanes at once. Each lane
+     * has its own queue and thread. Messages are assigned to a lane by the hash of their subject,
+     * so messages on the same subject are always delivered in order, while different subjects
+     * can be handled in parallel.
+     * 
+     * <p>The handler is called from several threads and must be thread safe.
+     * 
+     * @param handler The target for the messages
+     * @param lanes the number of lanes, must be at least 1
+     * @return a new Dispatcher
+     * @throws IllegalArgumentException if lanes is less than 1
+     */
+    public Dispatcher createDispatcher(MessageHandler handler, int lanes);
+
+    /**
+     * Create a {@code Dispatcher} that delivers messages on several lanes at once, see
+     * {@link #createDispatcher(MessageHandler, int) createDispatcher()}. The key extractor is used
+     * to pick the lane for each message, messages with equal keys are delivered in order.
+     * 
+     * <p>The key extractor is called on the connection's reader thread, so it should be fast. A null
+     * extractor is the same as using the message subject.
+     * 
+     * @param handler The target for the messages
+     * @param lanes the number of lanes, must be at least 1
+     * @param keyExtractor returns the ordering key for a message
+     * @return a new Dispatcher
+     * @throws IllegalArgumentException if lanes is less than 1
+     */
+    public Dispatcher createDispatcher(MessageHandler handler, int lanes, Function<? super Message, ?> keyExtractor);
+
+    /**
+     * Create a {@code Dispatcher} that delivers messages to a {@link BatchMessageHandler} several
+     * at a time. The dispatcher waits for a message, then keeps collecting messages until it has
+     * {@code maxBatch} of them or {@code maxWait} has passed, and delivers them in a single call.
+     * 
+     * <p>Subscription and dispatcher statistics are updated once per batch rather than once per message.
+     * 
+     * <p>When the connection uses a {@link Options.Builder#dispatcherPoolSize(int) dispatcher pool} the
+     * dispatcher doesn't wait, each batch holds the messages that were already queued.
+     * 
+     * @param handler The target for the batches of messages
+     * @param maxBatch the most messages to deliver in one call, must be at least 1
+     * @param maxWait how long to wait for more messages after the first one arrives, null or zero
+     *                to only include messages that are already queued
+     * @return a new Dispatcher
+     * @throws IllegalArgumentException if maxBatch is less than 1
+     */
+    public Dispatcher createDispatcher(BatchMessageHandler handler, int maxBatch, Duration maxWait);
+
     /**
      * Close a dispatcher. This will unsubscribe any subscriptions and stop the delivery thread.
      * 
@@ -330,4 +458,15 @@ public interface Connection extends AutoCloseable {
      * @return the error text from the last error sent by the server to this client
      */
     public String getLastError();
+
+    /**
+     * The average round trip time to each server this connection has measured. The connection measures
+     * the PING it sends while connecting and the regular pings, so only servers it has been connected to
+     * have an average. The averages are weighted toward recent samples.
+     * 
+     * <p>See {@link Options.Builder#preferLowLatency() preferLowLatency()} to use them to pick a server.
+     * 
+     * @return an unmodifiable map from server URI to its average round trip time
+     */
+    public Map<String, Duration> getServerLatencies();
 }
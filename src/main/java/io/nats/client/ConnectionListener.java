@@ -27,7 +27,10 @@ public interface ConnectionListener {
         DISCONNECTED("nats: connection disconnected"), 
         /** The connection was connected, lost its connection and successfully reconnected. */
         RECONNECTED("nats: connection reconnected"), 
-        /** The connection was reconnected and the server has been notified of all subscriptions. */
+        /**
+         * The connection was reconnected and the server has been notified of all subscriptions. The number of
+         * subscriptions and the time it took are in the connection's {@link Statistics#getLastResubscribeNanos() Statistics}.
+         */
         RESUBSCRIBED("nats: subscriptions re-established"),
         /** The connection was told about new servers from, from the current server. */ 
         DISCOVERED_SERVERS("nats: discovered servers");
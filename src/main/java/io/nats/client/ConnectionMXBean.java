@@ -0,0 +1,107 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+/**
+ * The management interface registered for each connection when {@link Options.Builder#registerMBeans()
+ * registerMBeans()} is set, under the name {@code io.nats:type=Connection,name=<connection name>,id=<id>}.
+ * Every attribute is read from the connection when it is asked for.
+ */
+public interface ConnectionMXBean {
+    /**
+     * @return the connection name from the options, or null
+     */
+    public String getName();
+
+    /**
+     * @return the {@link Connection.Status status} of the connection
+     */
+    public String getStatus();
+
+    /**
+     * @return the URL of the server the connection is connected to, or null
+     */
+    public String getConnectedUrl();
+
+    /**
+     * @return the total number of messages received
+     */
+    public long getInMsgs();
+
+    /**
+     * @return the total number of messages sent
+     */
+    public long getOutMsgs();
+
+    /**
+     * @return the total number of bytes received
+     */
+    public long getInBytes();
+
+    /**
+     * @return the total number of bytes sent
+     */
+    public long getOutBytes();
+
+    /**
+     * @return the number of times the connection has reconnected
+     */
+    public long getReconnects();
+
+    /**
+     * @return the number of messages dropped by slow consumers on this connection
+     */
+    public long getDroppedCount();
+
+    /**
+     * @return the number of messages waiting for the writer to send them
+     */
+    public long getOutgoingPendingMessages();
+
+    /**
+     * @return the number of bytes waiting for the writer to send them
+     */
+    public long getOutgoingPendingBytes();
+
+    /**
+     * @return the number of bytes published while disconnected and waiting to be sent, in the reconnect buffer
+     *         and the spool
+     */
+    public long getReconnectBufferedBytes();
+
+    /**
+     * @return the round trip time of the last PING the connection sent, in nanoseconds, or 0 before the first PONG
+     */
+    public long getLastRttNanos();
+
+    /**
+     * @return the 99th percentile flush time, in nanoseconds, see {@link Statistics#getFlushLatency()}
+     */
+    public long getFlushLatencyP99Nanos();
+
+    /**
+     * @return the 99th percentile request time, in nanoseconds, see {@link Statistics#getRequestLatency()}
+     */
+    public long getRequestLatencyP99Nanos();
+
+    /**
+     * @return the number of dispatchers the application has created and not closed
+     */
+    public int getDispatcherCount();
+
+    /**
+     * @return the number of active subscriptions, including those that are part of a dispatcher
+     */
+    public int getSubscriptionCount();
+}
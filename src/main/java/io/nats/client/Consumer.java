@@ -84,6 +84,61 @@ public interface Consumer {
      */
     public long getDeliveredCount();
 
+    /**
+     * Dispatchers can be created with more than one lane, see
+     * {@link Connection#createDispatcher(MessageHandler, int) createDispatcher()}. Each lane has its
+     * own queue and delivery thread. Subscriptions, and dispatchers created without lanes, have a single lane.
+     * 
+     * @return the number of lanes this consumer delivers messages on
+     */
+    public int getLaneCount();
+
+    /**
+     * @param lane the lane to check, from 0 to {@link #getLaneCount() getLaneCount()} - 1
+     * @return the number of messages waiting to be delivered on the lane
+     * @throws IndexOutOfBoundsException if the lane does not exist
+     */
+    public long getLanePendingMessageCount(int lane);
+
+    /**
+     * @param lane the lane to check, from 0 to {@link #getLaneCount() getLaneCount()} - 1
+     * @return the total number of messages delivered on the lane, for all time
+     * @throws IndexOutOfBoundsException if the lane does not exist
+     */
+    public long getLaneDeliveredCount(int lane);
+
+    /**
+     * How long messages waited between arriving on the connection and being handed to the application, by
+     * {@link Subscription#nextMessage(Duration) nextMessage()} or a {@link Dispatcher Dispatcher} calling its handler.
+     * For a dispatcher this covers every message it delivered, and each of its subscriptions has its own.
+     * 
+     * <p>This is only recorded if the connection is tracking advanced statistics, see
+     * {@link Options.Builder#turnOnAdvancedStats() turnOnAdvancedStats()}, otherwise it is empty.
+     * 
+     * @return a snapshot of the time, in nanoseconds, messages spent in this consumer's queue
+     */
+    public Histogram getResidencyTime();
+
+    /**
+     * How long the message handler took for each message, or for each batch with a batch handler. A long residency
+     * time with a short handler time points at a consumer that is behind, rather than a slow handler. Subscriptions
+     * that aren't part of a dispatcher don't have a handler, so this is empty for them.
+     * 
+     * <p>Like {@link #getResidencyTime()}, this is only recorded when tracking advanced statistics.
+     * 
+     * @return a snapshot of the time, in nanoseconds, spent in the handler
+     */
+    public Histogram getHandlerTime();
+
+    /**
+     * The lag of this consumer, as the time the oldest pending message has been waiting. For a dispatcher with
+     * lanes this is the oldest message in any lane. Like {@link #getResidencyTime()}, this is only measured when
+     * tracking advanced statistics.
+     * 
+     * @return how long, in nanoseconds, the oldest pending message has been waiting, or 0 if nothing is pending
+     */
+    public long getOldestPendingNanos();
+
     /**
      * @return the number of messages dropped from this consumer, since the last call to {@link #clearDroppedCount() clearDroppedCount}.
      */
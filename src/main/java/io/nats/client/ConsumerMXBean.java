@@ -0,0 +1,90 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+/**
+ * The management interface registered for each {@link Dispatcher Dispatcher}, and each {@link Subscription
+ * Subscription} that isn't part of a dispatcher, when {@link Options.Builder#registerMBeans() registerMBeans()}
+ * is set. Dispatchers are named {@code io.nats:type=Dispatcher,connection=<id>,id=<id>} and subscriptions
+ * {@code io.nats:type=Subscription,connection=<id>,sid=<sid>,subject=<subject>}. Every attribute is read from the
+ * consumer when it is asked for, see {@link Consumer Consumer} for their meaning.
+ */
+public interface ConsumerMXBean {
+    /**
+     * @return the subject of a subscription, or null for a dispatcher
+     */
+    public String getSubject();
+
+    /**
+     * @return the queue group of a subscription, or null
+     */
+    public String getQueueName();
+
+    /**
+     * @return true while the consumer is processing messages
+     */
+    public boolean isActive();
+
+    /**
+     * @return the number of lanes the consumer delivers messages on
+     */
+    public int getLaneCount();
+
+    /**
+     * @return the number of messages waiting to be delivered
+     */
+    public long getPendingMessages();
+
+    /**
+     * @return the number of bytes waiting to be delivered
+     */
+    public long getPendingBytes();
+
+    /**
+     * @return the pending message limit
+     */
+    public long getPendingMessageLimit();
+
+    /**
+     * @return the pending byte limit
+     */
+    public long getPendingByteLimit();
+
+    /**
+     * @return the total number of messages delivered
+     */
+    public long getDeliveredCount();
+
+    /**
+     * @return the number of messages dropped since the drop count was last cleared
+     */
+    public long getDroppedCount();
+
+    /**
+     * @return how long, in nanoseconds, the oldest pending message has been waiting, see
+     *         {@link Consumer#getOldestPendingNanos()}
+     */
+    public long getOldestPendingNanos();
+
+    /**
+     * @return the 99th percentile time messages waited in the queue, in nanoseconds, see
+     *         {@link Consumer#getResidencyTime()}
+     */
+    public long getResidencyP99Nanos();
+
+    /**
+     * @return the 99th percentile handler time, in nanoseconds, see {@link Consumer#getHandlerTime()}
+     */
+    public long getHandlerP99Nanos();
+}
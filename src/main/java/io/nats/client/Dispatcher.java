@@ -20,10 +20,18 @@ package io.nats.client;
  * This means that a group of subscriptions, or subjects, can be combined into a single callback thread. But,
  * multiple dispatchers can be created to handle different groups of subscriptions/subjects.
  *
- * <p>All messages to this dispatcher are delivered via a single thread. If the message handler is slow to handle
+ * <p>By default all messages to this dispatcher are delivered via a single thread. If the message handler is slow to handle
  * any one message it will delay deliver of subsequent messages. Use separate dispatchers to handle the scenario of
  * a set of messages that require a lot of work and a set of fast moving messages, or create other threads as necessary.
- * The Dispatcher will only use one.
+ * 
+ * <p>A dispatcher can also be created with several lanes, see {@link Connection#createDispatcher(MessageHandler, int) createDispatcher()}.
+ * Each lane has its own thread, and messages are spread across lanes by subject, or by a key, so that ordering
+ * is kept per subject or key, but not across the whole dispatcher.
+ * 
+ * <p>Subscriptions can also have their own handler, see {@link #subscribe(String, MessageHandler) subscribe()}.
+ * Messages for these subscriptions go straight to their handler, on the dispatcher's thread, so one dispatcher
+ * can route several subjects to different handlers without a second subject match or more threads. A dispatcher
+ * that only uses these subscriptions can be created with a null handler.
  * 
  * <p>Dispatchers are created from the connection using {@link Connection#createDispatcher(MessageHandler) createDispatcher()}
  * and can be closed using {@link Connection#closeDispatcher(Dispatcher) closeDispatcher()}. Closing a dispatcher will
@@ -64,6 +72,36 @@ public interface Dispatcher extends Consumer {
      */
     public Dispatcher subscribe(String subject, String queue);
 
+    /**
+     * Create a subscription to the specified subject under the control of this
+     * dispatcher, with its own handler. Messages for the subscription are delivered
+     * to this handler instead of the dispatcher's handler.
+     * 
+     * <p>
+     * Unlike {@link #subscribe(String) subscribe(subject)}, each call creates a new
+     * subscription, even if the dispatcher is already subscribed to the subject. Use
+     * {@link #unsubscribe(Subscription) unsubscribe(subscription)} to remove it.
+     * 
+     * @param subject The subject to subscribe to.
+     * @param handler The target for the subscription's messages.
+     * @return The Subscription, so it can be unsubscribed later.
+     * @throws IllegalStateException if the dispatcher was previously closed
+     */
+    public Subscription subscribe(String subject, MessageHandler handler);
+
+    /**
+     * Create a subscription to the specified subject and queue under the control of
+     * this dispatcher, with its own handler, see {@link #subscribe(String, MessageHandler)
+     * subscribe(subject, handler)}.
+     * 
+     * @param subject The subject to subscribe to.
+     * @param queue The queue group to join.
+     * @param handler The target for the subscription's messages.
+     * @return The Subscription, so it can be unsubscribed later.
+     * @throws IllegalStateException if the dispatcher was previously closed
+     */
+    public Subscription subscribe(String subject, String queue, MessageHandler handler);
+
     /**
      * Unsubscribe from the specified subject, the queue is implicit.
      * 
@@ -97,4 +135,28 @@ public interface Dispatcher extends Consumer {
      * @throws IllegalStateException if the dispatcher was previously closed
      */
     public Dispatcher unsubscribe(String subject, int after);
+
+    /**
+     * Unsubscribe a subscription created by this dispatcher.
+     * 
+     * <p>Stops messages to the subscription locally and notifies the server.
+     * 
+     * @param subscription The subscription to unsubscribe.
+     * @return The Dispatcher, so calls can be chained.
+     * @throws IllegalStateException if the dispatcher was previously closed
+     * @throws IllegalArgumentException if the subscription belongs to a different dispatcher
+     */
+    public Dispatcher unsubscribe(Subscription subscription);
+
+    /**
+     * Unsubscribe a subscription created by this dispatcher, after the specified number
+     * of messages, see {@link #unsubscribe(String, int) unsubscribe(subject, after)}.
+     * 
+     * @param subscription The subscription to unsubscribe.
+     * @param after The number of messages to accept before unsubscribing
+     * @return The Dispatcher, so calls can be chained.
+     * @throws IllegalStateException if the dispatcher was previously closed
+     * @throws IllegalArgumentException if the subscription belongs to a different dispatcher
+     */
+    public Dispatcher unsubscribe(Subscription subscription, int after);
 }
\ No newline at end of file
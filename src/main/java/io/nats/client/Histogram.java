@@ -0,0 +1,57 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+/**
+ * A snapshot of the distribution of a value, like the number of bytes per socket read, taken from the
+ * connection's {@link Statistics Statistics}. The snapshot doesn't change as the connection records
+ * more values.
+ *
+ * <p>Values are counted in buckets that are within 12.5% of the values they hold, so percentiles are
+ * estimates with that precision. The count, sum, min and max are exact.
+ */
+public interface Histogram {
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount();
+
+    /**
+     * @return the sum of the values recorded
+     */
+    public long getSum();
+
+    /**
+     * @return the smallest value recorded, or 0 if nothing has been recorded
+     */
+    public long getMin();
+
+    /**
+     * @return the largest value recorded, or 0 if nothing has been recorded
+     */
+    public long getMax();
+
+    /**
+     * @return the average of the values recorded, or 0 if nothing has been recorded
+     */
+    public double getMean();
+
+    /**
+     * Estimate the value at a percentile, for example 99 for the value 99% of the recorded values are at or below.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the estimated value, no larger than the max, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile);
+}
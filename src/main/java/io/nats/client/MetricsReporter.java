@@ -0,0 +1,35 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+/**
+ * Receives a {@link MetricsSnapshot MetricsSnapshot} of a connection's statistics at a fixed interval, when set with
+ * {@link Options.Builder#metricsReporter(MetricsReporter) metricsReporter()}. This is the way to feed the client's
+ * metrics into a time series system without polling {@link Connection#getStatistics() getStatistics()}.
+ * 
+ * <p>Snapshots are taken on the connection's scheduler and reports are made on the same thread as the
+ * {@link ErrorListener ErrorListener} calls, one at a time and in order. A slow reporter delays the next report
+ * and the error listener, but never the connection. Exceptions thrown by the reporter are counted as handled
+ * exceptions in the statistics.
+ * 
+ * <p>See {@link PrometheusReporter PrometheusReporter} for a reporter that renders the Prometheus text format.
+ */
+public interface MetricsReporter {
+    /**
+     * Report a snapshot.
+     * 
+     * @param snapshot the statistics at the end of the interval, and the rates over it
+     */
+    public void report(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,59 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+/**
+ * The {@link Statistics Statistics} of a connection frozen at one point in time, with the rates since the
+ * previous snapshot, as given to a {@link MetricsReporter MetricsReporter}.
+ * 
+ * <p>All of the values are read together in one pass on one thread, so they are from the same moment, within
+ * the time it takes to read them, and they don't change while the snapshot is in use. Percentiles can be read from
+ * the histograms without going back to the connection.
+ */
+public interface MetricsSnapshot extends Statistics {
+    /**
+     * @return the connection name from the options, or null
+     */
+    public String getConnectionName();
+
+    /**
+     * @return when the snapshot was taken, in milliseconds since the epoch
+     */
+    public long getTimestamp();
+
+    /**
+     * @return the nanoseconds since the previous snapshot, or since the connection was created for the first one
+     */
+    public long getIntervalNanos();
+
+    /**
+     * @return the messages received per second over the interval
+     */
+    public double getInMsgsPerSecond();
+
+    /**
+     * @return the messages sent per second over the interval
+     */
+    public double getOutMsgsPerSecond();
+
+    /**
+     * @return the bytes received per second over the interval
+     */
+    public double getInBytesPerSecond();
+
+    /**
+     * @return the bytes sent per second over the interval
+     */
+    public double getOutBytesPerSecond();
+}
@@ -147,6 +147,30 @@ public class Nats {
         return createConnection(options, false);
     }
 
+    /**
+     * Connect a group of connections to the same servers that together act as one connection. A single
+     * connection has one socket and one writer thread, a group lets a busy client use several of each.
+     * 
+     * <p>Publishes and requests are routed to a member by subject, so messages on the same subject keep
+     * their order. Subscriptions and dispatchers are spread over the members in turn, there is no ordering
+     * between messages that arrive on different members. The group's statistics are the totals for all of
+     * its members, and closing or draining the group closes or drains every member.
+     * 
+     * <p>All of the members use the same options, including the listeners, which are notified with
+     * the member connection. A reconnect spool file gets the member's index on the end of its name, so each
+     * member spools to its own file. If any member fails to connect the others are closed and the IOException is thrown.
+     * 
+     * @param options the options object to use to create each connection
+     * @param size the number of connections in the group
+     * @throws IOException if a networking issue occurs
+     * @throws InterruptedException if the current thread is interrupted
+     * @throws IllegalArgumentException if the size is less than 1
+     * @return the connection group
+     */
+    public static Connection connectGroup(Options options, int size) throws IOException, InterruptedException {
+        return NatsImpl.createConnectionGroup(options, size);
+    }
+
     /**
      * Try to connect in another thread, a connection listener is required to get
      * the connection.
@@ -18,12 +18,18 @@ import java.util.Properties;
 import java.lang.reflect.Constructor;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.net.ssl.SSLContext;
 
@@ -73,6 +79,14 @@ public class Options {
      */
     public static final int DEFAULT_MAX_RECONNECT = 60;
 
+    /**
+     * Default number of servers to try at the same time during reconnect, see {@link #getReconnectProbes() getReconnectProbes()}.
+     *
+     * <p>
+     * This property is defined as {@value #DEFAULT_RECONNECT_PROBES}, servers are tried one at a time
+     */
+    public static final int DEFAULT_RECONNECT_PROBES = 1;
+
     /**
      * Default wait time before attempting reconnection to the same server, see {@link #getReconnectWait() getReconnectWait()}.
      *
@@ -110,6 +124,21 @@ public class Options {
      */
     public static final Duration DEFAULT_REQUEST_CLEANUP_INTERVAL = Duration.ofSeconds(5);
 
+    /**
+     * Default interval between snapshots for the metrics reporter, {@link #getMetricsInterval() getMetricsInterval()}.
+     *
+     * <p>This property is defined as 10 seconds.
+     */
+    public static final Duration DEFAULT_METRICS_INTERVAL = Duration.ofSeconds(10);
+
+    /**
+     * Default number of replies kept in the request cache, {@link #getRequestCacheSize() getRequestCacheSize()}.
+     * The cache is only used for subjects set with {@link Builder#cacheRequests(String, Duration) cacheRequests()}.
+     *
+     * <p>This property is defined as 1000.
+     */
+    public static final int DEFAULT_REQUEST_CACHE_SIZE = 1000;
+
     /**
      * Default maximum number of pings have not received a response allowed by the 
      * client, {@link #getMaxPingsOut() getMaxPingsOut()}.
@@ -134,6 +163,14 @@ public class Options {
      */
     public static final int DEFAULT_RECONNECT_BUF_SIZE = 8_388_608;
 
+    /**
+     * Default size of the reconnect spool file, used when a spool file is set without a size,
+     * {@link #getReconnectSpoolSize() getReconnectSpoolSize()}.
+     *
+     * <p>This property is defined as {@value #DEFAULT_RECONNECT_SPOOL_SIZE} bytes, 1024 * 1024 * 1024.
+     */
+    public static final long DEFAULT_RECONNECT_SPOOL_SIZE = 1_073_741_824L;
+
     /**
      * The default length, {@value #DEFAULT_MAX_CONTROL_LINE} bytes, the client will allow in an
      *  outgoing protocol control line, {@link #getMaxControlLine() getMaxControlLine()}.
@@ -163,6 +200,14 @@ public class Options {
      */
     public static final String DEFAULT_INBOX_PREFIX = "_INBOX.";
 
+    /**
+     * Default number of messages a pooled dispatcher lane delivers before it yields its pool thread, see
+     * {@link Builder#dispatcherQuantum(int) dispatcherQuantum()}.
+     * 
+     * <p>This property is defined as {@value #DEFAULT_DISPATCHER_QUANTUM}
+     */
+    public static final int DEFAULT_DISPATCHER_QUANTUM = 64;
+
     static final String PFX = "io.nats.client.";
 
     /**
@@ -204,6 +249,16 @@ public class Options {
      * {@link Builder#reconnectBufferSize(long) reconnectBufferSize}.
      */
     public static final String PROP_RECONNECT_BUF_SIZE = PFX + "reconnect.buffer.size";
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_RECONNECT_SPOOL_FILE}, see
+     * {@link Builder#reconnectSpool(Path, long) reconnectSpool}.
+     */
+    public static final String PROP_RECONNECT_SPOOL_FILE = PFX + "reconnect.spool.file";
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_RECONNECT_SPOOL_SIZE}, see
+     * {@link Builder#reconnectSpool(Path, long) reconnectSpool}.
+     */
+    public static final String PROP_RECONNECT_SPOOL_SIZE = PFX + "reconnect.spool.size";
     /**
      * Property used to configure a builder from a Properties object. {@value #PROP_RECONNECT_WAIT}, see {@link Builder#reconnectWait(Duration)
      * reconnectWait}.
@@ -214,6 +269,11 @@ public class Options {
      * maxReconnects}.
      */
     public static final String PROP_MAX_RECONNECT = PFX + "reconnect.max";
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_RECONNECT_PROBES}, see {@link Builder#reconnectProbes(int)
+     * reconnectProbes}.
+     */
+    public static final String PROP_RECONNECT_PROBES = PFX + "reconnect.probes";
 
     /**
      * Property used to configure a builder from a Properties object. {@value #PROP_PEDANTIC}, see {@link Builder#pedantic() pedantic}.
@@ -236,6 +296,10 @@ public class Options {
      * Property used to configure a builder from a Properties object. {@value #PROP_NORANDOMIZE}, see {@link Builder#noRandomize() noRandomize}.
      */
     public static final String PROP_NORANDOMIZE = PFX + "norandomize";
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_PREFER_LOW_LATENCY}, see {@link Builder#preferLowLatency() preferLowLatency}.
+     */
+    public static final String PROP_PREFER_LOW_LATENCY = PFX + "prefer.low.latency";
     /**
      * Property used to configure a builder from a Properties object. {@value #PROP_SERVERS}, 
      * see {@link Builder#servers(String[]) servers}. The value can be a comma-separated list of server URLs.
@@ -298,6 +362,63 @@ public class Options {
      */
     public static final String PROP_INBOX_PREFIX = "inbox.prefix";
 
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_DISPATCHER_POOL_SIZE}, see
+     * {@link Builder#dispatcherPoolSize(int) dispatcherPoolSize}.
+     */
+    public static final String PROP_DISPATCHER_POOL_SIZE = PFX + "dispatcher.pool.size";
+
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_DISPATCHER_QUANTUM}, see
+     * {@link Builder#dispatcherQuantum(int) dispatcherQuantum}.
+     */
+    public static final String PROP_DISPATCHER_QUANTUM = PFX + "dispatcher.quantum";
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_TRACK_SUBJECTS}, see
+     * {@link Builder#trackSubjects(int) trackSubjects}.
+     */
+    public static final String PROP_TRACK_SUBJECTS = PFX + "track.subjects";
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_REGISTER_MBEANS}, see
+     * {@link Builder#registerMBeans() registerMBeans}.
+     */
+    public static final String PROP_REGISTER_MBEANS = PFX + "mbeans";
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_METRICS_REPORTER}, see
+     * {@link Builder#metricsReporter(MetricsReporter) metricsReporter}.
+     */
+    public static final String PROP_METRICS_REPORTER = PFX + "metrics.reporter";
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_METRICS_INTERVAL}, see
+     * {@link Builder#metricsInterval(Duration) metricsInterval}. The value is in milliseconds.
+     */
+    public static final String PROP_METRICS_INTERVAL = PFX + "metrics.interval";
+
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_USE_VIRTUAL_THREADS}, see
+     * {@link Builder#useVirtualThreads() useVirtualThreads}.
+     */
+    public static final String PROP_USE_VIRTUAL_THREADS = PFX + "virtualthreads";
+
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_COUNTER_RESPONSE_TOKENS}, see
+     * {@link Builder#counterResponseTokens() counterResponseTokens}.
+     */
+    public static final String PROP_COUNTER_RESPONSE_TOKENS = PFX + "response.tokens.counter";
+
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_REQUEST_CACHE_SIZE}, see
+     * {@link Builder#requestCacheSize(int) requestCacheSize}.
+     */
+    public static final String PROP_REQUEST_CACHE_SIZE = PFX + "request.cache.size";
+
+    /**
+     * Property used to configure a builder from a Properties object. {@value #PROP_REQUEST_CACHE_SUBJECTS}, see
+     * {@link Builder#cacheRequests(String, Duration) cacheRequests}. The value is a comma separated list of
+     * subject=milliseconds pairs, for example {@code config.get=5000,lookup.region=1000}.
+     */
+    public static final String PROP_REQUEST_CACHE_SUBJECTS = PFX + "request.cache.subjects";
+
     /**
      * Protocol key {@value #OPTION_VERBOSE}, see {@link Builder#verbose() verbose}.
      */
@@ -377,11 +498,13 @@ public class Options {
 
     private List<URI> servers;
     private final boolean noRandomize;
+    private final boolean preferLowLatency;
     private final String connectionName;
     private final boolean verbose;
     private final boolean pedantic;
     private final SSLContext sslContext;
     private final int maxReconnect;
+    private final int reconnectProbes;
     private final int maxControlLine;
     private final Duration reconnectWait;
     private final Duration connectionTimeout;
@@ -389,6 +512,8 @@ public class Options {
     private final Duration requestCleanupInterval;
     private final int maxPingsOut;
     private final long reconnectBufferSize;
+    private final Path reconnectSpoolFile;
+    private final long reconnectSpoolSize;
     private final String username;
     private final String password;
     private final String token;
@@ -397,11 +522,22 @@ public class Options {
     private final int bufferSize;
     private final boolean noEcho;
     private final boolean utf8Support;
+    private final int dispatcherPoolSize;
+    private final int dispatcherQuantum;
+    private final int trackedSubjects;
+    private final boolean registerMBeans;
+    private final MetricsReporter metricsReporter;
+    private final Duration metricsInterval;
+    private final boolean useVirtualThreads;
+    private final boolean counterResponseTokens;
+    private final int requestCacheSize;
+    private final Map<String, Duration> requestCacheTtls;
 
     private final AuthHandler authHandler;
 
     private final ErrorListener errorListener;
     private final ConnectionListener connectionListener;
+    private final ScheduledExecutorService scheduler;
     private final String dataPortType;
 
     private final boolean trackAdvancedStats;
@@ -420,18 +556,22 @@ public class Options {
 
         private ArrayList<URI> servers = new ArrayList<URI>();
         private boolean noRandomize = false;
+        private boolean preferLowLatency = false;
         private String connectionName = null; // Useful for debugging -> "test: " + NatsTestServer.currentPort();
         private boolean verbose = false;
         private boolean pedantic = false;
         private SSLContext sslContext = null;
         private int maxControlLine = DEFAULT_MAX_CONTROL_LINE;
         private int maxReconnect = DEFAULT_MAX_RECONNECT;
+        private int reconnectProbes = DEFAULT_RECONNECT_PROBES;
         private Duration reconnectWait = DEFAULT_RECONNECT_WAIT;
         private Duration connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
         private Duration pingInterval = DEFAULT_PING_INTERVAL;
         private Duration requestCleanupInterval = DEFAULT_REQUEST_CLEANUP_INTERVAL;
         private int maxPingsOut = DEFAULT_MAX_PINGS_OUT;
         private long reconnectBufferSize = DEFAULT_RECONNECT_BUF_SIZE;
+        private Path reconnectSpoolFile = null;
+        private long reconnectSpoolSize = DEFAULT_RECONNECT_SPOOL_SIZE;
         private String username = null;
         private String password = null;
         private String token = null;
@@ -441,11 +581,22 @@ public class Options {
         private boolean noEcho = false;
         private boolean utf8Support = false;
         private String inboxPrefix = DEFAULT_INBOX_PREFIX;
+        private int dispatcherPoolSize = 0;
+        private int dispatcherQuantum = DEFAULT_DISPATCHER_QUANTUM;
+        private int trackedSubjects = 0;
+        private boolean registerMBeans = false;
+        private MetricsReporter metricsReporter = null;
+        private Duration metricsInterval = DEFAULT_METRICS_INTERVAL;
+        private boolean useVirtualThreads = false;
+        private boolean counterResponseTokens = false;
+        private int requestCacheSize = DEFAULT_REQUEST_CACHE_SIZE;
+        private Map<String, Duration> requestCacheTtls = new HashMap<>();
 
         private AuthHandler authHandler;
 
         private ErrorListener errorListener = null;
         private ConnectionListener connectionListener = null;
+        private ScheduledExecutorService scheduler = null;
         private String dataPortType = DEFAULT_DATA_PORT_TYPE;
 
         /**
@@ -505,6 +656,10 @@ public class Options {
                 this.noRandomize = Boolean.parseBoolean(props.getProperty(PROP_NORANDOMIZE));
             }
 
+            if (props.containsKey(PROP_PREFER_LOW_LATENCY)) {
+                this.preferLowLatency = Boolean.parseBoolean(props.getProperty(PROP_PREFER_LOW_LATENCY));
+            }
+
             if (props.containsKey(PROP_SECURE)) {
                 boolean secure = Boolean.parseBoolean(props.getProperty(PROP_SECURE));
 
@@ -556,6 +711,11 @@ public class Options {
                         .parseInt(props.getProperty(PROP_MAX_RECONNECT, Integer.toString(DEFAULT_MAX_RECONNECT)));
             }
 
+            if (props.containsKey(PROP_RECONNECT_PROBES)) {
+                int count = Integer.parseInt(props.getProperty(PROP_RECONNECT_PROBES, "-1"));
+                this.reconnectProbes = (count <= 0) ? DEFAULT_RECONNECT_PROBES : count;
+            }
+
             if (props.containsKey(PROP_RECONNECT_WAIT)) {
                 int ms = Integer.parseInt(props.getProperty(PROP_RECONNECT_WAIT, "-1"));
                 this.reconnectWait = (ms < 0) ? DEFAULT_RECONNECT_WAIT : Duration.ofMillis(ms);
@@ -566,6 +726,15 @@ public class Options {
                         props.getProperty(PROP_RECONNECT_BUF_SIZE, Long.toString(DEFAULT_RECONNECT_BUF_SIZE)));
             }
 
+            if (props.containsKey(PROP_RECONNECT_SPOOL_FILE)) {
+                this.reconnectSpoolFile = Paths.get(props.getProperty(PROP_RECONNECT_SPOOL_FILE));
+            }
+
+            if (props.containsKey(PROP_RECONNECT_SPOOL_SIZE)) {
+                long size = Long.parseLong(props.getProperty(PROP_RECONNECT_SPOOL_SIZE, "-1"));
+                this.reconnectSpoolSize = (size <= 0) ? DEFAULT_RECONNECT_SPOOL_SIZE : size;
+            }
+
             if (props.containsKey(PROP_CONNECTION_TIMEOUT)) {
                 int ms = Integer.parseInt(props.getProperty(PROP_CONNECTION_TIMEOUT, "-1"));
                 this.connectionTimeout = (ms < 0) ? DEFAULT_CONNECTION_TIMEOUT : Duration.ofMillis(ms);
@@ -612,6 +781,58 @@ public class Options {
             if (props.containsKey(PROP_INBOX_PREFIX)) {
                 this.inboxPrefix(props.getProperty(PROP_INBOX_PREFIX, DEFAULT_INBOX_PREFIX));
             }
+
+            if (props.containsKey(PROP_USE_VIRTUAL_THREADS)) {
+                this.useVirtualThreads = Boolean.parseBoolean(props.getProperty(PROP_USE_VIRTUAL_THREADS));
+            }
+
+            if (props.containsKey(PROP_COUNTER_RESPONSE_TOKENS)) {
+                this.counterResponseTokens = Boolean.parseBoolean(props.getProperty(PROP_COUNTER_RESPONSE_TOKENS));
+            }
+
+            if (props.containsKey(PROP_REQUEST_CACHE_SIZE)) {
+                this.requestCacheSize(Integer.parseInt(props.getProperty(PROP_REQUEST_CACHE_SIZE)));
+            }
+
+            if (props.containsKey(PROP_REQUEST_CACHE_SUBJECTS)) {
+                String value = props.getProperty(PROP_REQUEST_CACHE_SUBJECTS);
+                for (String pair : value.split(",")) {
+                    int equals = pair.lastIndexOf('=');
+                    if (equals <= 0) {
+                        throw new IllegalArgumentException("Request cache subjects must be subject=milliseconds pairs");
+                    }
+                    long ms = Long.parseLong(pair.substring(equals + 1).trim());
+                    this.cacheRequests(pair.substring(0, equals).trim(), Duration.ofMillis(ms));
+                }
+            }
+
+            if (props.containsKey(PROP_DISPATCHER_POOL_SIZE)) {
+                this.dispatcherPoolSize(Integer.parseInt(props.getProperty(PROP_DISPATCHER_POOL_SIZE, "0")));
+            }
+
+            if (props.containsKey(PROP_DISPATCHER_QUANTUM)) {
+                int count = Integer.parseInt(props.getProperty(PROP_DISPATCHER_QUANTUM, "-1"));
+                this.dispatcherQuantum = (count <= 0) ? DEFAULT_DISPATCHER_QUANTUM : count;
+            }
+
+            if (props.containsKey(PROP_TRACK_SUBJECTS)) {
+                int count = Integer.parseInt(props.getProperty(PROP_TRACK_SUBJECTS, "0"));
+                this.trackedSubjects = Math.max(0, count);
+            }
+
+            if (props.containsKey(PROP_REGISTER_MBEANS)) {
+                this.registerMBeans = Boolean.parseBoolean(props.getProperty(PROP_REGISTER_MBEANS));
+            }
+
+            if (props.containsKey(PROP_METRICS_REPORTER)) {
+                Object instance = createInstanceOf(props.getProperty(PROP_METRICS_REPORTER));
+                this.metricsReporter = (MetricsReporter) instance;
+            }
+
+            if (props.containsKey(PROP_METRICS_INTERVAL)) {
+                int ms = Integer.parseInt(props.getProperty(PROP_METRICS_INTERVAL, "-1"));
+                this.metricsInterval = (ms <= 0) ? DEFAULT_METRICS_INTERVAL : Duration.ofMillis(ms);
+            }
         }
 
         static Object createInstanceOf(String className) {
@@ -683,6 +904,24 @@ public class Options {
             return this;
         }
 
+        /**
+         * Prefer the servers with the lowest round trip time. The connection keeps a moving average of the
+         * PING round trip to each server it has been connected to, from the PING sent during connect and the
+         * regular pings. Reconnects try healthy servers from fastest to slowest, then servers that haven't been
+         * measured, then servers that recently failed. Only servers the connection has been connected to
+         * before are measured, the others keep their place in the server list.
+         * 
+         * <p>With more than one server, the initial connect opens sockets to all of them at once and
+         * uses the first to send its INFO, nothing has been measured yet at that point. The averages are
+         * available from {@link Connection#getServerLatencies() getServerLatencies()} whether or not this is set.
+         * 
+         * @return the Builder for chaining
+         */
+        public Builder preferLowLatency() {
+            this.preferLowLatency = true;
+            return this;
+        }
+
         /**
          * Turn off echo. If supported by the gnatsd version you are connecting to this
          * flag will prevent the server from echoing messages back to the connection if it
@@ -846,6 +1085,26 @@ public class Options {
             return this;
         }
 
+        /**
+         * Set the number of servers to try at the same time when reconnecting. With more than one, the
+         * connection opens sockets to that many servers from the reconnect list at once and waits for
+         * each to send its INFO. The first server to answer is used and the other sockets are closed,
+         * so a dead server costs at most one connection timeout rather than one per server.
+         * 
+         * <p>Each server probed counts as one attempt toward {@link #maxReconnects(int) maxReconnects}.
+         * The {@link #reconnectWait(Duration) reconnect wait} is used between passes over the server list.
+         * 
+         * @param servers the number of servers to try at once, 1 tries them one at a time
+         * @return the Builder for chaining
+         */
+        public Builder reconnectProbes(int servers) {
+            if (servers <= 0) {
+                throw new IllegalArgumentException("Reconnect probes must be positive");
+            }
+            this.reconnectProbes = servers;
+            return this;
+        }
+
         /**
          * Set the maximum length of a control line sent by this connection. This value is also configured
          * in the server but the protocol doesn't currently forward that setting. Configure it here so that
@@ -931,6 +1190,201 @@ public class Options {
             return this;
         }
 
+        /**
+         * Spool publishes to a memory-mapped file once the {@link #reconnectBufferSize(long) reconnect buffer}
+         * is full, instead of dropping them. The spool is append only and uses at most {@code maxBytes} of disk.
+         * When the connection is back the spool is replayed, in order, after the messages in the
+         * reconnect buffer. Publishes fail only once the spool is full as well.
+         * 
+         * <p>The file is created, or truncated, by each connection that uses these options, so connections
+         * should not share a spool file. It is deleted when the connection is closed. Each member of a
+         * {@link io.nats.client.Nats#connectGroup(Options, int) connection group} uses this name with its index
+         * added, like {@code nats.spool.0}.
+         * 
+         * @param file the spool file, or null to turn spooling off
+         * @param maxBytes the most disk the spool can use, in bytes
+         * @return the Builder for chaining
+         */
+        public Builder reconnectSpool(Path file, long maxBytes) {
+            if (file != null && maxBytes <= 0) {
+                throw new IllegalArgumentException("Reconnect spool size must be greater than 0");
+            }
+            this.reconnectSpoolFile = file;
+            this.reconnectSpoolSize = (file == null) ? DEFAULT_RECONNECT_SPOOL_SIZE : maxBytes;
+            return this;
+        }
+
+        /**
+         * Run the connection's threads, the reader, writer, reconnect and drain threads, as well as the
+         * dispatcher threads, on virtual threads. Virtual threads are available on Java 21 and later, on older
+         * runtimes this setting is ignored and platform threads are used.
+         * 
+         * <p>With virtual threads, handlers that block are cheap, so a dispatcher can be created with many
+         * lanes, see {@link Connection#createDispatcher(MessageHandler, int, java.util.function.Function) createDispatcher()},
+         * to run thousands of handlers at once while keeping messages with the same key in order.
+         * 
+         * @return the Builder for chaining
+         */
+        public Builder useVirtualThreads() {
+            this.useVirtualThreads = true;
+            return this;
+        }
+
+        /**
+         * Use a counter for the response token at the end of each request's reply subject, instead of a
+         * random NUID. The tokens are short decimal numbers, they are read straight from the reply subject
+         * and looked up in a lock-free table, so the request/reply path doesn't take the NUID lock or
+         * create a substring for every reply.
+         * 
+         * <p>The reply subjects are still unique to this connection, since they start with the connection's
+         * random response inbox. This setting has no effect with the {@link #oldRequestStyle() old request style}.
+         * 
+         * @return the Builder for chaining
+         */
+        public Builder counterResponseTokens() {
+            this.counterResponseTokens = true;
+            return this;
+        }
+
+        /**
+         * Cache replies to requests on a subject. Requests on the subject with the same body share one
+         * round trip while the first is in flight, and later requests are answered from the cache until
+         * the time to live runs out. Only use this for idempotent requests, like configuration or lookups,
+         * where a slightly stale reply is fine.
+         * 
+         * <p>Requests that share a reply share the same {@link Message} object, applications shouldn't
+         * modify its data. Requests using the {@link #oldRequestStyle() old request style} are cached as well.
+         * 
+         * <p>Each request keeps its own timeout, a request that shares a round trip can time out or be cancelled
+         * without affecting the others waiting on it.
+         * 
+         * @param subject the exact subject to cache, wildcards are not supported
+         * @param ttl how long to keep a reply, must be positive
+         * @return the Builder for chaining
+         */
+        public Builder cacheRequests(String subject, Duration ttl) {
+            if (subject == null || subject.length() == 0) {
+                throw new IllegalArgumentException("Subject is required to cache requests");
+            }
+            if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+                throw new IllegalArgumentException("Request cache time to live must be positive");
+            }
+            this.requestCacheTtls.put(subject, ttl);
+            return this;
+        }
+
+        /**
+         * Set the most replies the request cache keeps, across all the subjects set with
+         * {@link #cacheRequests(String, Duration) cacheRequests()}. When the cache is full the least
+         * recently used reply is dropped.
+         * 
+         * @param entries the most cached replies, must be positive
+         * @return the Builder for chaining
+         */
+        public Builder requestCacheSize(int entries) {
+            if (entries <= 0) {
+                throw new IllegalArgumentException("Request cache size must be positive");
+            }
+            this.requestCacheSize = entries;
+            return this;
+        }
+
+        /**
+         * Schedule dispatchers on a shared pool of threads instead of giving each dispatcher, or
+         * dispatcher lane, its own thread. This is useful for applications with many mostly idle dispatchers.
+         * 
+         * <p>A pooled dispatcher gets a turn on the pool when it has messages, delivers up to the
+         * {@link #dispatcherQuantum(int) quantum} and then yields so other dispatchers can run. Messages for a
+         * dispatcher, or a lane of a multi-lane dispatcher, are still delivered one at a time and in order.
+         * 
+         * <p>The default, 0, disables the pool. Handlers that block will hold a pool thread, so the pool should
+         * be sized for the number of handlers expected to block at the same time.
+         * 
+         * @param threads the number of threads in the pool, or 0 for a thread per dispatcher
+         * @return the Builder for chaining
+         */
+        public Builder dispatcherPoolSize(int threads) {
+            if (threads < 0) {
+                throw new IllegalArgumentException("Dispatcher pool size cannot be negative");
+            }
+            this.dispatcherPoolSize = threads;
+            return this;
+        }
+
+        /**
+         * Set the number of messages a pooled dispatcher delivers before yielding its pool thread, only used
+         * with a {@link #dispatcherPoolSize(int) dispatcher pool}. Smaller values are fairer to other dispatchers,
+         * larger values have less scheduling overhead.
+         * 
+         * @param messages the number of messages per turn, must be positive
+         * @return the Builder for chaining
+         */
+        public Builder dispatcherQuantum(int messages) {
+            if (messages <= 0) {
+                throw new IllegalArgumentException("Dispatcher quantum must be positive");
+            }
+            this.dispatcherQuantum = messages;
+            return this;
+        }
+
+        /**
+         * Track the subjects with the most traffic, in and out, so they can be read from the connection's
+         * {@link Statistics Statistics}. The counts are estimates kept in a fixed amount of memory, so this
+         * works with any number of distinct subjects. A count may be too high, it is never too low.
+         * 
+         * @param count the number of subjects to report, by message count and by bytes, or 0 to turn tracking off
+         * @return the Builder for chaining
+         */
+        public Builder trackSubjects(int count) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Tracked subjects cannot be negative");
+            }
+            this.trackedSubjects = count;
+            return this;
+        }
+
+        /**
+         * Register MXBeans for the connection, its dispatchers and the subscriptions that aren't part of a
+         * dispatcher with the platform MBean server, under the {@code io.nats} domain. Their attributes are read
+         * from the connection when they are asked for, so tools like JConsole can watch queues build up live.
+         * The beans are unregistered when the dispatcher or subscription goes away, or the connection closes.
+         * 
+         * @return the Builder for chaining
+         */
+        public Builder registerMBeans() {
+            this.registerMBeans = true;
+            return this;
+        }
+
+        /**
+         * Set a reporter that is given a {@link MetricsSnapshot MetricsSnapshot} of the connection's statistics
+         * every {@link #metricsInterval(Duration) metrics interval}, starting once the connection is made. The
+         * snapshots are taken on the connection's scheduler, see {@link MetricsReporter MetricsReporter}.
+         * 
+         * @param reporter the reporter, or null for none
+         * @return the Builder for chaining
+         */
+        public Builder metricsReporter(MetricsReporter reporter) {
+            this.metricsReporter = reporter;
+            return this;
+        }
+
+        /**
+         * Set the interval between snapshots for the {@link #metricsReporter(MetricsReporter) metrics reporter},
+         * the default is {@link Options#DEFAULT_METRICS_INTERVAL}.
+         * 
+         * @param interval the time between snapshots
+         * @return the Builder for chaining
+         * @throws IllegalArgumentException if the interval is null or not positive
+         */
+        public Builder metricsInterval(Duration interval) {
+            if (interval == null || interval.isZero() || interval.isNegative()) {
+                throw new IllegalArgumentException("Metrics interval must be positive");
+            }
+            this.metricsInterval = interval;
+            return this;
+        }
+
         /**
          * Set the username and password for basic authentication.
          * 
@@ -996,6 +1450,22 @@ public class Options {
             return this;
         }
 
+        /**
+         * Set the scheduler the connection uses for its timers: pings, request cleanup and timeouts, reconnect
+         * waits and drain checks. By default all connections share one small scheduler with daemon threads.
+         * 
+         * <p>The connection cancels its tasks when it closes, but never shuts the scheduler down, that is up to
+         * the application. The tasks are short, anything that blocks is run on another thread, and request
+         * timeouts complete their futures on the connection's callback thread rather than the scheduler.
+         * 
+         * @param scheduler the scheduler to use, or null for the shared one
+         * @return the Builder for chaining
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
         /**
          * The class to use for this connections data port. This is an advanced setting
          * and primarily useful for testing.
@@ -1056,17 +1526,21 @@ public class Options {
     private Options(Builder b) {
         this.servers = b.servers;
         this.noRandomize = b.noRandomize;
+        this.preferLowLatency = b.preferLowLatency;
         this.connectionName = b.connectionName;
         this.verbose = b.verbose;
         this.pedantic = b.pedantic;
         this.sslContext = b.sslContext;
         this.maxReconnect = b.maxReconnect;
+        this.reconnectProbes = b.reconnectProbes;
         this.reconnectWait = b.reconnectWait;
         this.connectionTimeout = b.connectionTimeout;
         this.pingInterval = b.pingInterval;
         this.requestCleanupInterval = b.requestCleanupInterval;
         this.maxPingsOut = b.maxPingsOut;
         this.reconnectBufferSize = b.reconnectBufferSize;
+        this.reconnectSpoolFile = b.reconnectSpoolFile;
+        this.reconnectSpoolSize = b.reconnectSpoolSize;
         this.username = b.username;
         this.password = b.password;
         this.token = b.token;
@@ -1076,10 +1550,21 @@ public class Options {
         this.noEcho = b.noEcho;
         this.utf8Support = b.utf8Support;
         this.inboxPrefix = b.inboxPrefix;
+        this.dispatcherPoolSize = b.dispatcherPoolSize;
+        this.dispatcherQuantum = b.dispatcherQuantum;
+        this.trackedSubjects = b.trackedSubjects;
+        this.registerMBeans = b.registerMBeans;
+        this.metricsReporter = b.metricsReporter;
+        this.metricsInterval = b.metricsInterval;
+        this.useVirtualThreads = b.useVirtualThreads;
+        this.counterResponseTokens = b.counterResponseTokens;
+        this.requestCacheSize = b.requestCacheSize;
+        this.requestCacheTtls = Collections.unmodifiableMap(new HashMap<>(b.requestCacheTtls));
 
         this.authHandler = b.authHandler;
         this.errorListener = b.errorListener;
         this.connectionListener = b.connectionListener;
+        this.scheduler = b.scheduler;
         this.dataPortType = b.dataPortType;
         this.trackAdvancedStats = b.trackAdvancedStats;
     }
@@ -1091,6 +1576,14 @@ public class Options {
         return this.errorListener;
     }
 
+    /**
+     * @return the scheduler for the connection's timers, or null to use the shared one, see
+     *         {@link Builder#scheduler(ScheduledExecutorService) scheduler()} in the builder doc
+     */
+    public ScheduledExecutorService getScheduler() {
+        return this.scheduler;
+    }
+
     /**
      * @return the connection listener, or null, see {@link Builder#connectionListener(ConnectionListener) connectionListener()} in the builder doc
      */
@@ -1133,6 +1626,13 @@ public class Options {
         return noRandomize;
     }
 
+    /**
+     * @return should servers with a lower round trip time be tried first, see {@link Builder#preferLowLatency() preferLowLatency()} in the builder doc
+     */
+    public boolean isPreferLowLatency() {
+        return preferLowLatency;
+    }
+
     /**
      * @return whether or not utf8 subjects are supported, see {@link Builder#supportUTF8Subjects() supportUTF8Subjects()} in the builder doc.
      */
@@ -1204,6 +1704,13 @@ public class Options {
         return maxReconnect;
     }
 
+    /**
+     * @return the number of servers tried at once during reconnect, see {@link Builder#reconnectProbes(int) reconnectProbes()} in the builder doc
+     */
+    public int getReconnectProbes() {
+        return reconnectProbes;
+    }
+
     /**
      * @return the reconnectWait, used between reconnect attempts to the same server, see {@link Builder#reconnectWait(Duration) reconnectWait()} in the builder doc
      */
@@ -1247,6 +1754,21 @@ public class Options {
         return reconnectBufferSize;
     }
 
+    /**
+     * @return the file publishes are spooled to when the reconnect buffer is full, or null if there is no spool,
+     *         see {@link Builder#reconnectSpool(Path, long) reconnectSpool()} in the builder doc
+     */
+    public Path getReconnectSpoolFile() {
+        return reconnectSpoolFile;
+    }
+
+    /**
+     * @return the most disk, in bytes, the reconnect spool can use, see {@link Builder#reconnectSpool(Path, long) reconnectSpool()} in the builder doc
+     */
+    public long getReconnectSpoolSize() {
+        return reconnectSpoolSize;
+    }
+
     /**
      * @return the default size for buffers in the connection code, see {@link Builder#bufferSize(int) bufferSize()} in the builder doc
      */
@@ -1288,6 +1810,86 @@ public class Options {
     public String getInboxPrefix() {
         return inboxPrefix;
     }
+
+    /**
+     * @return true if the connection should use virtual threads when the runtime supports them, see
+     *         {@link Builder#useVirtualThreads() useVirtualThreads()} in the builder doc
+     */
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * @return true if requests use counter based response tokens, see
+     *         {@link Builder#counterResponseTokens() counterResponseTokens()} in the builder doc
+     */
+    public boolean isCounterResponseTokens() {
+        return counterResponseTokens;
+    }
+
+    /**
+     * @return the most replies kept in the request cache, see
+     *         {@link Builder#requestCacheSize(int) requestCacheSize()} in the builder doc
+     */
+    public int getRequestCacheSize() {
+        return requestCacheSize;
+    }
+
+    /**
+     * @return the time to live for each cached request subject, empty if requests aren't cached, see
+     *         {@link Builder#cacheRequests(String, Duration) cacheRequests()} in the builder doc
+     */
+    public Map<String, Duration> getRequestCacheTtls() {
+        return requestCacheTtls;
+    }
+
+    /**
+     * @return the number of threads shared by dispatchers, 0 if each dispatcher has its own thread, see
+     *         {@link Builder#dispatcherPoolSize(int) dispatcherPoolSize()} in the builder doc
+     */
+    public int getDispatcherPoolSize() {
+        return dispatcherPoolSize;
+    }
+
+    /**
+     * @return the number of messages a pooled dispatcher delivers per turn, see
+     *         {@link Builder#dispatcherQuantum(int) dispatcherQuantum()} in the builder doc
+     */
+    public int getDispatcherQuantum() {
+        return dispatcherQuantum;
+    }
+
+    /**
+     * @return the number of top subjects tracked in each direction, or 0 if subjects aren't tracked, see
+     *         {@link Builder#trackSubjects(int) trackSubjects()} in the builder doc
+     */
+    public int getTrackedSubjects() {
+        return trackedSubjects;
+    }
+
+    /**
+     * @return true if the connection registers MXBeans, see {@link Builder#registerMBeans() registerMBeans()} in
+     *         the builder doc
+     */
+    public boolean isRegisterMBeans() {
+        return registerMBeans;
+    }
+
+    /**
+     * @return the metrics reporter, or null, see {@link Builder#metricsReporter(MetricsReporter) metricsReporter()}
+     *         in the builder doc
+     */
+    public MetricsReporter getMetricsReporter() {
+        return metricsReporter;
+    }
+
+    /**
+     * @return the interval between metrics snapshots, see {@link Builder#metricsInterval(Duration)
+     *         metricsInterval()} in the builder doc
+     */
+    public Duration getMetricsInterval() {
+        return metricsInterval;
+    }
     
     public URI createURIForServer(String serverURI) throws URISyntaxException {
         return Options.parseURIForServer(serverURI);
@@ -0,0 +1,227 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A {@link MetricsReporter MetricsReporter} that keeps the last snapshot from each connection and renders them in
+ * the Prometheus text exposition format, for an HTTP endpoint to serve. For example:
+ * 
+ * <pre>
+ * PrometheusReporter prometheus = new PrometheusReporter();
+ * Options options = new Options.Builder().connectionName("orders").metricsReporter(prometheus).build();
+ * ...
+ * String body = prometheus.getText(); // on each scrape
+ * </pre>
+ * 
+ * <p>Every metric has a {@code connection} label with the connection name, so one reporter can be shared by
+ * connections with different names. Connections with the same name, or no name, replace each other's snapshots.
+ * Latencies are reported in seconds and histograms as summaries with the 0.5, 0.9, 0.99 and 0.999 quantiles.
+ */
+public class PrometheusReporter implements MetricsReporter {
+    static final String PREFIX = "nats_client_";
+    static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final ConcurrentHashMap<String, MetricsSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    static class Metric {
+        final String name;
+        final String type;
+        final String help;
+        final ToDoubleFunction<MetricsSnapshot> value;
+
+        Metric(String name, String type, String help, ToDoubleFunction<MetricsSnapshot> value) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.value = value;
+        }
+    }
+
+    static class Summary {
+        final String name;
+        final String help;
+        final Function<MetricsSnapshot, Histogram> histogram;
+        final double scale;
+
+        Summary(String name, String help, Function<MetricsSnapshot, Histogram> histogram, double scale) {
+            this.name = name;
+            this.help = help;
+            this.histogram = histogram;
+            this.scale = scale;
+        }
+    }
+
+    static final List<Metric> METRICS = new ArrayList<>();
+    static final List<Summary> SUMMARIES = new ArrayList<>();
+
+    static {
+        counter("in_msgs_total", "Messages received.", MetricsSnapshot::getInMsgs);
+        counter("out_msgs_total", "Messages sent.", MetricsSnapshot::getOutMsgs);
+        counter("in_bytes_total", "Bytes received.", MetricsSnapshot::getInBytes);
+        counter("out_bytes_total", "Bytes sent.", MetricsSnapshot::getOutBytes);
+        counter("reconnects_total", "Reconnects.", MetricsSnapshot::getReconnects);
+        counter("dropped_msgs_total", "Messages dropped by slow consumers.", MetricsSnapshot::getDroppedCount);
+        counter("request_cache_hits_total", "Requests answered from the cache.", MetricsSnapshot::getRequestCacheHits);
+        counter("request_cache_misses_total", "Cacheable requests sent to the server.", MetricsSnapshot::getRequestCacheMisses);
+        counter("request_cache_coalesced_total", "Requests that joined one already in flight.", MetricsSnapshot::getRequestCacheCoalesced);
+        counter("hedged_requests_total", "Requests made with a hedge.", MetricsSnapshot::getHedgedRequests);
+        counter("hedges_sent_total", "Hedge copies sent.", MetricsSnapshot::getHedgesSent);
+        counter("hedge_wins_total", "Hedged requests answered by a hedge copy.", MetricsSnapshot::getHedgeWins);
+
+        gauge("in_msgs_per_second", "Messages received per second over the last interval.", MetricsSnapshot::getInMsgsPerSecond);
+        gauge("out_msgs_per_second", "Messages sent per second over the last interval.", MetricsSnapshot::getOutMsgsPerSecond);
+        gauge("in_bytes_per_second", "Bytes received per second over the last interval.", MetricsSnapshot::getInBytesPerSecond);
+        gauge("out_bytes_per_second", "Bytes sent per second over the last interval.", MetricsSnapshot::getOutBytesPerSecond);
+        gauge("last_resubscribe_subscriptions", "Subscriptions sent by the last resubscribe.", MetricsSnapshot::getLastResubscribeCount);
+        gauge("last_resubscribe_seconds", "Duration of the last resubscribe.",
+                (s) -> s.getLastResubscribeNanos() / NANOS_PER_SECOND);
+
+        SUMMARIES.add(new Summary("request_latency_seconds", "Time from sending a request to its reply.",
+                MetricsSnapshot::getRequestLatency, 1 / NANOS_PER_SECOND));
+        SUMMARIES.add(new Summary("flush_latency_seconds", "Time from sending a flush PING to its PONG.",
+                MetricsSnapshot::getFlushLatency, 1 / NANOS_PER_SECOND));
+        SUMMARIES.add(new Summary("read_size_bytes", "Bytes per socket read, with advanced stats.",
+                MetricsSnapshot::getReadSizes, 1));
+        SUMMARIES.add(new Summary("write_size_bytes", "Bytes per socket write, with advanced stats.",
+                MetricsSnapshot::getWriteSizes, 1));
+    }
+
+    private static void counter(String name, String help, ToDoubleFunction<MetricsSnapshot> value) {
+        METRICS.add(new Metric(name, "counter", help, value));
+    }
+
+    private static void gauge(String name, String help, ToDoubleFunction<MetricsSnapshot> value) {
+        METRICS.add(new Metric(name, "gauge", help, value));
+    }
+
+    /**
+     * Keep the snapshot, replacing the last one from a connection with the same name.
+     * 
+     * @param snapshot the latest snapshot
+     */
+    public void report(MetricsSnapshot snapshot) {
+        String name = snapshot.getConnectionName();
+        this.snapshots.put((name != null) ? name : "", snapshot);
+    }
+
+    /**
+     * @return the last snapshot from every connection, in the Prometheus text format
+     */
+    public String getText() {
+        return render(this.snapshots.values());
+    }
+
+    /**
+     * Render snapshots in the Prometheus text format, with each metric's HELP and TYPE lines once.
+     * 
+     * @param snapshots the snapshots, from connections with different names
+     * @return the text
+     */
+    public static String render(Collection<MetricsSnapshot> snapshots) {
+        StringBuilder builder = new StringBuilder();
+
+        if (snapshots.isEmpty()) {
+            return "";
+        }
+
+        for (Metric metric : METRICS) {
+            header(builder, metric.name, metric.type, metric.help);
+            for (MetricsSnapshot snapshot : snapshots) {
+                sample(builder, metric.name, snapshot, null, metric.value.applyAsDouble(snapshot));
+            }
+        }
+
+        for (Summary summary : SUMMARIES) {
+            header(builder, summary.name, "summary", summary.help);
+            for (MetricsSnapshot snapshot : snapshots) {
+                Histogram histogram = summary.histogram.apply(snapshot);
+                for (double quantile : QUANTILES) {
+                    sample(builder, summary.name, snapshot, "quantile=\"" + quantile + "\"",
+                            histogram.getPercentile(quantile * 100) * summary.scale);
+                }
+                sample(builder, summary.name + "_sum", snapshot, null, histogram.getSum() * summary.scale);
+                sample(builder, summary.name + "_count", snapshot, null, histogram.getCount());
+            }
+        }
+
+        subjects(builder, snapshots, "subject_in", "received on the busiest subjects", true);
+        subjects(builder, snapshots, "subject_out", "sent on the busiest subjects", false);
+
+        return builder.toString();
+    }
+
+    // Subject traffic is only there when the connections track subjects
+    private static void subjects(StringBuilder builder, Collection<MetricsSnapshot> snapshots, String name,
+            String help, boolean inbound) {
+        boolean any = false;
+        for (MetricsSnapshot snapshot : snapshots) {
+            any |= !(inbound ? snapshot.getTopInboundSubjects() : snapshot.getTopOutboundSubjects()).isEmpty();
+        }
+
+        if (!any) {
+            return;
+        }
+
+        header(builder, name + "_msgs", "gauge", "Estimated messages " + help + ".");
+        for (MetricsSnapshot snapshot : snapshots) {
+            for (SubjectTraffic traffic : inbound ? snapshot.getTopInboundSubjects() : snapshot.getTopOutboundSubjects()) {
+                sample(builder, name + "_msgs", snapshot, "subject=\"" + escape(traffic.getSubject()) + "\"",
+                        traffic.getMessages());
+            }
+        }
+
+        header(builder, name + "_bytes", "gauge", "Estimated bytes " + help + ".");
+        for (MetricsSnapshot snapshot : snapshots) {
+            for (SubjectTraffic traffic : inbound ? snapshot.getTopInboundSubjects() : snapshot.getTopOutboundSubjects()) {
+                sample(builder, name + "_bytes", snapshot, "subject=\"" + escape(traffic.getSubject()) + "\"",
+                        traffic.getBytes());
+            }
+        }
+    }
+
+    private static void header(StringBuilder builder, String name, String type, String help) {
+        builder.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder builder, String name, MetricsSnapshot snapshot, String label, double value) {
+        String connection = snapshot.getConnectionName();
+
+        builder.append(PREFIX).append(name);
+        builder.append("{connection=\"").append(escape((connection != null) ? connection : "")).append('"');
+        if (label != null) {
+            builder.append(',').append(label);
+        }
+        builder.append("} ");
+
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+        builder.append('\n');
+    }
+
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
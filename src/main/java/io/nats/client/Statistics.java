@@ -13,6 +13,8 @@
 
 package io.nats.client;
 
+import java.util.List;
+
 /**
  * Connections can provide an instance of Statistics, {@link Connection#getStatistics() getStatistics()}. The statistics
  * object provides information about key metrics related to the connection over its entire lifecycle.
@@ -49,4 +51,99 @@ public interface Statistics {
      * @return the total number of messages dropped by this connection across all slow consumers.
      */
     public long getDroppedCount();
+
+    /**
+     * @return the total number of requests answered from the request cache, see
+     *         {@link Options.Builder#cacheRequests(String, java.time.Duration) cacheRequests()}.
+     */
+    public long getRequestCacheHits();
+
+    /**
+     * @return the total number of cacheable requests that had to go to the server.
+     */
+    public long getRequestCacheMisses();
+
+    /**
+     * @return the total number of cacheable requests that shared an identical request already in flight.
+     */
+    public long getRequestCacheCoalesced();
+
+    /**
+     * @return the total number of requests made with
+     *         {@link Connection#requestHedged(String, byte[], java.time.Duration, java.time.Duration) requestHedged()}.
+     */
+    public long getHedgedRequests();
+
+    /**
+     * @return the total number of hedge copies sent because the first reply was slow.
+     */
+    public long getHedgesSent();
+
+    /**
+     * @return the total number of hedged requests answered by the hedge copy rather than the original.
+     */
+    public long getHedgeWins();
+
+    /**
+     * @return the number of subscriptions sent to the server by the last resubscribe, the one reported by the
+     *         last {@link ConnectionListener.Events#RESUBSCRIBED RESUBSCRIBED} event.
+     */
+    public long getLastResubscribeCount();
+
+    /**
+     * @return the time, in nanoseconds, the last resubscribe took, from encoding the first subscription until
+     *         the server confirmed them all, or 0 if the connection hasn't resubscribed.
+     */
+    public long getLastResubscribeNanos();
+
+    /**
+     * The number of bytes per socket read. This is only recorded if the connection is tracking advanced
+     * statistics, see {@link Options.Builder#turnOnAdvancedStats() turnOnAdvancedStats()}, otherwise it is empty.
+     * 
+     * @return a snapshot of the bytes per read
+     */
+    public Histogram getReadSizes();
+
+    /**
+     * The number of bytes per socket write. This is only recorded if the connection is tracking advanced
+     * statistics, see {@link Options.Builder#turnOnAdvancedStats() turnOnAdvancedStats()}, otherwise it is empty.
+     * 
+     * @return a snapshot of the bytes per write
+     */
+    public Histogram getWriteSizes();
+
+    /**
+     * The time, in nanoseconds, from sending a request to its reply, for every request that got a reply. This
+     * is always recorded.
+     * 
+     * @return a snapshot of the request latency
+     */
+    public Histogram getRequestLatency();
+
+    /**
+     * The time, in nanoseconds, from sending the PING for a {@link Connection#flush(java.time.Duration) flush} to
+     * getting the PONG back, for every flush that succeeded. This is always recorded.
+     * 
+     * @return a snapshot of the flush latency
+     */
+    public Histogram getFlushLatency();
+
+    /**
+     * The subjects this connection received the most messages or bytes on, heaviest by bytes first, when subject
+     * tracking is turned on with {@link Options.Builder#trackSubjects(int) trackSubjects()}. Up to that many subjects
+     * are kept for each of messages and bytes.
+     * 
+     * <p>The counts come from a fixed size sketch, so they can be higher than the real counts but never lower.
+     * 
+     * @return the top inbound subjects, or an empty list if subjects aren't tracked
+     */
+    public List<SubjectTraffic> getTopInboundSubjects();
+
+    /**
+     * The subjects this connection published the most messages or bytes on, heaviest by bytes first, counted
+     * when they are written to the socket or buffered during a reconnect. See {@link #getTopInboundSubjects()}.
+     * 
+     * @return the top outbound subjects, or an empty list if subjects aren't tracked
+     */
+    public List<SubjectTraffic> getTopOutboundSubjects();
 }
@@ -0,0 +1,36 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client;
+
+/**
+ * The estimated traffic on one subject, as reported by {@link Statistics#getTopInboundSubjects()} and
+ * {@link Statistics#getTopOutboundSubjects()}. The estimates may be higher than the real traffic, when
+ * the subject shares counters with other subjects, but are never lower.
+ */
+public interface SubjectTraffic {
+    /**
+     * @return the subject
+     */
+    public String getSubject();
+
+    /**
+     * @return the estimated number of messages on the subject
+     */
+    public long getMessages();
+
+    /**
+     * @return the estimated number of bytes on the subject, including the protocol line
+     */
+    public long getBytes();
+}
@@ -17,6 +17,7 @@ import java.time.Duration;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 import java.util.function.Predicate;
 
@@ -31,6 +32,7 @@ class MessageQueue {
     private final boolean singleThreadedReader;
     private final ConcurrentLinkedQueue<NatsMessage> queue;
     private final ConcurrentLinkedQueue<Thread> waiters;
+    private final AtomicReference<Runnable> onDrained;
 
     MessageQueue(boolean singleReaderMode) {
         this.queue = new ConcurrentLinkedQueue<>();
@@ -40,6 +42,7 @@ class MessageQueue {
         
         this.waiters = new ConcurrentLinkedQueue<>();
         this.singleThreadedReader = singleReaderMode;
+        this.onDrained = new AtomicReference<>();
     }
 
     boolean isSingleReaderMode() {
@@ -67,12 +70,29 @@ class MessageQueue {
     void drain() {
         this.running.set(DRAINING);
         signalAll();
+        checkDrained();
     }
 
     boolean isDrained() {
         return this.running.get() == DRAINING && this.length() == 0;
     }
 
+    // The hook runs once, on the thread that empties the queue while it is draining
+    void onDrained(Runnable hook) {
+        this.onDrained.set(hook);
+        checkDrained();
+    }
+
+    void checkDrained() {
+        if (this.isDrained()) {
+            Runnable hook = this.onDrained.getAndSet(null);
+
+            if (hook != null) {
+                hook.run();
+            }
+        }
+    }
+
     void signalOne() {
         Thread t = waiters.poll();
         if (t != null) {
@@ -181,6 +201,7 @@ class MessageQueue {
             this.sizeInBytes.getAndAdd(-retVal.getSizeInBytes());
             this.length.decrementAndGet();
             signalIfNotEmpty();
+            checkDrained();
         }
 
         return retVal;
@@ -223,6 +244,7 @@ class MessageQueue {
             this.sizeInBytes.addAndGet(-size);
             this.length.decrementAndGet();
             signalIfNotEmpty();
+            checkDrained();
             return msg;
         }
 
@@ -256,6 +278,81 @@ class MessageQueue {
         this.length.addAndGet(-count);
 
         signalIfNotEmpty();
+        checkDrained();
+        return msg;
+    }
+
+    // Like accumulate, but once the first message is available this keeps collecting
+    // messages for up to the linger time, or until maxMessages have been collected.
+    // The messages are chained with the next field, in order.
+    //
+    // A timeout of 0 will wait indefinitely for the first message, a null timeout
+    // won't wait at all. A null or zero linger only takes what is already queued.
+    // If the thread is interrupted while lingering, the messages collected so far are
+    // returned and the interrupt flag is set again.
+    //
+    // Only works in single reader mode, see accumulate.
+    NatsMessage accumulate(long maxMessages, Duration timeout, Duration linger)
+            throws InterruptedException {
+
+        if (!this.singleThreadedReader) {
+            throw new IllegalStateException("Accumulate is only supported in single reader mode.");
+        }
+
+        if (!this.isRunning()) {
+            return null;
+        }
+
+        NatsMessage msg = this.queue.poll();
+
+        if (msg == null) {
+            msg = waitForTimeout(timeout);
+
+            if (!this.isRunning() || (msg == null)) {
+                return null;
+            }
+        }
+
+        long lingerNanos = (linger != null) ? linger.toNanos() : 0;
+        long deadline = System.nanoTime() + lingerNanos;
+        long size = msg.getSizeInBytes();
+        long count = 1;
+        NatsMessage cursor = msg;
+
+        while (count < maxMessages) {
+            NatsMessage next = this.queue.poll();
+
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+
+                if (remaining <= 0 || this.isDraining()) {
+                    break;
+                }
+
+                try {
+                    next = waitForTimeout(Duration.ofNanos(remaining));
+                } catch (InterruptedException exp) {
+                    // The collected messages are already off the queue, hand them over and let the caller see the interrupt
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+
+                if (next == null) {
+                    break;
+                }
+            }
+
+            size += next.getSizeInBytes();
+            count++;
+            cursor.next = next;
+            cursor = next;
+        }
+
+        this.sizeInBytes.addAndGet(-size);
+        this.length.addAndGet(-count);
+
+        signalIfNotEmpty();
+        checkDrained();
         return msg;
     }
 
@@ -273,6 +370,14 @@ class MessageQueue {
         return this.sizeInBytes.get();
     }
 
+    // How long the message at the head of the queue has been waiting, or 0 if the queue is empty or messages
+    // aren't timestamped
+    long getOldestWaitNanos(long now) {
+        NatsMessage head = this.queue.peek();
+        long enqueued = (head != null) ? head.getEnqueueNanos() : 0;
+        return (enqueued == 0) ? 0 : Math.max(0, now - enqueued);
+    }
+
     void filter(Predicate<NatsMessage> p) {
         if (this.isRunning()) {
             throw new IllegalStateException("Filter is only supported when the queue is paused");
@@ -16,6 +16,7 @@ package io.nats.client.impl;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -23,9 +24,9 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,22 +36,30 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
+import io.nats.client.BatchMessageHandler;
 import io.nats.client.Connection;
 import io.nats.client.ConnectionListener;
 import io.nats.client.Consumer;
 import io.nats.client.Dispatcher;
 import io.nats.client.ErrorListener;
+import io.nats.client.Histogram;
 import io.nats.client.Message;
 import io.nats.client.MessageHandler;
+import io.nats.client.MetricsReporter;
 import io.nats.client.NUID;
 import io.nats.client.Options;
 import io.nats.client.Statistics;
@@ -75,6 +84,22 @@ class NatsConnection implements Connection {
     static final String OP_OK = "+OK";
     static final String OP_ERR = "-ERR";
 
+    // Slots for counter response tokens, requests beyond this many outstanding go to an overflow map
+    static final int RESPONSE_TABLE_SIZE = 4096;
+
+    // Hedged requests without a delay wait for the p95 latency, once there are enough replies to estimate it
+    static final double HEDGE_PERCENTILE = 95.0;
+    static final long HEDGE_MIN_SAMPLES = 20;
+
+    // Working out the p95 adds up the whole latency histogram, so the delay is reused and only worked out
+    // again after this many hedged requests, or once it is this old
+    static final int HEDGE_REFRESH_REQUESTS = 100;
+    static final Duration HEDGE_REFRESH_INTERVAL = Duration.ofSeconds(1);
+
+    // Request deadlines are rounded up to the tick, the wheel turns once every 5 seconds or so
+    static final Duration REQUEST_TIMEOUT_TICK = Duration.ofMillis(10);
+    static final int REQUEST_TIMEOUT_WHEEL_SIZE = 512;
+
     private Options options;
 
     private NatsStatistics statistics;
@@ -92,6 +117,7 @@ class NatsConnection implements Connection {
     private CompletableFuture<DataPort> dataPortFuture;
     private DataPort dataPort;
     private String currentServerURI;
+    private NatsServerLatency serverLatency;
     private CompletableFuture<Boolean> reconnectWaiter;
 
     private NatsConnectionReader reader;
@@ -102,12 +128,25 @@ class NatsConnection implements Connection {
     private Map<String, NatsSubscription> subscribers;
     private Map<String, NatsDispatcher> dispatchers; // use a concurrent map so we get more consistent iteration
                                                      // behavior
-    private Map<String, CompletableFuture<Message>> responses;
+    private Map<String, NatsRequestFuture> responses;
+    private NatsResponseTable<NatsRequestFuture> counterResponses;
+    private Map<String, NatsReplyGatherer> gatherers;
+    private NatsRequestCache requestCache;
+    private AtomicLong nextResponseToken;
+    private boolean useCounterTokens;
+    private String responsePrefix;
     private ConcurrentLinkedDeque<CompletableFuture<Boolean>> pongQueue;
 
     private String mainInbox;
     private AtomicReference<NatsDispatcher> inboxDispatcher;
-    private Timer timer;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> pingTimer;
+    private ScheduledFuture<?> cleanupTimer;
+    private boolean timersStarted;
+    private NatsTimingWheel requestTimeouts;
+    private volatile Duration hedgeDelay; // the observed delay, null until there are enough samples
+    private volatile long hedgeDelayRefreshed;
+    private AtomicInteger hedgesSinceRefresh;
 
     private AtomicLong nextSid;
     private NUID nuid;
@@ -115,13 +154,33 @@ class NatsConnection implements Connection {
     private AtomicReference<String> lastError;
     private AtomicReference<CompletableFuture<Boolean>> draining;
     private AtomicBoolean blockPublishForDrain;
+    private Set<CompletableFuture<Boolean>> drainWaits;
 
     private ExecutorService callbackRunner;
+    private ExecutorService dispatcherPool;
+    private NatsMBeans mbeans; // null unless the options ask for them
+    private ScheduledFuture<?> metricsTimer;
+    private NatsMetricsSnapshot lastSnapshot; // only used by the metrics timer
+    private final long createdNanos;
+    private boolean useVirtualThreads;
+    private final Path reconnectSpoolFile;
 
     NatsConnection(Options options) {
+        this(options, options.getReconnectSpoolFile());
+    }
+
+    // Connections in a group share their options, but each needs a spool file of its own
+    NatsConnection(Options options, Path reconnectSpoolFile) {
         this.options = options;
+        this.reconnectSpoolFile = reconnectSpoolFile;
 
-        this.statistics = new NatsStatistics(this.options.isTrackAdvancedStats());
+        this.statistics = new NatsStatistics(this.options.isTrackAdvancedStats(), this.options.getTrackedSubjects());
+
+        if (this.options.isRegisterMBeans()) {
+            this.mbeans = new NatsMBeans(this);
+        }
+
+        this.createdNanos = System.nanoTime();
 
         this.statusLock = new ReentrantLock();
         this.statusChanged = this.statusLock.newCondition();
@@ -132,23 +191,74 @@ class NatsConnection implements Connection {
         this.dispatchers = new ConcurrentHashMap<>();
         this.subscribers = new ConcurrentHashMap<>();
         this.responses = new ConcurrentHashMap<>();
+        this.gatherers = new ConcurrentHashMap<>();
 
         this.nextSid = new AtomicLong(1);
+        this.hedgesSinceRefresh = new AtomicInteger();
+        this.hedgeDelayRefreshed = System.nanoTime() - HEDGE_REFRESH_INTERVAL.toNanos(); // the first request works it out
         this.nuid = new NUID();
         this.mainInbox = createInbox() + ".*";
+        this.responsePrefix = this.mainInbox.substring(0, getRespInboxLength());
+
+        this.useCounterTokens = options.isCounterResponseTokens() && !options.isOldRequestStyle();
+        this.counterResponses = new NatsResponseTable<>(RESPONSE_TABLE_SIZE);
+        this.nextResponseToken = new AtomicLong(1);
 
         this.lastError = new AtomicReference<>();
+        this.serverLatency = new NatsServerLatency();
 
         this.serverInfo = new AtomicReference<>();
         this.inboxDispatcher = new AtomicReference<>();
         this.pongQueue = new ConcurrentLinkedDeque<>();
         this.draining = new AtomicReference<>();
         this.blockPublishForDrain = new AtomicBoolean();
+        this.drainWaits = ConcurrentHashMap.newKeySet();
 
         this.reader = new NatsConnectionReader(this);
         this.writer = new NatsConnectionWriter(this);
 
-        this.callbackRunner = Executors.newSingleThreadExecutor();
+        // Virtual threads are quietly ignored on runtimes that don't have them
+        this.useVirtualThreads = options.isUseVirtualThreads() && NatsThreads.isVirtualSupported();
+
+        String name = (options.getConnectionName() != null) ? options.getConnectionName() : "Nats Connection";
+        this.callbackRunner = Executors.newSingleThreadExecutor(threadFactory(name + " Callbacks", false));
+
+        this.scheduler = (options.getScheduler() != null) ? options.getScheduler() : NatsScheduler.shared();
+        this.requestTimeouts = new NatsTimingWheel(REQUEST_TIMEOUT_TICK, REQUEST_TIMEOUT_WHEEL_SIZE, this.scheduler,
+                this.callbackRunner); // expired requests complete off the shared scheduler
+
+        if (!options.getRequestCacheTtls().isEmpty()) {
+            this.requestCache = new NatsRequestCache(options.getRequestCacheTtls(), options.getRequestCacheSize(),
+                    this.statistics, this.requestTimeouts);
+        }
+
+        if (options.getDispatcherPoolSize() > 0) {
+            this.dispatcherPool = Executors.newFixedThreadPool(options.getDispatcherPoolSize(),
+                                                                threadFactory(name + " Dispatcher Pool", true));
+        }
+    }
+
+    // All of the connection's threads are created here, so they can be virtual when requested
+    Thread createThread(Runnable runnable, String name) {
+        if (this.useVirtualThreads) {
+            return NatsThreads.newVirtualThread(runnable, name);
+        }
+        return new Thread(runnable, name);
+    }
+
+    boolean isUsingVirtualThreads() {
+        return this.useVirtualThreads;
+    }
+
+    private ThreadFactory threadFactory(String prefix, boolean daemon) {
+        AtomicInteger threadNo = new AtomicInteger();
+        return (r) -> {
+            Thread t = createThread(r, prefix + " " + threadNo.incrementAndGet());
+            if (!this.useVirtualThreads) { // virtual threads are always daemons
+                t.setDaemon(daemon);
+            }
+            return t;
+        };
     }
 
     // Connect is only called after creation
@@ -157,9 +267,30 @@ class NatsConnection implements Connection {
             throw new IllegalArgumentException("No servers provided in options");
         }
 
-        for (String serverURI : getServers()) {
+        Collection<String> servers = getServers();
+
+        if (this.mbeans != null) {
+            this.mbeans.registerConnection();
+        }
+
+        // Race all of the servers, the first to answer is likely the closest
+        if (options.isPreferLowLatency() && servers.size() > 1) {
+            updateStatus(Status.CONNECTING);
+
+            NatsServerProbe probe = NatsServerProbe.race(this, new ArrayList<>(servers));
 
-            if (isClosed()) {
+            if (probe != null) {
+                tryToConnect(probe.getServer(), probe);
+            }
+
+            if (!isConnected()) {
+                updateStatus(Status.DISCONNECTED);
+            }
+        }
+
+        for (String serverURI : servers) {
+
+            if (isClosed() || isConnected()) {
                 break;
             }
 
@@ -200,10 +331,31 @@ class NatsConnection implements Connection {
         }
 
         this.writer.setReconnectMode(true);
+        Object reconnectEvent = NatsEvents.beginReconnectPhase();
+
+        int probes = options.getReconnectProbes();
+        boolean firstPass = true;
 
         while (!isConnected() && !isClosed() && !this.isClosing()) {
             Collection<String> serversToTry = buildReconnectList();
 
+            if (probes > 1) {
+                // Wait between passes, as a server that just failed is likely in the next one
+                if (!firstPass) {
+                    this.reconnectWaiter = new CompletableFuture<>();
+                    waitForReconnectTimeout();
+                }
+
+                firstPass = false;
+                tries = probeServers(new ArrayList<>(serversToTry), probes, tries, maxTries);
+
+                if (maxTries > 0 && tries >= maxTries) {
+                    break;
+                }
+
+                continue;
+            }
+
             for (String server : serversToTry) {
                 if (isClosed()) {
                     break;
@@ -220,7 +372,9 @@ class NatsConnection implements Connection {
 
                 updateStatus(Status.RECONNECTING);
 
+                Object connectEvent = NatsEvents.beginReconnectPhase();
                 tryToConnect(server);
+                NatsEvents.endReconnectPhase(connectEvent, "connect", server, isConnected());
                 lastServer = server;
                 tries++;
 
@@ -238,27 +392,43 @@ class NatsConnection implements Connection {
         }
 
         if (!isConnected()) {
+            NatsEvents.endReconnectPhase(reconnectEvent, "reconnect", null, false);
             this.close();
             return;
         }
 
+        // Encode all of the SUB lines into a few large messages, rather than one message per subscription
+        long resubscribeStart = System.nanoTime();
+        Object resubscribeEvent = NatsEvents.beginReconnectPhase();
+        NatsSubscribeBatch batch = new NatsSubscribeBatch(this.options.getBufferSize() - 2,
+                this.options.supportUTF8Subjects());
+
         this.subscribers.forEach((sid, sub) -> {
             if (sub.getDispatcher() == null && !sub.isDraining()) {
-                sendSubscriptionMessage(sub.getSID(), sub.getSubject(), sub.getQueueName(), true);
+                batch.add(sub.getSID(), sub.getSubject(), sub.getQueueName());
             }
         });
 
         this.dispatchers.forEach((nuid, d) -> {
             if (!d.isDraining()) {
-                d.resendSubscriptions();
+                d.resendSubscriptions(batch);
             }
         });
 
+        // The lines were checked against the max control line when the subscriptions were made
+        for (NatsMessage subs : batch.finish()) {
+            this.writer.queueInternalMessage(subs);
+        }
+
         try {
             this.flush(this.options.getConnectionTimeout());
         } catch (Exception exp) {
             this.processException(exp);
         }
+
+        this.statistics.registerResubscribe(batch.getCount(), System.nanoTime() - resubscribeStart);
+        NatsEvents.endReconnectPhase(resubscribeEvent, "resubscribe", getConnectedUrl(), true);
+        NatsEvents.endReconnectPhase(reconnectEvent, "reconnect", getConnectedUrl(), true);
         
         // When the flush returns we are done sending internal messages, so we can switch to the
         // non-reconnect queue
@@ -267,14 +437,70 @@ class NatsConnection implements Connection {
         processConnectionEvent(Events.RESUBSCRIBED);
     }
 
+    // Races groups of servers from the list and connects to the first to answer in each group, until connected.
+    // Returns the number of tries so far.
+    long probeServers(List<String> servers, int probes, long tries, long maxTries) throws InterruptedException {
+        int index = 0;
+
+        while (index < servers.size() && !isConnected()) {
+            if (isDisconnectingOrClosed() || this.isClosing()) {
+                break;
+            }
+
+            int count = Math.min(probes, servers.size() - index);
+
+            if (maxTries > 0) {
+                count = (int) Math.min(count, maxTries - tries);
+            }
+
+            List<String> group = servers.subList(index, index + count);
+            index += count;
+            tries += count;
+
+            updateStatus(Status.RECONNECTING);
+
+            Object connectEvent = NatsEvents.beginReconnectPhase();
+            NatsServerProbe probe = NatsServerProbe.race(this, group);
+
+            if (probe != null) {
+                if (isDisconnectingOrClosed() || this.isClosing()) {
+                    NatsServerProbe.closeQuietly(probe.getDataPort());
+                    break;
+                }
+
+                tryToConnect(probe.getServer(), probe);
+                NatsEvents.endReconnectPhase(connectEvent, "connect", probe.getServer(), isConnected());
+
+                if (isConnected()) {
+                    this.statistics.incrementReconnects();
+                    break;
+                }
+            }
+
+            if (maxTries > 0 && tries >= maxTries) {
+                break;
+            }
+        }
+
+        return tries;
+    }
+
     // is called from reconnect and connect
     // will wait for any previous attempt to complete, using the reader.stop and
     // writer.stop
     void tryToConnect(String serverURI) {
+        tryToConnect(serverURI, null);
+    }
+
+    // With a probe the socket is already open and the INFO has been read, so the connect picks up from there
+    void tryToConnect(String serverURI, NatsServerProbe probe) {
         try {
             statusLock.lock();
             try {
                 if (this.connecting) {
+                    if (probe != null) {
+                        NatsServerProbe.closeQuietly(probe.getDataPort());
+                    }
                     return;
                 }
                 this.connecting = true;
@@ -295,8 +521,14 @@ class NatsConnection implements Connection {
 
             cleanUpPongQueue();
 
-            DataPort newDataPort = this.options.buildDataPort();
-            newDataPort.connect(serverURI, this);
+            DataPort newDataPort;
+
+            if (probe != null) {
+                newDataPort = probe.getDataPort();
+            } else {
+                newDataPort = this.options.buildDataPort();
+                newDataPort.connect(serverURI, this);
+            }
 
             // Notify the any threads waiting on the sockets
             this.dataPort = newDataPort;
@@ -304,7 +536,11 @@ class NatsConnection implements Connection {
 
             // Wait for the INFO message manually
             // all other traffic will use the reader and writer
-            readInitialInfo();
+            if (probe != null) {
+                handleInfo(probe.getInfoJson());
+            } else {
+                readInitialInfo();
+            }
             checkVersionRequirements();
             upgradeToSecureIfNeeded();
 
@@ -313,35 +549,52 @@ class NatsConnection implements Connection {
             this.writer.start(this.dataPortFuture);
 
             this.sendConnect(serverURI);
+            long pingStart = System.nanoTime();
             Future<Boolean> pongFuture = sendPing();
 
             if (pongFuture != null) {
                 pongFuture.get(connectTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                this.serverLatency.record(serverURI, System.nanoTime() - pingStart);
             }
 
-            if (this.timer == null) {
-                this.timer = new Timer("Nats Connection Timer");
+            if (!this.timersStarted) {
+                this.timersStarted = true;
 
                 long pingMillis = this.options.getPingInterval().toMillis();
 
                 if (pingMillis > 0) {
-                    this.timer.schedule(new TimerTask() {
-                        public void run() {
+                    this.pingTimer = this.scheduler.scheduleAtFixedRate(() -> {
+                        try {
                             if (isConnected()) {
-                                softPing(); // The timer always uses the standard queue
+                                String server = this.currentServerURI;
+                                long start = System.nanoTime();
+                                CompletableFuture<Boolean> pong = softPing(); // The timer always uses the standard queue
+
+                                if (pong != null) {
+                                    pong.thenAccept((ok) -> {
+                                        if (ok) {
+                                            this.serverLatency.record(server, System.nanoTime() - start);
+                                        }
+                                    });
+                                }
                             }
+                        } catch (RuntimeException exp) {
+                            // a full reconnect buffer, keep the timer going so we ping after reconnect
                         }
-                    }, pingMillis, pingMillis);
+                    }, pingMillis, pingMillis, TimeUnit.MILLISECONDS);
                 }
 
                 long cleanMillis = this.options.getRequestCleanupInterval().toMillis();
 
                 if (cleanMillis > 0) {
-                    this.timer.schedule(new TimerTask() {
-                        public void run() {
-                            cleanResponses(false);
-                        }
-                    }, cleanMillis, cleanMillis);
+                    this.cleanupTimer = this.scheduler.scheduleAtFixedRate(() -> cleanResponses(false),
+                            cleanMillis, cleanMillis, TimeUnit.MILLISECONDS);
+                }
+
+                if (this.options.getMetricsReporter() != null) {
+                    long metricsNanos = this.options.getMetricsInterval().toNanos();
+                    this.metricsTimer = this.scheduler.scheduleAtFixedRate(this::reportMetrics,
+                            metricsNanos, metricsNanos, TimeUnit.NANOSECONDS);
                 }
             }
 
@@ -363,6 +616,7 @@ class NatsConnection implements Connection {
             processException(exp);
             throw exp;
         } catch (Exception exp) { // every thing else
+            this.serverLatency.recordFailure(serverURI);
             processException(exp);
             try {
                 this.closeSocket(false);
@@ -418,12 +672,13 @@ class NatsConnection implements Connection {
         }
 
         processException(io);
+        this.serverLatency.recordFailure(this.currentServerURI);
 
         // Spawn a thread so we don't have timing issues with
         // waiting on read/write threads
         String name = (this.getOptions().getConnectionName() != null) ? this.getOptions().getConnectionName()
                 : "Nats Connection";
-        Thread t = new Thread(() -> {
+        Thread t = createThread(() -> {
             try {
                 this.closeSocket(true);
             } catch (InterruptedException e) {
@@ -507,6 +762,12 @@ class NatsConnection implements Connection {
 
         closeSocketImpl();
 
+        try {
+            this.writer.closeBuffers();
+        } catch (IOException ex) {
+            processException(ex);
+        }
+
         this.dispatchers.forEach((nuid, d) -> {
             d.stop(false);
         });
@@ -518,13 +779,44 @@ class NatsConnection implements Connection {
         this.dispatchers.clear();
         this.subscribers.clear();
 
-        if (timer != null) {
-            timer.cancel();
-            timer = null;
+        if (this.mbeans != null) {
+            this.mbeans.unregisterAll();
+        }
+
+        // Don't wait on the pool, we may be running on one of its threads
+        if (this.dispatcherPool != null) {
+            this.dispatcherPool.shutdown();
+        }
+
+        // The scheduler is shared, so only cancel our own tasks
+        if (this.pingTimer != null) {
+            this.pingTimer.cancel(false);
+            this.pingTimer = null;
         }
 
+        if (this.cleanupTimer != null) {
+            this.cleanupTimer.cancel(false);
+            this.cleanupTimer = null;
+        }
+
+        if (this.metricsTimer != null) {
+            this.metricsTimer.cancel(false);
+            this.metricsTimer = null;
+        }
+
+        this.requestTimeouts.stop();
+
+        // Nothing will drain now, let anyone waiting on a drain know
+        this.drainWaits.forEach((wait) -> {
+            wait.complete(Boolean.FALSE);
+        });
+
         cleanResponses(true);
 
+        if (this.requestCache != null) {
+            this.requestCache.clear();
+        }
+
         cleanUpPongQueue();
 
         statusLock.lock();
@@ -630,12 +922,15 @@ class NatsConnection implements Connection {
 
         NatsMessage msg = new NatsMessage(subject, replyTo, body, options.supportUTF8Subjects());
 
-        if ((this.status == Status.RECONNECTING || this.status == Status.DISCONNECTED)
-                && !this.writer.canQueue(msg, options.getReconnectBufferSize())) {
-            throw new IllegalStateException(
-                    "Unable to queue any more messages during reconnect, max buffer is " + getMaxPayload());
+        if (msg.getControlLineLength() > this.options.getMaxControlLine()) {
+            throw new IllegalArgumentException("Control line is too long");
+        }
+
+        boolean disconnected = (this.status == Status.RECONNECTING || this.status == Status.DISCONNECTED);
+
+        if (!this.writer.buffer(msg, disconnected)) {
+            this.writer.queue(msg);
         }
-        queueOutgoing(msg);
     }
 
     public Subscription subscribe(String subject) {
@@ -665,6 +960,8 @@ class NatsConnection implements Connection {
 
         if (sub.getNatsDispatcher() != null) {
             sub.getNatsDispatcher().remove(sub);
+        } else if (this.mbeans != null) {
+            this.mbeans.unregister(sub);
         }
 
         sub.invalidate();
@@ -709,6 +1006,11 @@ class NatsConnection implements Connection {
 
     // Assumes the null/empty checks were handled elsewhere
     NatsSubscription createSubscription(String subject, String queueName, NatsDispatcher dispatcher) {
+        return createSubscription(subject, queueName, dispatcher, null);
+    }
+
+    // The handler is set before the SUB is sent, so it is in place for the first message
+    NatsSubscription createSubscription(String subject, String queueName, NatsDispatcher dispatcher, MessageHandler handler) {
         if (isClosed()) {
             throw new IllegalStateException("Connection is Closed");
         } else if (isDraining() && (dispatcher == null || dispatcher != this.inboxDispatcher.get())) {
@@ -719,9 +1021,13 @@ class NatsConnection implements Connection {
         long sidL = nextSid.getAndIncrement();
         String sid = String.valueOf(sidL);
 
-        sub = new NatsSubscription(sid, subject, queueName, this, dispatcher);
+        sub = new NatsSubscription(sid, subject, queueName, this, dispatcher, handler);
         subscribers.put(sid, sub);
 
+        if (dispatcher == null && this.mbeans != null) {
+            this.mbeans.registerSubscription(sub);
+        }
+
         sendSubscriptionMessage(sid, subject, queueName, false);
         return sub;
     }
@@ -782,29 +1088,101 @@ class NatsConnection implements Connection {
         return responseInbox.substring(len);
     }
 
+    // Reads a counter token from the end of a response inbox without creating a substring,
+    // returns -1 if the subject doesn't end with one
+    long getCounterResponseToken(String responseInbox) {
+        int len = this.responsePrefix.length();
+        int end = responseInbox.length();
+
+        if (end <= len || end - len > 18) { // 18 digits can't overflow a long
+            return -1;
+        }
+
+        long token = 0;
+        for (int i = len; i < end; i++) {
+            char c = responseInbox.charAt(i);
+
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+
+            token = token * 10 + (c - '0');
+        }
+
+        return token;
+    }
+
+    // Requests with a timeout are removed by the timing wheel, this cleans up futures
+    // the application cancelled or completed itself
     void cleanResponses(boolean cancelIfRunning) {
-        ArrayList<String> toRemove = new ArrayList<>();
+        if (cancelIfRunning) {
+            // finished gatherers remove themselves, see requestMany
+            gatherers.values().forEach((g) -> g.getFuture().cancel(true));
+        }
+
+        counterResponses.removeIf((f) -> f.isDone() || cancelIfRunning, (f) -> {
+            try {
+                f.cancel(true); // does nothing if already done
+            } catch (CancellationException e) {
+                // Expected
+            }
+            statistics.decrementOutstandingRequests();
+        });
+
+        for (Iterator<Map.Entry<String, NatsRequestFuture>> i = responses.entrySet().iterator(); i.hasNext();) {
+            NatsRequestFuture f = i.next().getValue();
 
-        responses.forEach((token, f) -> {
             if (f.isDone() || cancelIfRunning) {
                 try {
                     f.cancel(true); // does nothing if already done
                 } catch (CancellationException e) {
                     // Expected
                 }
-                toRemove.add(token);
+                i.remove();
                 statistics.decrementOutstandingRequests();
             }
-        });
+        }
+    }
+
+    // Just for testing, the number of request timeouts waiting on the wheel
+    long getRequestTimeoutCount() {
+        return this.requestTimeouts.getPendingCount();
+    }
+
+    // Just for testing, the number of requests waiting on a reply
+    long getOutstandingResponseCount() {
+        return this.responses.size() + this.counterResponses.size();
+    }
+
+    // Returns true if the future was still waiting on a reply
+    boolean removeRequest(NatsRequestFuture future) {
+        boolean removed = future.hasCounterToken() ? counterResponses.remove(future.getCounterToken(), future)
+                : responses.remove(future.getToken(), future);
+
+        if (removed) {
+            statistics.decrementOutstandingRequests();
+        }
+
+        return removed;
+    }
+
+    // Called on the timing wheel when a request with a timeout expires
+    void timeoutRequest(NatsRequestFuture future) {
+        if (removeRequest(future)) {
+            future.completeExceptionally(new TimeoutException("Request timed out"));
+        }
+    }
 
-        for (String token : toRemove) {
-            responses.remove(token);
+    // Cancels a request and removes it right away, rather than waiting for the cleanup timer
+    void cancelRequest(NatsRequestFuture future) {
+        if (removeRequest(future)) {
+            future.cancel(true);
         }
     }
 
     public Message request(String subject, byte[] body, Duration timeout) throws InterruptedException {
         Message reply = null;
-        Future<Message> incoming = this.request(subject, body);
+        Future<Message> incoming = this.requestWithTimeout(subject, body, timeout);
         try {
             reply = incoming.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
         } catch (ExecutionException | TimeoutException e) {
@@ -815,9 +1193,183 @@ class NatsConnection implements Connection {
     }
 
     public CompletableFuture<Message> request(String subject, byte[] body) {
+        return this.requestImpl(subject, body, null);
+    }
+
+    public CompletableFuture<Message> requestWithTimeout(String subject, byte[] body, Duration timeout) {
+        if (timeout == null) {
+            throw new IllegalArgumentException("Timeout is required in requestWithTimeout");
+        }
+
+        return this.requestImpl(subject, body, timeout);
+    }
+
+    // A null timeout leaves the future to the application and the cleanup timer
+    CompletableFuture<Message> requestImpl(String subject, byte[] body, Duration timeout) {
+        byte[] checked = checkRequest(subject, body);
+
+        if (this.requestCache != null && this.requestCache.isCached(subject)) {
+            return this.requestCache.request(subject, checked, timeout, (t) -> sendRequest(subject, checked, t));
+        }
+
+        return sendRequest(subject, checked, timeout);
+    }
+
+    NatsRequestFuture sendRequest(String subject, byte[] body, Duration timeout) {
         String responseInbox = null;
         boolean oldStyle = options.isOldRequestStyle();
 
+        startInboxDispatcher();
+
+        NatsRequestFuture future;
+
+        if (this.useCounterTokens) {
+            long responseToken = this.nextResponseToken.getAndIncrement();
+            responseInbox = this.responsePrefix + responseToken;
+            future = new NatsRequestFuture(responseToken);
+            counterResponses.put(responseToken, future);
+        } else {
+            if (oldStyle) {
+                responseInbox = createInbox();
+            } else {
+                responseInbox = createResponseInbox(this.mainInbox);
+            }
+
+            future = new NatsRequestFuture(getResponseToken(responseInbox));
+            responses.put(future.getToken(), future);
+        }
+
+        statistics.incrementOutstandingRequests();
+
+        if (timeout != null) {
+            NatsTimingWheel.Timeout expiry = requestTimeouts.schedule(() -> timeoutRequest(future), timeout);
+
+            if (expiry != null) {
+                future.whenComplete((msg, exp) -> expiry.cancel()); // release the wheel's reference to the future
+            }
+        }
+
+        if (oldStyle) {
+            this.inboxDispatcher.get().subscribe(responseInbox).unsubscribe(responseInbox, 1);
+        }
+
+        this.publish(subject, responseInbox, body);
+        statistics.incrementRequestsSent();
+
+        return future;
+    }
+
+    public CompletableFuture<Message> requestHedged(String subject, byte[] body, Duration hedgeDelay, Duration timeout) {
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("A positive timeout is required in requestHedged");
+        }
+
+        if (hedgeDelay != null && hedgeDelay.isNegative()) {
+            throw new IllegalArgumentException("Hedge delay cannot be negative");
+        }
+
+        byte[] checked = checkRequest(subject, body);
+        Duration delay = (hedgeDelay != null) ? hedgeDelay : getHedgeDelay();
+
+        statistics.incrementHedgedRequests();
+        return new NatsHedgedRequest(this, this.requestTimeouts, subject, checked, timeout).start(delay);
+    }
+
+    // The observed delay, worked out again every HEDGE_REFRESH_REQUESTS calls or HEDGE_REFRESH_INTERVAL.
+    // Two threads may both refresh it, which is harmless.
+    Duration getHedgeDelay() {
+        long now = System.nanoTime();
+
+        if (this.hedgesSinceRefresh.incrementAndGet() >= HEDGE_REFRESH_REQUESTS
+                || now - this.hedgeDelayRefreshed >= HEDGE_REFRESH_INTERVAL.toNanos()) {
+            this.hedgesSinceRefresh.set(0);
+            this.hedgeDelayRefreshed = now;
+            this.hedgeDelay = getObservedHedgeDelay();
+        }
+
+        return this.hedgeDelay;
+    }
+
+    // Returns null until there are enough replies to estimate the percentile
+    Duration getObservedHedgeDelay() {
+        Histogram latency = statistics.getRequestLatency();
+
+        if (latency.getCount() < HEDGE_MIN_SAMPLES) {
+            return null;
+        }
+
+        return Duration.ofNanos(latency.getPercentile(HEDGE_PERCENTILE));
+    }
+
+    public CompletableFuture<List<Message>> requestMany(String subject, byte[] body, int maxReplies, Duration timeout) {
+        return this.requestMany(subject, body, maxReplies, timeout, null);
+    }
+
+    public CompletableFuture<List<Message>> requestMany(String subject, byte[] body, int maxReplies, Duration timeout,
+            MessageHandler handler) {
+        if (maxReplies < 1) {
+            throw new IllegalArgumentException("At least one reply is required in requestMany");
+        }
+
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            throw new IllegalArgumentException("A positive timeout is required in requestMany");
+        }
+
+        body = checkRequest(subject, body);
+        startInboxDispatcher();
+
+        // Gatherers always use a NUID token, so they never collide with counter tokens
+        String responseInbox = createResponseInbox(this.mainInbox);
+        NatsReplyGatherer gatherer = new NatsReplyGatherer(getResponseToken(responseInbox), maxReplies, handler);
+
+        gatherers.put(gatherer.getToken(), gatherer);
+        statistics.incrementOutstandingRequests();
+
+        NatsTimingWheel.Timeout expiry = requestTimeouts.schedule(() -> finishGather(gatherer), timeout);
+
+        // Runs when the gatherer finishes, or if the application cancels the future
+        gatherer.getFuture().whenComplete((replies, exp) -> {
+            if (expiry != null) {
+                expiry.cancel();
+            }
+            finishGather(gatherer);
+        });
+
+        this.publish(subject, responseInbox, body);
+        statistics.incrementRequestsSent();
+
+        return gatherer.getFuture();
+    }
+
+    void finishGather(NatsReplyGatherer gatherer) {
+        if (gatherers.remove(gatherer.getToken(), gatherer)) {
+            statistics.decrementOutstandingRequests();
+            gatherer.finish();
+        }
+    }
+
+    void gatherReply(NatsReplyGatherer gatherer, Message msg) {
+        if (!gatherer.add(msg)) {
+            return;
+        }
+
+        statistics.incrementRepliesReceived();
+
+        if (gatherer.getHandler() != null) {
+            try {
+                gatherer.getHandler().onMessage(msg);
+            } catch (Exception exp) {
+                processException(exp);
+            }
+        }
+
+        if (gatherer.isFull()) {
+            finishGather(gatherer);
+        }
+    }
+
+    // Returns the body to send, after checking the connection and request are valid
+    byte[] checkRequest(String subject, byte[] body) {
         if (isClosed()) {
             throw new IllegalStateException("Connection is Closed");
         } else if (isDraining()) {
@@ -835,6 +1387,10 @@ class NatsConnection implements Connection {
                     "Message payload size exceed server configuration " + body.length + " vs " + this.getMaxPayload());
         }
 
+        return body;
+    }
+
+    void startInboxDispatcher() {
         if (inboxDispatcher.get() == null) {
             NatsDispatcher d = new NatsDispatcher(this, (msg) -> {
                 deliverReply(msg);
@@ -847,54 +1403,85 @@ class NatsConnection implements Connection {
                 d.subscribe(this.mainInbox);
             }
         }
+    }
 
-        if (oldStyle) {
-            responseInbox = createInbox();
+    void deliverReply(Message msg) {
+        String subject = msg.getSubject();
+        NatsRequestFuture f = null;
+
+        if (this.useCounterTokens) {
+            long token = getCounterResponseToken(subject);
+            f = (token >= 0) ? counterResponses.remove(token) : null;
         } else {
-            responseInbox = createResponseInbox(this.mainInbox);
+            f = responses.remove(getResponseToken(subject));
         }
 
-        String responseToken = getResponseToken(responseInbox);
-        CompletableFuture<Message> future = new CompletableFuture<>();
-
-        responses.put(responseToken, future);
-        statistics.incrementOutstandingRequests();
+        if (f == null && !gatherers.isEmpty()) {
+            NatsReplyGatherer gatherer = gatherers.get(getResponseToken(subject));
 
-        if (oldStyle) {
-            this.inboxDispatcher.get().subscribe(responseInbox).unsubscribe(responseInbox, 1);
+            if (gatherer != null) {
+                gatherReply(gatherer, msg);
+                return;
+            }
         }
 
-        this.publish(subject, responseInbox, body);
-        statistics.incrementRequestsSent();
-
-        return future;
-    }
-
-    void deliverReply(Message msg) {
-        String subject = msg.getSubject();
-        String token = getResponseToken(subject);
-        CompletableFuture<Message> f = null;
-
-        f = responses.remove(token);
-
         if (f != null) {
             statistics.decrementOutstandingRequests();
+            statistics.recordRequestLatency(System.nanoTime() - f.getStartNanos());
             f.complete(msg);
             statistics.incrementRepliesReceived();
         }
     }
 
     public Dispatcher createDispatcher(MessageHandler handler) {
+        return this.createDispatcher(handler, 1, null);
+    }
+
+    public Dispatcher createDispatcher(MessageHandler handler, int lanes) {
+        return this.createDispatcher(handler, lanes, null);
+    }
+
+    public Dispatcher createDispatcher(MessageHandler handler, int lanes, Function<? super Message, ?> keyExtractor) {
         if (isClosed()) {
             throw new IllegalStateException("Connection is Closed");
         } else if (isDraining()) {
             throw new IllegalStateException("Connection is Draining");
         }
 
-        NatsDispatcher dispatcher = new NatsDispatcher(this, handler);
+        if (lanes < 1) {
+            throw new IllegalArgumentException("A dispatcher requires at least one lane");
+        }
+
+        return startDispatcher(new NatsDispatcher(this, handler, lanes, keyExtractor));
+    }
+
+    public Dispatcher createDispatcher(BatchMessageHandler handler, int maxBatch, Duration maxWait) {
+        if (isClosed()) {
+            throw new IllegalStateException("Connection is Closed");
+        } else if (isDraining()) {
+            throw new IllegalStateException("Connection is Draining");
+        }
+
+        if (handler == null) {
+            throw new IllegalArgumentException("A batch dispatcher requires a handler");
+        }
+
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("A batch dispatcher requires a max batch of at least one");
+        }
+
+        return startDispatcher(new NatsDispatcher(this, handler, maxBatch, maxWait));
+    }
+
+    private Dispatcher startDispatcher(NatsDispatcher dispatcher) {
         String id = this.nuid.next();
         this.dispatchers.put(id, dispatcher);
         dispatcher.start(id);
+
+        if (this.mbeans != null) {
+            this.mbeans.registerDispatcher(dispatcher);
+        }
+
         return dispatcher;
     }
 
@@ -921,6 +1508,10 @@ class NatsConnection implements Connection {
     void cleanupDispatcher(NatsDispatcher nd) {
         nd.stop(true);
         this.dispatchers.remove(nd.getId());
+
+        if (this.mbeans != null) {
+            this.mbeans.unregister(nd);
+        }
     }
 
     public void flush(Duration timeout) throws TimeoutException, InterruptedException {
@@ -944,27 +1535,37 @@ class NatsConnection implements Connection {
         }
 
         try {
-            Future<Boolean> waitForIt = sendPing();
+            boolean replayed;
+            long pingStart = System.nanoTime();
 
-            if (waitForIt == null) { // error in the sendping code
-                return;
-            }
+            do {
+                // Buffered publishes are written after the outgoing queue, so the ping only covers
+                // them if they were all written before it was queued
+                replayed = this.writer.isReconnectMode() || !this.writer.hasBufferedMessages();
 
-            long nanos = timeout.toNanos();
+                Future<Boolean> waitForIt = sendPing();
 
-            if (nanos > 0) {
+                if (waitForIt == null) { // error in the sendping code
+                    return;
+                }
 
-                nanos -= waitTime.toNanos();
+                long nanos = timeout.toNanos();
 
-                if (nanos <= 0) {
-                    nanos = 1; // let the future timeout if it isn't resolved
-                }
+                if (nanos > 0) {
 
-                waitForIt.get(nanos, TimeUnit.NANOSECONDS);
-            } else {
-                waitForIt.get();
-            }
+                    nanos -= Duration.between(start, Instant.now()).toNanos();
 
+                    if (nanos <= 0) {
+                        nanos = 1; // let the future timeout if it isn't resolved
+                    }
+
+                    waitForIt.get(nanos, TimeUnit.NANOSECONDS);
+                } else {
+                    waitForIt.get();
+                }
+            } while (!replayed);
+
+            this.statistics.recordFlushLatency(System.nanoTime() - pingStart);
             this.statistics.incrementFlushCounter();
         } catch (ExecutionException | CancellationException e) {
             throw new TimeoutException(e.getMessage());
@@ -1016,6 +1617,16 @@ class NatsConnection implements Connection {
 
         CompletableFuture<Boolean> pongFuture = new CompletableFuture<>();
         NatsMessage msg = new NatsMessage(NatsConnection.OP_PING);
+        Object pingEvent = NatsEvents.beginPing();
+        long pingStart = System.nanoTime();
+
+        pongFuture.thenAccept((pong) -> {
+            if (pong) {
+                this.statistics.registerRtt(System.nanoTime() - pingStart);
+                NatsEvents.endPing(pingEvent);
+            }
+        });
+
         pongQueue.add(pongFuture);
 
         if (treatAsInternal) {
@@ -1042,6 +1653,11 @@ class NatsConnection implements Connection {
     }
 
     void readInitialInfo() throws IOException {
+        handleInfo(readInitialInfo(this.dataPort));
+    }
+
+    // Reads the INFO line the server sends when the socket opens, and returns the INFO protocol message
+    String readInitialInfo(DataPort port) throws IOException {
         byte[] readBuffer = new byte[options.getBufferSize()];
         ByteBuffer protocolBuffer = ByteBuffer.allocate(options.getBufferSize());
         boolean gotCRLF = false;
@@ -1049,7 +1665,7 @@ class NatsConnection implements Connection {
         int read = 0;
 
         while (!gotCRLF) {
-            read = this.dataPort.read(readBuffer, 0, readBuffer.length);
+            read = port.read(readBuffer, 0, readBuffer.length);
 
             if (read < 0) {
                 break;
@@ -1100,7 +1716,7 @@ class NatsConnection implements Connection {
             throw new IOException("Received non-info initial message.");
         }
 
-        handleInfo(infoJson);
+        return infoJson;
     }
 
     void handleInfo(String infoJson) {
@@ -1127,9 +1743,15 @@ class NatsConnection implements Connection {
         this.writer.queueInternalMessage(msg);
     }
 
+    // The shared executor for pooled dispatchers, or null if each dispatcher lane has its own thread
+    ExecutorService getDispatcherPool() {
+        return this.dispatcherPool;
+    }
+
     void deliverMessage(NatsMessage msg) {
         this.statistics.incrementInMsgs();
         this.statistics.incrementInBytes(msg.getSizeInBytes());
+        this.statistics.registerInboundSubject(msg.getSubject(), msg.getSizeInBytes());
 
         NatsSubscription sub = subscribers.get(msg.getSID());
 
@@ -1138,18 +1760,26 @@ class NatsConnection implements Connection {
 
             NatsDispatcher d = sub.getNatsDispatcher();
             NatsConsumer c = (d == null) ? sub : d;
-            MessageQueue q = ((d == null) ? sub.getMessageQueue() : d.getMessageQueue());
+            MessageQueue q = ((d == null) ? sub.getMessageQueue() : null);
+
+            if (c.timed) {
+                msg.setEnqueueNanos(System.nanoTime());
+            }
 
             if (c.hasReachedPendingLimits()) {
                 // Drop the message and count it
                 this.statistics.incrementDroppedCount();
                 c.incrementDroppedCount();
+                NatsEvents.slowConsumerDrop(msg.getSubject(), c.getPendingMessageCount(), c.getPendingByteCount());
 
                 // Notify the first time
                 if (!c.isMarkedSlow()) {
                     c.markSlow();
                     processSlowConsumer(c);
                 }
+            } else if (d != null) {
+                c.markNotSlow();
+                d.push(msg);
             } else if (q != null) {
                 c.markNotSlow();
                 q.push(msg);
@@ -1161,6 +1791,28 @@ class NatsConnection implements Connection {
         }
     }
 
+    // Takes the snapshot on the scheduler, the reporter may be slow so it is called on the callback thread
+    void reportMetrics() {
+        MetricsReporter reporter = this.options.getMetricsReporter();
+        NatsMetricsSnapshot snapshot = new NatsMetricsSnapshot(this.options.getConnectionName(), this.statistics,
+                this.lastSnapshot, this.createdNanos);
+        this.lastSnapshot = snapshot;
+
+        if (reporter != null && !this.callbackRunner.isShutdown()) {
+            try {
+                this.callbackRunner.execute(() -> {
+                    try {
+                        reporter.report(snapshot);
+                    } catch (Exception ex) {
+                        this.statistics.incrementExceptionCount();
+                    }
+                });
+            } catch (RejectedExecutionException re) {
+                // Timing with shutdown, let it go
+            }
+        }
+    }
+
     void processOK() {
         this.statistics.incrementOkCount();
     }
@@ -1251,6 +1903,11 @@ class NatsConnection implements Connection {
         return this.options;
     }
 
+    // The file publishes are spooled to, or null if there is no spool
+    Path getReconnectSpoolFile() {
+        return this.reconnectSpoolFile;
+    }
+
     public Statistics getStatistics() {
         return this.statistics;
     }
@@ -1315,6 +1972,14 @@ class NatsConnection implements Connection {
         return this.lastError.get();
     }
 
+    public Map<String, Duration> getServerLatencies() {
+        return this.serverLatency.getLatencies();
+    }
+
+    NatsServerLatency getServerLatency() {
+        return this.serverLatency;
+    }
+
     void updateStatus(Status newStatus) {
         Status oldStatus = this.status;
 
@@ -1415,23 +2080,88 @@ class NatsConnection implements Connection {
         }
     }
 
+    // The scheduler ends the wait, close ends it early by cancelling the waiter
     void waitForReconnectTimeout() {
         Duration waitTime = options.getReconnectWait();
-        long currentWaitNanos = (waitTime != null) ? waitTime.toNanos() : -1;
-        long start = System.nanoTime();
+        long waitNanos = (waitTime != null) ? waitTime.toNanos() : -1;
+        CompletableFuture<Boolean> waiter = this.reconnectWaiter;
+
+        if (waitNanos > 0) {
+            ScheduledFuture<?> wake = null;
 
-        while (currentWaitNanos > 0 && !isDisconnectingOrClosed() && !isConnected() && !this.reconnectWaiter.isDone()) {
             try {
-                this.reconnectWaiter.get(currentWaitNanos, TimeUnit.NANOSECONDS);
-            } catch (Exception exp) {
-                // ignore, try to loop again
+                wake = this.scheduler.schedule(() -> waiter.complete(Boolean.TRUE), waitNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException exp) {
+                // The application shut its scheduler down, wait on this thread instead
+                try {
+                    waiter.get(waitNanos, TimeUnit.NANOSECONDS);
+                } catch (Exception e) {
+                    // ignore, done waiting
+                }
+                waiter.complete(Boolean.TRUE);
+            }
+
+            while (!isDisconnectingOrClosed() && !isConnected() && !waiter.isDone()) {
+                try {
+                    waiter.get();
+                } catch (Exception exp) {
+                    // ignore, try to loop again
+                }
+            }
+
+            if (wake != null) {
+                wake.cancel(false);
             }
-            long now = System.nanoTime();
-            currentWaitNanos = currentWaitNanos - (now - start);
-            start = now;
         }
 
-        this.reconnectWaiter.complete(Boolean.TRUE);
+        waiter.complete(Boolean.TRUE);
+    }
+
+    // Completes with true as soon as every consumer has signalled that it drained, or with false when the timeout
+    // since start passes or the connection closes. A null or zero timeout waits for the consumers or the close.
+    CompletableFuture<Boolean> whenDrained(Collection<? extends NatsConsumer> consumers, Instant start, Duration timeout) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        // The extra count holds the result open until every consumer has been counted. The last signal comes from
+        // whichever thread handled the last message, so the result is completed on the scheduler instead.
+        AtomicInteger remaining = new AtomicInteger(consumers.size() + 1);
+        Runnable countDown = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                try {
+                    this.scheduler.execute(() -> result.complete(Boolean.TRUE));
+                } catch (RejectedExecutionException exp) {
+                    result.complete(Boolean.TRUE);
+                }
+            }
+        };
+
+        this.drainWaits.add(result);
+        result.whenComplete((drained, exp) -> this.drainWaits.remove(result));
+
+        if (isClosed()) {
+            result.complete(Boolean.FALSE);
+            return result;
+        }
+
+        if (timeout != null && !timeout.equals(Duration.ZERO)) {
+            long waitNanos = Math.max(0, timeout.minus(Duration.between(start, Instant.now())).toNanos());
+
+            try {
+                ScheduledFuture<?> timer = this.scheduler.schedule(() -> {
+                    result.complete(Boolean.FALSE);
+                }, waitNanos, TimeUnit.NANOSECONDS);
+                result.whenComplete((drained, exp) -> timer.cancel(false));
+            } catch (RejectedExecutionException exp) {
+                result.complete(Boolean.FALSE); // the scheduler is gone, so is the timeout
+            }
+        }
+
+        for (NatsConsumer cons : consumers) {
+            cons.whenDrained().thenRun(countDown);
+        }
+
+        countDown.run();
+        return result;
     }
 
     Collection<String> buildReconnectList() {
@@ -1439,6 +2169,14 @@ class NatsConnection implements Connection {
 
         reconnectList.addAll(getServers());
 
+        if (options.isPreferLowLatency()) {
+            // Shuffling first spreads the servers that haven't been measured yet
+            if (!options.isNoRandomize()) {
+                Collections.shuffle(reconnectList);
+            }
+            return this.serverLatency.order(reconnectList);
+        }
+
         if (options.isNoRandomize()) {
             return reconnectList;
         }
@@ -1462,6 +2200,25 @@ class NatsConnection implements Connection {
         return this.reader;
     }
 
+    // For testing
+    NatsConnectionWriter getWriter() {
+        return this.writer;
+    }
+
+    // For testing
+    NatsMBeans getMBeans() {
+        return this.mbeans;
+    }
+
+    int getDispatcherCount() {
+        NatsDispatcher inbox = this.inboxDispatcher.get();
+        return this.dispatchers.size() - ((inbox != null && this.dispatchers.containsValue(inbox)) ? 1 : 0);
+    }
+
+    int getSubscriptionCount() {
+        return this.subscribers.size();
+    }
+
     boolean isDraining() {
         return this.draining.get() != null;
     }
@@ -1528,62 +2285,42 @@ class NatsConnection implements Connection {
             cons.markUnsubedForDrain();
         });
 
-        // Wait for the timeout or the pending count to go to 0
-        Thread t = new Thread(() -> {
-
-            try {
-                Instant now = Instant.now();
-
-                while (timeout == null || timeout.equals(Duration.ZERO)
-                        || Duration.between(start, now).compareTo(timeout) < 0) {
-                    for (Iterator<NatsConsumer> i = consumers.iterator(); i.hasNext();) {
-                        NatsConsumer cons = i.next();
-                        if (cons.isDrained()) {
-                            i.remove();
-                        }
-                    }
-                    
-                    if (consumers.size() == 0) {
-                        break;
-                    }
-
-                    Thread.sleep(1); // Sleep 1 milli
-
-                    now = Instant.now();
-                }
-
-                // Stop publishing
-                this.blockPublishForDrain.set(true);
+        // Each consumer signals when its last message is handled, finish on a thread since flush blocks
+        whenDrained(consumers, start, timeout).whenComplete((drained, exp) -> {
+            Thread t = createThread(() -> {
+                try {
+                    // Stop publishing
+                    this.blockPublishForDrain.set(true);
 
-                // One last flush
-                if (timeout == null || timeout.equals(Duration.ZERO)) {
-                    this.flush(Duration.ZERO);
-                } else {
-                    now = Instant.now();
+                    // One last flush
+                    if (timeout == null || timeout.equals(Duration.ZERO)) {
+                        this.flush(Duration.ZERO);
+                    } else {
+                        Instant now = Instant.now();
 
-                    Duration passed = Duration.between(start, now);
-                    Duration newTimeout = timeout.minus(passed);
+                        Duration passed = Duration.between(start, now);
+                        Duration newTimeout = timeout.minus(passed);
 
-                    if (newTimeout.toNanos() > 0) {
-                        this.flush(newTimeout);
+                        if (newTimeout.toNanos() > 0) {
+                            this.flush(newTimeout);
+                        }
                     }
-                }
 
-                this.close(false); // close the connection after the last flush
-                tracker.complete(consumers.size() == 0);
-            } catch (TimeoutException | InterruptedException e) {
-                this.processException(e);
-            } finally {
-                try {
-                    this.close();// close the connection after the last flush
-                } catch (InterruptedException e) {
+                    this.close(false); // close the connection after the last flush
+                    tracker.complete(Boolean.TRUE.equals(drained));
+                } catch (TimeoutException | InterruptedException e) {
                     this.processException(e);
+                } finally {
+                    try {
+                        this.close();// close the connection after the last flush
+                    } catch (InterruptedException e) {
+                        this.processException(e);
+                    }
+                    tracker.complete(false);
                 }
-                tracker.complete(false);
-            }
+            }, "Connection Drain");
+            t.start();
         });
-        t.setName("Connection Drain");
-        t.start();
 
         return tracker;
     }
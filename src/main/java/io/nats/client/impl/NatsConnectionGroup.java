@@ -0,0 +1,315 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import io.nats.client.BatchMessageHandler;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.Options;
+import io.nats.client.Statistics;
+import io.nats.client.Subscription;
+
+/**
+ * A group of connections to the same cluster that acts as one connection. Each member has its own
+ * socket and writer thread, so a group can encode and write on several cores at once.
+ *
+ * <p>Publishes and requests are routed to a member by a hash of the subject, so messages on one subject
+ * keep their order. Subscriptions and dispatchers are handed to the members in turn. The statistics
+ * are the sum of the members' statistics.
+ */
+class NatsConnectionGroup implements Connection {
+
+    private final Options options;
+    private final NatsConnection[] members;
+    private final AtomicInteger nextMember;
+    private final NatsGroupStatistics statistics;
+
+    private NatsConnectionGroup(Options options, NatsConnection[] members) {
+        this.options = options;
+        this.members = members;
+        this.nextMember = new AtomicInteger();
+        this.statistics = new NatsGroupStatistics(members);
+    }
+
+    static NatsConnectionGroup connect(Options options, int size) throws IOException, InterruptedException {
+        if (size < 1) {
+            throw new IllegalArgumentException("A connection group needs at least one connection");
+        }
+
+        NatsConnection[] members = new NatsConnection[size];
+
+        try {
+            for (int i = 0; i < size; i++) {
+                members[i] = new NatsConnection(options, spoolFileFor(options, i));
+                members[i].connect(false);
+            }
+        } catch (IOException | InterruptedException | RuntimeException exp) {
+            // Don't leave the members that did connect behind
+            for (NatsConnection member : members) {
+                if (member != null) {
+                    member.close();
+                }
+            }
+            throw exp;
+        }
+
+        return new NatsConnectionGroup(options, members);
+    }
+
+    // Each member gets its own spool file, the configured name with the member's index on the end
+    static Path spoolFileFor(Options options, int index) {
+        Path file = options.getReconnectSpoolFile();
+
+        if (file == null) {
+            return null;
+        }
+
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    int getMemberCount() {
+        return this.members.length;
+    }
+
+    NatsConnection getMember(int index) {
+        return this.members[index];
+    }
+
+    // The member for a subject, the same subject always goes to the same member
+    NatsConnection memberFor(String subject) {
+        if (this.members.length == 1 || subject == null) {
+            return this.members[0];
+        }
+
+        int hash = subject.hashCode();
+        hash ^= (hash >>> 16);
+        return this.members[(hash & 0x7FFFFFFF) % this.members.length];
+    }
+
+    // The next member in turn, for subscriptions and dispatchers
+    NatsConnection nextMember() {
+        int index = this.nextMember.getAndIncrement() & 0x7FFFFFFF;
+        return this.members[index % this.members.length];
+    }
+
+    public void publish(String subject, byte[] body) {
+        memberFor(subject).publish(subject, body);
+    }
+
+    public void publish(String subject, String replyTo, byte[] body) {
+        memberFor(subject).publish(subject, replyTo, body);
+    }
+
+    public CompletableFuture<Message> request(String subject, byte[] data) {
+        return memberFor(subject).request(subject, data);
+    }
+
+    public CompletableFuture<Message> requestWithTimeout(String subject, byte[] data, Duration timeout) {
+        return memberFor(subject).requestWithTimeout(subject, data, timeout);
+    }
+
+    public Message request(String subject, byte[] data, Duration timeout) throws InterruptedException {
+        return memberFor(subject).request(subject, data, timeout);
+    }
+
+    public CompletableFuture<Message> requestHedged(String subject, byte[] data, Duration hedgeDelay, Duration timeout) {
+        return memberFor(subject).requestHedged(subject, data, hedgeDelay, timeout);
+    }
+
+    public CompletableFuture<List<Message>> requestMany(String subject, byte[] data, int maxReplies, Duration timeout) {
+        return memberFor(subject).requestMany(subject, data, maxReplies, timeout);
+    }
+
+    public CompletableFuture<List<Message>> requestMany(String subject, byte[] data, int maxReplies, Duration timeout,
+            MessageHandler handler) {
+        return memberFor(subject).requestMany(subject, data, maxReplies, timeout, handler);
+    }
+
+    public Subscription subscribe(String subject) {
+        return nextMember().subscribe(subject);
+    }
+
+    public Subscription subscribe(String subject, String queueName) {
+        return nextMember().subscribe(subject, queueName);
+    }
+
+    public Dispatcher createDispatcher(MessageHandler handler) {
+        return nextMember().createDispatcher(handler);
+    }
+
+    public Dispatcher createDispatcher(MessageHandler handler, int lanes) {
+        return nextMember().createDispatcher(handler, lanes);
+    }
+
+    public Dispatcher createDispatcher(MessageHandler handler, int lanes, Function<? super Message, ?> keyExtractor) {
+        return nextMember().createDispatcher(handler, lanes, keyExtractor);
+    }
+
+    public Dispatcher createDispatcher(BatchMessageHandler handler, int maxBatch, Duration maxWait) {
+        return nextMember().createDispatcher(handler, maxBatch, maxWait);
+    }
+
+    public void closeDispatcher(Dispatcher d) {
+        if (!(d instanceof NatsDispatcher)) {
+            throw new IllegalArgumentException("Connection can only manage its own dispatchers");
+        }
+
+        NatsConnection owner = ((NatsDispatcher) d).connection;
+
+        for (NatsConnection member : this.members) {
+            if (member == owner) {
+                member.closeDispatcher(d);
+                return;
+            }
+        }
+
+        throw new IllegalArgumentException("Connection can only manage its own dispatchers");
+    }
+
+    // Flushes every member, the timeout covers all of them
+    public void flush(Duration timeout) throws TimeoutException, InterruptedException {
+        boolean forever = (timeout == null || timeout.equals(Duration.ZERO));
+        Instant start = Instant.now();
+
+        for (NatsConnection member : this.members) {
+            if (forever) {
+                member.flush(timeout);
+            } else {
+                Duration remaining = timeout.minus(Duration.between(start, Instant.now()));
+
+                if (remaining.isNegative() || remaining.isZero()) {
+                    throw new TimeoutException("Timeout out waiting for flush");
+                }
+
+                member.flush(remaining);
+            }
+        }
+    }
+
+    // Drains every member in parallel, the group is drained when they all are
+    public CompletableFuture<Boolean> drain(Duration timeout) throws TimeoutException, InterruptedException {
+        List<CompletableFuture<Boolean>> drains = new ArrayList<>();
+
+        for (NatsConnection member : this.members) {
+            drains.add(member.drain(timeout));
+        }
+
+        CompletableFuture<Boolean> tracker = new CompletableFuture<>();
+        CompletableFuture.allOf(drains.toArray(new CompletableFuture<?>[0])).whenComplete((v, exp) -> {
+            boolean drained = (exp == null);
+
+            for (CompletableFuture<Boolean> d : drains) {
+                drained = drained && Boolean.TRUE.equals(d.getNow(false));
+            }
+
+            tracker.complete(drained);
+        });
+
+        return tracker;
+    }
+
+    public void close() throws InterruptedException {
+        for (NatsConnection member : this.members) {
+            member.close();
+        }
+    }
+
+    // The group is only connected when every member is, otherwise this is the status of the first member that isn't
+    public Status getStatus() {
+        for (NatsConnection member : this.members) {
+            Status status = member.getStatus();
+
+            if (status != Status.CONNECTED) {
+                return status;
+            }
+        }
+
+        return Status.CONNECTED;
+    }
+
+    public long getMaxPayload() {
+        long max = -1;
+
+        for (NatsConnection member : this.members) {
+            long payload = member.getMaxPayload();
+
+            if (payload >= 0 && (max < 0 || payload < max)) {
+                max = payload;
+            }
+        }
+
+        return max;
+    }
+
+    public Collection<String> getServers() {
+        return this.members[0].getServers();
+    }
+
+    public Statistics getStatistics() {
+        return this.statistics;
+    }
+
+    public Options getOptions() {
+        return this.options;
+    }
+
+    public String getConnectedUrl() {
+        return this.members[0].getConnectedUrl();
+    }
+
+    // The average over the members that have measured each server
+    public Map<String, Duration> getServerLatencies() {
+        HashMap<String, Duration> totals = new HashMap<>();
+        HashMap<String, Integer> counts = new HashMap<>();
+
+        for (NatsConnection member : this.members) {
+            member.getServerLatencies().forEach((server, latency) -> {
+                totals.merge(server, latency, Duration::plus);
+                counts.merge(server, 1, Integer::sum);
+            });
+        }
+
+        totals.replaceAll((server, total) -> total.dividedBy(counts.get(server)));
+        return Collections.unmodifiableMap(totals);
+    }
+
+    public String getLastError() {
+        for (NatsConnection member : this.members) {
+            String error = member.getLastError();
+
+            if (error != null) {
+                return error;
+            }
+        }
+
+        return null;
+    }
+}
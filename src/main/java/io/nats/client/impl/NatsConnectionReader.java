@@ -90,7 +90,7 @@ class NatsConnectionReader implements Runnable {
         this.running.set(true);
         this.stopped = new CompletableFuture<>(); // New future
         String name = (this.connection.getOptions().getConnectionName() != null) ? this.connection.getOptions().getConnectionName() : "Nats Connection";
-        this.thread = new Thread(this, name + " Reader");
+        this.thread = this.connection.createThread(this, name + " Reader");
         this.thread.start();
     }
 
@@ -111,7 +111,9 @@ class NatsConnectionReader implements Runnable {
 
             while (this.running.get()) {
                 this.bufferPosition = 0;
+                Object readEvent = NatsEvents.beginSocketRead();
                 int bytesRead = dataPort.read(this.buffer, 0, this.buffer.length);
+                NatsEvents.endSocketRead(readEvent, bytesRead);
 
                 if (bytesRead > 0) {
                     connection.getNatsStatistics().registerRead(bytesRead);
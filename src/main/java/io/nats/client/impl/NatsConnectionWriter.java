@@ -16,6 +16,7 @@ package io.nats.client.impl;
 import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.concurrent.CancellationException;
@@ -38,6 +39,8 @@ class NatsConnectionWriter implements Runnable {
 
     private MessageQueue outgoing;
     private MessageQueue reconnectOutgoing;
+    private final NatsReconnectBuffer reconnectBuffer;
+    private volatile NatsSpool spool; // created the first time the reconnect buffer overflows
 
     NatsConnectionWriter(NatsConnection connection) {
         this.connection = connection;
@@ -51,6 +54,7 @@ class NatsConnectionWriter implements Runnable {
 
         outgoing = new MessageQueue(true);
         reconnectOutgoing = new MessageQueue(true);
+        reconnectBuffer = new NatsReconnectBuffer();
     }
 
     // Should only be called if the current thread has exited.
@@ -62,7 +66,7 @@ class NatsConnectionWriter implements Runnable {
         this.stopped = new CompletableFuture<>(); // New future
 
         String name = (this.connection.getOptions().getConnectionName() != null) ? this.connection.getOptions().getConnectionName() : "Nats Connection";
-        this.thread = new Thread(this, name + " Writer");
+        this.thread = this.connection.createThread(this, name + " Writer");
         this.thread.start();
     }
 
@@ -86,6 +90,7 @@ class NatsConnectionWriter implements Runnable {
     public void run() {
         Duration waitForMessage = Duration.ofMinutes(2); // This can be long since no one is sending
         Duration reconnectWait = Duration.ofMillis(1); // This can be long since no one is sending
+        Duration noWait = Duration.ofNanos(1); // While replaying buffered messages, don't block on the queue
         long maxMessages = 1000;
 
         try {
@@ -96,10 +101,19 @@ class NatsConnectionWriter implements Runnable {
 
             while (this.running.get()) {
                 int sendPosition = 0;
+                int sendCount = 0;
                 NatsMessage msg = null;
                 
                 if (reconnectMode.get()) {
                     msg = this.reconnectOutgoing.accumulate(this.sendBuffer.length, maxMessages, reconnectWait);
+                } else if (hasBufferedMessages()) {
+                    // Messages queued before the connection was lost go first, then the reconnect buffer, then the spool
+                    msg = this.outgoing.accumulate(this.sendBuffer.length, maxMessages, noWait);
+
+                    if (msg == null) {
+                        replay(this.reconnectBuffer.isEmpty() ? this.spool : this.reconnectBuffer, dataPort, stats);
+                        continue;
+                    }
                 } else {
                     msg = this.outgoing.accumulate(this.sendBuffer.length, maxMessages, waitForMessage);
                 }
@@ -115,9 +129,12 @@ class NatsConnectionWriter implements Runnable {
                         if (sendPosition == 0) { // have to resize
                             this.sendBuffer = new byte[(int)Math.max(sendBuffer.length + size, sendBuffer.length * 2)];
                         } else { // else send and go to next message
+                            Object writeEvent = NatsEvents.beginSocketWrite();
                             dataPort.write(sendBuffer, sendPosition);
+                            NatsEvents.endSocketWrite(writeEvent, sendPosition, sendCount);
                             connection.getNatsStatistics().registerWrite(sendPosition);
                             sendPosition = 0;
+                            sendCount = 0;
                             msg = msg.next;
 
                             if (msg == null) {
@@ -140,15 +157,20 @@ class NatsConnectionWriter implements Runnable {
 
                         sendBuffer[sendPosition++] = '\r';
                         sendBuffer[sendPosition++] = '\n';
+
+                        stats.registerOutboundSubject(msg.getSubject(), size);
                     }
 
                     stats.incrementOutMsgs();
                     stats.incrementOutBytes(size);
+                    sendCount++;
 
                     msg = msg.next;
                 }
 
+                Object writeEvent = NatsEvents.beginSocketWrite();
                 dataPort.write(sendBuffer, sendPosition);
+                NatsEvents.endSocketWrite(writeEvent, sendPosition, sendCount);
                 connection.getNatsStatistics().registerWrite(sendPosition);
             }
         } catch (IOException | BufferOverflowException io) {
@@ -162,12 +184,131 @@ class NatsConnectionWriter implements Runnable {
         }
     }
 
+    // Writes the next buffer full of messages, they are only consumed once the write succeeds
+    void replay(ReplayBuffer buffer, DataPort dataPort, NatsStatistics stats) throws IOException {
+        int length = buffer.peek(this.sendBuffer);
+
+        if (length < 0) { // have to resize
+            this.sendBuffer = new byte[Math.max(-length, sendBuffer.length * 2)];
+            length = buffer.peek(this.sendBuffer);
+        }
+
+        if (length > 0) {
+            Object writeEvent = NatsEvents.beginSocketWrite();
+            dataPort.write(this.sendBuffer, length);
+            NatsEvents.endSocketWrite(writeEvent, length, 0);
+            stats.registerWrite(length);
+        }
+
+        long bytes = buffer.getPeekBytes();
+        stats.incrementOutMsgs(buffer.commit());
+        stats.incrementOutBytes(bytes);
+    }
+
+    boolean hasBufferedMessages() {
+        NatsSpool spool = this.spool;
+        return !this.reconnectBuffer.isEmpty() || (spool != null && !spool.isEmpty());
+    }
+
+    // Publishes made while disconnected go to the reconnect buffer, and to the spool once the buffer is full. Later
+    // publishes follow them until they have been written, to keep them in order. Returns false if the message should
+    // be queued as usual. Buffered messages count towards the outbound subjects now, they are never seen by run().
+    // Once connected the reconnect buffer size no longer applies, the buffer is draining and connected publishes
+    // were never limited.
+    boolean buffer(NatsMessage msg, boolean disconnected) {
+        if (spool(msg, false)) {
+            this.connection.getNatsStatistics().registerOutboundSubject(msg.getSubject(), msg.getSizeInBytes());
+            return true;
+        }
+
+        NatsSpool spool = this.spool;
+
+        if (spool != null && !spool.isEmpty()) {
+            // The spool is in use but full, queueing the message anywhere else would put it ahead of the spooled ones
+            throw new IllegalStateException("Unable to queue any more messages, the reconnect spool is full, max spool size is "
+                    + this.connection.getOptions().getReconnectSpoolSize());
+        }
+
+        if (!disconnected && this.reconnectBuffer.isEmpty()) {
+            return false;
+        }
+
+        long maxSize = disconnected ? this.connection.getOptions().getReconnectBufferSize() : 0;
+
+        if (this.reconnectBuffer.append(msg, maxSize) || spool(msg, true)) {
+            this.connection.getNatsStatistics().registerOutboundSubject(msg.getSubject(), msg.getSizeInBytes());
+            return true;
+        }
+
+        throw new IllegalStateException(
+                "Unable to queue any more messages during reconnect, max buffer is " + maxSize);
+    }
+
+    long getPendingMessages() {
+        return this.outgoing.length() + this.reconnectOutgoing.length();
+    }
+
+    long getPendingBytes() {
+        return this.outgoing.sizeInBytes() + this.reconnectOutgoing.sizeInBytes();
+    }
+
+    // The bytes published while disconnected that haven't been sent yet
+    long getBufferedBytes() {
+        NatsSpool spool = this.spool;
+        return this.reconnectBuffer.sizeInBytes() + ((spool != null) ? spool.getSpooledBytes() : 0);
+    }
+
+    NatsReconnectBuffer getReconnectBuffer() {
+        return this.reconnectBuffer;
+    }
+
+    // Spools the message if the spool is in use, or if overflow is set and the spool has room. Returns false if the
+    // message was not spooled, or if there is no spool.
+    boolean spool(NatsMessage msg, boolean overflow) {
+        Path file = this.connection.getReconnectSpoolFile();
+
+        if (file == null) {
+            return false;
+        }
+
+        try {
+            NatsSpool spool = this.spool;
+
+            if (spool == null) {
+                if (!overflow) {
+                    return false;
+                }
+                spool = openSpool(file);
+            }
+
+            return spool.append(msg, overflow);
+        } catch (IOException exp) {
+            throw new IllegalStateException("Unable to spool message to " + file, exp);
+        }
+    }
+
+    private synchronized NatsSpool openSpool(Path file) throws IOException {
+        if (this.spool == null) {
+            this.spool = new NatsSpool(file, this.connection.getOptions().getReconnectSpoolSize());
+        }
+        return this.spool;
+    }
+
+    // Called once the connection is closed, any messages still buffered are lost
+    synchronized void closeBuffers() throws IOException {
+        this.reconnectBuffer.clear();
+
+        if (this.spool != null) {
+            this.spool.close();
+        }
+    }
+
     void setReconnectMode(boolean tf) {
         reconnectMode.set(tf);
     }
 
-    boolean canQueue(NatsMessage msg, long maxSize) {
-        return (maxSize <= 0 || (outgoing.sizeInBytes() + msg.getSizeInBytes()) < maxSize);
+    boolean isReconnectMode() {
+        return reconnectMode.get();
     }
 
     void queue(NatsMessage msg) {
@@ -15,6 +15,7 @@ package io.nats.client.impl;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -22,6 +23,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import io.nats.client.Consumer;
+import io.nats.client.Histogram;
 
 abstract class NatsConsumer implements Consumer {
 
@@ -32,6 +34,12 @@ abstract class NatsConsumer implements Consumer {
     private AtomicLong messagesDelivered;
     private AtomicBoolean slow;
     private AtomicReference<CompletableFuture<Boolean>> drainingFuture;
+    private CompletableFuture<Boolean> drained;
+
+    // Only recorded when the connection tracks advanced stats
+    final boolean timed;
+    private final NatsHistogram residencyTimes;
+    private final NatsHistogram handlerTimes;
 
     NatsConsumer(NatsConnection conn) {
         this.connection = conn;
@@ -41,6 +49,10 @@ abstract class NatsConsumer implements Consumer {
         this.messagesDelivered = new AtomicLong(0);
         this.slow = new AtomicBoolean(false);
         this.drainingFuture = new AtomicReference<>();
+        this.drained = new CompletableFuture<>();
+        this.timed = conn.getOptions().isTrackAdvancedStats();
+        this.residencyTimes = new NatsHistogram();
+        this.handlerTimes = new NatsHistogram();
     }
 
     /**
@@ -103,10 +115,90 @@ abstract class NatsConsumer implements Consumer {
         return this.messagesDelivered.get();
     }
 
+    /**
+     * @return the number of lanes this consumer delivers messages on, 1 unless
+     *         this is a dispatcher created with multiple lanes.
+     */
+    public int getLaneCount() {
+        return 1;
+    }
+
+    /**
+     * @param lane the lane index, from 0 to {@link #getLaneCount()} - 1
+     * @return the number of messages waiting to be delivered on the lane
+     */
+    public long getLanePendingMessageCount(int lane) {
+        checkLane(lane);
+        return this.getPendingMessageCount();
+    }
+
+    /**
+     * @param lane the lane index, from 0 to {@link #getLaneCount()} - 1
+     * @return the total number of messages delivered on the lane, for all time
+     */
+    public long getLaneDeliveredCount(int lane) {
+        checkLane(lane);
+        return this.getDeliveredCount();
+    }
+
+    void checkLane(int lane) {
+        if (lane < 0 || lane >= this.getLaneCount()) {
+            throw new IndexOutOfBoundsException("Lane " + lane + " is out of range, lane count is " + this.getLaneCount());
+        }
+    }
+
     void incrementDeliveredCount() {
         this.messagesDelivered.incrementAndGet();
     }
 
+    void addDeliveredCount(long count) {
+        this.messagesDelivered.addAndGet(count);
+    }
+
+    // Counts one more delivery unless max have been delivered already, a max of 0 or less is no limit.
+    // Returns the new count, or -1 if the limit was reached. Safe when several lanes deliver at once.
+    long incrementDeliveredCount(long max) {
+        while (true) {
+            long current = this.messagesDelivered.get();
+
+            if (max > 0 && current >= max) {
+                return -1;
+            }
+
+            if (this.messagesDelivered.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    // Records how long the message waited in the queue, now is when it was taken off
+    void recordResidency(NatsMessage msg, long now) {
+        long enqueued = msg.getEnqueueNanos();
+        if (enqueued != 0) {
+            this.residencyTimes.record(now - enqueued);
+        }
+    }
+
+    void recordHandlerTime(long nanos) {
+        this.handlerTimes.record(nanos);
+    }
+
+    public Histogram getResidencyTime() {
+        return this.residencyTimes.snapshot();
+    }
+
+    public Histogram getHandlerTime() {
+        return this.handlerTimes.snapshot();
+    }
+
+    /**
+     * @return how long, in nanoseconds, the oldest pending message has been waiting
+     */
+    public long getOldestPendingNanos() {
+        MessageQueue queue = this.getMessageQueue();
+        return (queue != null) ? queue.getOldestWaitNanos(System.nanoTime()) : 0;
+    }
+
     void incrementDroppedCount() {
         this.droppedMessages.incrementAndGet();
     }
@@ -149,8 +241,24 @@ abstract class NatsConsumer implements Consumer {
     }
 
     void markUnsubedForDrain() {
-        if (this.getMessageQueue() != null) {
-            this.getMessageQueue().drain();
+        MessageQueue queue = this.getMessageQueue();
+
+        if (queue != null) {
+            queue.onDrained(this::checkDrained);
+            queue.drain();
+        }
+
+        checkDrained();
+    }
+
+    // Completes once the consumer has drained, consumers signal it themselves as their last message is handled
+    CompletableFuture<Boolean> whenDrained() {
+        return this.drained;
+    }
+
+    void checkDrained() {
+        if (this.isDrained()) {
+            this.drained.complete(Boolean.TRUE);
         }
     }
 
@@ -199,32 +307,14 @@ abstract class NatsConsumer implements Consumer {
 
        this.markUnsubedForDrain();
 
-        // Wait for the timeout or the pending count to go to 0, skipped if conn is
-        // draining
-        Thread t = new Thread(() -> {
+        // Wait for the timeout or for the queue to signal that the last message was handled
+        this.connection.whenDrained(Collections.singleton(this), start, timeout).whenComplete((drained, exp) -> {
             try {
-                Instant now = Instant.now();
-
-                while (timeout == null || timeout.equals(Duration.ZERO)
-                        || Duration.between(start, now).compareTo(timeout) < 0) {
-                    if (this.isDrained()) {
-                        break;
-                    }
-
-                    Thread.sleep(1); // Sleep 1 milli
-
-                    now = Instant.now();
-                }
-
                 this.cleanUpAfterDrain();
-            } catch (InterruptedException e) {
-                this.connection.processException(e);
             } finally {
                 tracker.complete(this.isDrained());
             }
-       });
-       t.setName("Consumer Drain");
-       t.start();
+        });
 
        return getDrainingFuture();
    }
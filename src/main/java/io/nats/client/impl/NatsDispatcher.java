@@ -14,115 +14,235 @@
 package io.nats.client.impl;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import io.nats.client.BatchMessageHandler;
 import io.nats.client.Dispatcher;
+import io.nats.client.Message;
 import io.nats.client.MessageHandler;
+import io.nats.client.Subscription;
 
-class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
+class NatsDispatcher extends NatsConsumer implements Dispatcher {
 
-    private MessageQueue incoming;
+    private NatsDispatcherLane[] lanes;
     private MessageHandler handler;
+    private Function<? super Message, ?> keyExtractor;
+
+    private BatchMessageHandler batchHandler;
+    private int maxBatch;
+    private Duration maxBatchWait;
 
-    private Thread thread;
     private final AtomicBoolean running;
+    private final AtomicInteger activeLanes;
 
     private String id;
 
     private Map<String, NatsSubscription> subscriptions;
-    private Duration waitForMessage;
-
+    private Map<String, NatsSubscription> subscriptionsWithHandlers; // by sid, a subject can have several
 
     NatsDispatcher(NatsConnection conn, MessageHandler handler) {
+        this(conn, handler, 1, null);
+    }
+
+    NatsDispatcher(NatsConnection conn, MessageHandler handler, int laneCount, Function<? super Message, ?> keyExtractor) {
         super(conn);
         this.handler = handler;
-        this.incoming = new MessageQueue(true);
+        this.keyExtractor = keyExtractor;
         this.subscriptions = new ConcurrentHashMap<>();
+        this.subscriptionsWithHandlers = new ConcurrentHashMap<>();
         this.running = new AtomicBoolean(false);
-        this.waitForMessage = Duration.ofMinutes(5); // This can be long since we aren't doing anything
+        this.activeLanes = new AtomicInteger();
+
+        this.lanes = new NatsDispatcherLane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            this.lanes[i] = new NatsDispatcherLane(this, i, conn.getDispatcherPool(), conn.getOptions().getDispatcherQuantum());
+        }
+    }
+
+    NatsDispatcher(NatsConnection conn, BatchMessageHandler batchHandler, int maxBatch, Duration maxBatchWait) {
+        this(conn, (MessageHandler) null, 1, null);
+        this.batchHandler = batchHandler;
+        this.maxBatch = maxBatch;
+        this.maxBatchWait = maxBatchWait;
     }
 
     void start(String id) {
         this.id = id;
         this.running.set(true);
+        this.activeLanes.set(this.lanes.length);
         String name = (this.connection.getOptions().getConnectionName() != null) ? this.connection.getOptions().getConnectionName() : "Nats Connection";
-        this.thread = new Thread(this, name + " Dispatcher");
-        this.thread.start();
-    }
 
-    boolean breakRunLoop() {
-        return this.incoming.isDrained();
+        if (this.lanes.length == 1) {
+            this.lanes[0].start(name + " Dispatcher");
+        } else {
+            for (NatsDispatcherLane lane : this.lanes) {
+                lane.start(name + " Dispatcher Lane " + lane.getIndex());
+            }
+        }
     }
 
-    public void run() {
-        try {
-            while (this.running.get()) {
-                
-                NatsMessage msg = this.incoming.pop(this.waitForMessage);
-
-                if (msg == null) {
-                    if (breakRunLoop()) {
-                        return;
-                    } else {
-                        continue;
-                    }
-                }
+    // Called by a lane, on its own thread or a pool thread, for each message it pops
+    void deliver(NatsMessage msg, NatsDispatcherLane lane) {
+        NatsSubscription sub = msg.getNatsSubscription();
+
+        if (sub != null && sub.isActive()) {
+
+            // Lanes can deliver for the same subscription at once, so the count and the limit check are one step
+            long max = sub.getUnsubLimit();
+            long delivered = sub.incrementDeliveredCount(max);
+
+            if (delivered < 0) { // over the unsubscribe limit
+                return;
+            }
+
+            this.incrementDeliveredCount();
+            lane.incrementDeliveredCount();
 
-                NatsSubscription sub = msg.getNatsSubscription();
+            // A subscription's own handler wins over the dispatcher's
+            MessageHandler target = (sub.getHandler() != null) ? sub.getHandler() : this.handler;
+            long start = this.timed ? System.nanoTime() : 0;
 
-                if (sub != null && sub.isActive()) {
+            if (this.timed) {
+                this.recordResidency(msg, start);
+                sub.recordResidency(msg, start);
+            }
+
+            Object handlerEvent = NatsEvents.beginHandler();
+
+            try {
+                target.onMessage(msg);
+            } catch (Exception exp) {
+                this.connection.processException(exp);
+            }
+
+            NatsEvents.endHandler(handlerEvent, msg.getSubject(), 1);
+
+            if (this.timed) {
+                long elapsed = System.nanoTime() - start;
+                this.recordHandlerTime(elapsed);
+                sub.recordHandlerTime(elapsed);
+            }
 
-                    sub.incrementDeliveredCount();
-                    this.incrementDeliveredCount();
+            if (max > 0 && delivered == max) {
+                this.connection.invalidate(sub);
+            }
+        }
+    }
+
+    // Called by a lane with a chain of messages, linked by next, when the dispatcher has a batch handler.
+    // Each message is counted against its subscription's unsubscribe limit as it is accepted, and the
+    // dispatcher and lane counts once for the whole batch. Messages for subscriptions with
+    // their own handler are delivered one at a time, after the messages batched before them.
+    void deliverBatch(NatsMessage first, NatsDispatcherLane lane) {
+        ArrayList<Message> batch = new ArrayList<>(Math.min(this.maxBatch, 1024));
+        NatsMessage msg = first;
+
+        while (msg != null) {
+            NatsMessage next = msg.next;
+            msg.next = null; // don't hold on to the rest of the chain
+            NatsSubscription sub = msg.getNatsSubscription();
+
+            if (sub != null && sub.getHandler() != null) {
+                deliverBatch(batch, lane);
+                batch.clear();
+                deliver(msg, lane);
+                msg = next;
+                continue;
+            }
 
-                    try {
-                        handler.onMessage(msg);
-                    } catch (Exception exp) {
-                        this.connection.processException(exp);
+            if (sub != null && sub.isActive()) {
+                // Another lane can be batching for the same subscription, so each message takes its own count
+                long max = sub.getUnsubLimit();
+                long delivered = sub.incrementDeliveredCount(max);
+
+                if (delivered > 0) {
+                    if (this.timed) {
+                        long now = System.nanoTime();
+                        this.recordResidency(msg, now);
+                        sub.recordResidency(msg, now);
                     }
 
-                    if (sub.reachedUnsubLimit()) {
+                    batch.add(msg);
+
+                    if (max > 0 && delivered == max) {
                         this.connection.invalidate(sub);
                     }
                 }
-
-                if (breakRunLoop()) {
-                    // will set the dispatcher to not active
-                    return;
-                }
             }
-        } catch (InterruptedException exp) {
-            if (this.running.get()){
-                this.connection.processException(exp);
-            } //otherwise we did it
-        } finally {
+
+            msg = next;
+        }
+
+        deliverBatch(batch, lane);
+    }
+
+    private void deliverBatch(ArrayList<Message> batch, NatsDispatcherLane lane) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        this.addDeliveredCount(batch.size());
+        lane.addDeliveredCount(batch.size());
+        long start = this.timed ? System.nanoTime() : 0;
+
+        Object handlerEvent = NatsEvents.beginHandler();
+
+        try {
+            batchHandler.onMessages(batch);
+        } catch (Exception exp) {
+            this.connection.processException(exp);
+        }
+
+        NatsEvents.endHandler(handlerEvent, batch.get(0).getSubject(), batch.size());
+
+        // The batch is one call, so the subscriptions in it don't get a handler time
+        if (this.timed) {
+            this.recordHandlerTime(System.nanoTime() - start);
+        }
+    }
+
+    boolean isBatching() {
+        return this.batchHandler != null;
+    }
+
+    int getMaxBatch() {
+        return this.maxBatch;
+    }
+
+    Duration getMaxBatchWait() {
+        return this.maxBatchWait;
+    }
+
+    // Called by a lane when its run loop exits, the last lane out marks the dispatcher inactive
+    void laneStopped(NatsDispatcherLane lane) {
+        if (this.activeLanes.decrementAndGet() <= 0) {
             this.running.set(false);
-            this.thread = null;
+            checkDrained(); // the last lane is done, so is a drain
         }
     }
 
     void stop(boolean unsubscribeAll) {
         this.running.set(false);
-        this.incoming.pause();
 
-        if (this.thread != null) {
-            try {
-                if (this.thread.isAlive()) {
-                    this.thread.interrupt();
-                }
-            } catch (Exception exp) {
-                // let it go
-            }
+        for (NatsDispatcherLane lane : this.lanes) {
+            lane.stop();
         }
 
         if (unsubscribeAll) {
             this.subscriptions.forEach((subj, sub) -> {
                 this.connection.unsubscribe(sub, -1);
             });
+            this.subscriptionsWithHandlers.forEach((sid, sub) -> {
+                this.connection.unsubscribe(sub, -1);
+            });
         } else {
             this.subscriptions.clear();
+            this.subscriptionsWithHandlers.clear();
         }
     }
 
@@ -134,19 +254,105 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
         return id;
     }
 
+    // The first lane, for a single lane dispatcher this is the only queue
     MessageQueue getMessageQueue() {
-        return incoming;
+        return this.lanes[0].getMessageQueue();
+    }
+
+    // Called on the reader thread, queues the message on its lane and gives a pooled lane a turn
+    void push(NatsMessage msg) {
+        getLaneFor(msg).push(msg);
+    }
+
+    // Messages with the same key always land on the same lane, which preserves their order
+    NatsDispatcherLane getLaneFor(NatsMessage msg) {
+        if (this.lanes.length == 1) {
+            return this.lanes[0];
+        }
+
+        Object key = msg.getSubject();
+
+        if (this.keyExtractor != null) {
+            try {
+                key = this.keyExtractor.apply(msg);
+            } catch (RuntimeException exp) {
+                this.connection.processException(exp);
+            }
+        }
+
+        int hash = (key != null) ? key.hashCode() : 0;
+        hash ^= (hash >>> 16);
+        return this.lanes[(hash & 0x7FFFFFFF) % this.lanes.length];
     }
 
-    void resendSubscriptions() {
+    public long getPendingMessageCount() {
+        long count = 0;
+        for (NatsDispatcherLane lane : this.lanes) {
+            count += lane.getMessageQueue().length();
+        }
+        return count;
+    }
+
+    public long getOldestPendingNanos() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (NatsDispatcherLane lane : this.lanes) {
+            oldest = Math.max(oldest, lane.getMessageQueue().getOldestWaitNanos(now));
+        }
+        return oldest;
+    }
+
+    public long getPendingByteCount() {
+        long bytes = 0;
+        for (NatsDispatcherLane lane : this.lanes) {
+            bytes += lane.getMessageQueue().sizeInBytes();
+        }
+        return bytes;
+    }
+
+    public int getLaneCount() {
+        return this.lanes.length;
+    }
+
+    public long getLanePendingMessageCount(int lane) {
+        checkLane(lane);
+        return this.lanes[lane].getMessageQueue().length();
+    }
+
+    public long getLaneDeliveredCount(int lane) {
+        checkLane(lane);
+        return this.lanes[lane].getDeliveredCount();
+    }
+
+    void markUnsubedForDrain() {
+        for (NatsDispatcherLane lane : this.lanes) {
+            lane.getMessageQueue().drain();
+        }
+
+        // Pooled lanes only notice the drain when they get a turn
+        for (NatsDispatcherLane lane : this.lanes) {
+            lane.schedule();
+        }
+
+        checkDrained(); // in case every lane has already stopped
+    }
+
+    void resendSubscriptions(NatsSubscribeBatch batch) {
         this.subscriptions.forEach((id, sub)->{
-            this.connection.sendSubscriptionMessage(sub.getSID(), sub.getSubject(), sub.getQueueName(), true);
+            batch.add(sub.getSID(), sub.getSubject(), sub.getQueueName());
+        });
+        this.subscriptionsWithHandlers.forEach((sid, sub)->{
+            batch.add(sub.getSID(), sub.getSubject(), sub.getQueueName());
         });
     }
 
     // Called by the connection when the subscription is removed
     void remove(NatsSubscription sub) {
-        subscriptions.remove(sub.getSubject());
+        if (sub.getHandler() != null) {
+            subscriptionsWithHandlers.remove(sub.getSID());
+        } else {
+            subscriptions.remove(sub.getSubject());
+        }
     }
 
     public Dispatcher subscribe(String subject) {
@@ -168,6 +374,49 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
         return this.subscribeImpl(subject, queueName);
     }
 
+    public Subscription subscribe(String subject, MessageHandler handler) {
+        if (subject == null || subject.length() == 0) {
+            throw new IllegalArgumentException("Subject is required in subscribe");
+        }
+
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler is required in subscribe");
+        }
+
+        return this.subscribeImpl(subject, null, handler);
+    }
+
+    public Subscription subscribe(String subject, String queueName, MessageHandler handler) {
+        if (subject == null || subject.length() == 0) {
+            throw new IllegalArgumentException("Subject is required in subscribe");
+        }
+
+        if (queueName == null || queueName.length() == 0) {
+            throw new IllegalArgumentException("QueueName is required in subscribe");
+        }
+
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler is required in subscribe");
+        }
+
+        return this.subscribeImpl(subject, queueName, handler);
+    }
+
+    // Subscriptions with their own handler are never shared, each call creates a new one
+    Subscription subscribeImpl(String subject, String queueName, MessageHandler handler) {
+        if (!this.running.get()) {
+            throw new IllegalStateException("Dispatcher is closed");
+        }
+
+        if (this.isDraining()) {
+            throw new IllegalStateException("Dispatcher is draining");
+        }
+
+        NatsSubscription sub = connection.createSubscription(subject, queueName, this, handler);
+        subscriptionsWithHandlers.put(sub.getSID(), sub);
+        return sub;
+    }
+
 
     // Assumes the subj/queuename checks are done, does check for closed status
     Dispatcher subscribeImpl(String subject, String queueName) {
@@ -179,6 +428,10 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
             throw new IllegalStateException("Dispatcher is draining");
         }
 
+        if (this.handler == null && this.batchHandler == null) {
+            throw new IllegalStateException("Dispatcher has no default handler, subscribe with a handler instead");
+        }
+
         NatsSubscription sub = subscriptions.get(subject);
 
         if (sub == null) {
@@ -218,10 +471,47 @@ class NatsDispatcher extends NatsConsumer implements Dispatcher, Runnable {
         return this;
     }
 
+    public Dispatcher unsubscribe(Subscription subscription) {
+        return this.unsubscribe(subscription, -1);
+    }
+
+    public Dispatcher unsubscribe(Subscription subscription, int after) {
+        if (!this.running.get()) {
+            throw new IllegalStateException("Dispatcher is closed");
+        }
+
+        if (isDraining()) { // No op while draining
+            return this;
+        }
+
+        if (subscription == null) {
+            throw new IllegalArgumentException("Subscription is required in unsubscribe");
+        }
+
+        if (!(subscription instanceof NatsSubscription)) {
+            throw new IllegalArgumentException("Dispatcher can only manage its own subscriptions");
+        }
+
+        if (!subscription.isActive()) { // Already unsubscribed, the dispatcher is cleared so ownership is unknown
+            return this;
+        }
+
+        if (subscription.getDispatcher() != this) {
+            throw new IllegalArgumentException("Dispatcher can only manage its own subscriptions");
+        }
+
+        NatsSubscription sub = (NatsSubscription) subscription;
+        this.connection.unsubscribe(sub, after); // Connection will tell us when to remove from the map
+        return this;
+    }
+
     void sendUnsubForDrain() {
         this.subscriptions.forEach((id, sub)->{
             this.connection.sendUnsub(sub, -1);
         });
+        this.subscriptionsWithHandlers.forEach((sid, sub)->{
+            this.connection.sendUnsub(sub, -1);
+        });
     }
 
     void cleanUpAfterDrain() {
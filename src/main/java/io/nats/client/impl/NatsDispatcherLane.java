@@ -0,0 +1,225 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lane is a single ordered stream of work inside a dispatcher. Each lane owns
+ * its own queue, so messages on one lane are delivered in order while separate
+ * lanes run in parallel.
+ * 
+ * <p>By default a lane has a dedicated thread. When the connection has a dispatcher
+ * pool the lane is instead scheduled on the shared executor, like an actor. It is
+ * given a turn when its queue is non-empty, delivers at most a quantum of messages
+ * and then yields the pool thread. The scheduled flag makes sure only one pool
+ * thread works on the lane at a time, which keeps the lane's ordering.
+ */
+class NatsDispatcherLane implements Runnable {
+
+    private final NatsDispatcher dispatcher;
+    private final int index;
+    private final MessageQueue incoming;
+    private final AtomicLong messagesDelivered;
+
+    private final Executor executor;
+    private final int quantum;
+    private final AtomicBoolean scheduled;
+    private final AtomicBoolean exited;
+
+    private Thread thread;
+    private Duration waitForMessage;
+
+    NatsDispatcherLane(NatsDispatcher dispatcher, int index, Executor executor, int quantum) {
+        this.dispatcher = dispatcher;
+        this.index = index;
+        this.incoming = new MessageQueue(true);
+        this.messagesDelivered = new AtomicLong();
+        this.executor = executor;
+        this.quantum = Math.max(1, quantum);
+        this.scheduled = new AtomicBoolean(false);
+        this.exited = new AtomicBoolean(false);
+        this.waitForMessage = Duration.ofMinutes(5); // This can be long since we aren't doing anything
+    }
+
+    void start(String name) {
+        if (this.executor == null) {
+            this.thread = this.dispatcher.connection.createThread(this, name);
+            this.thread.start();
+        } else if (this.incoming.length() > 0) {
+            schedule();
+        }
+    }
+
+    boolean isPooled() {
+        return this.executor != null;
+    }
+
+    void push(NatsMessage msg) {
+        this.incoming.push(msg);
+
+        if (this.executor != null) {
+            schedule();
+        }
+    }
+
+    // Give the lane a turn on the pool, unless it already has one pending or running
+    void schedule() {
+        if (this.executor == null || !this.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.executor.execute(this);
+        } catch (RejectedExecutionException exp) {
+            // The pool is shut down, so the connection is closing
+            this.scheduled.set(false);
+        }
+    }
+
+    public void run() {
+        if (this.executor == null) {
+            runOnThread();
+        } else {
+            runQuantum();
+        }
+    }
+
+    void runOnThread() {
+        boolean batching = this.dispatcher.isBatching();
+
+        try {
+            while (this.dispatcher.isActive()) {
+
+                NatsMessage msg = batching
+                        ? this.incoming.accumulate(this.dispatcher.getMaxBatch(), this.waitForMessage, this.dispatcher.getMaxBatchWait())
+                        : this.incoming.pop(this.waitForMessage);
+
+                if (msg == null) {
+                    if (this.incoming.isDrained()) {
+                        return;
+                    } else {
+                        continue;
+                    }
+                }
+
+                if (batching) {
+                    this.dispatcher.deliverBatch(msg, this);
+                } else {
+                    this.dispatcher.deliver(msg, this);
+                }
+
+                if (this.incoming.isDrained()) {
+                    // will set the dispatcher to not active if this is the last lane
+                    return;
+                }
+            }
+        } catch (InterruptedException exp) {
+            if (this.dispatcher.isActive()) {
+                this.dispatcher.connection.processException(exp);
+            } //otherwise we did it
+        } finally {
+            this.thread = null;
+            laneExited();
+        }
+    }
+
+    void runQuantum() {
+        boolean drained = false;
+
+        try {
+            if (this.dispatcher.isBatching()) {
+                // One batch per turn, of whatever is queued, we don't linger on a pool thread
+                NatsMessage msg = this.incoming.accumulate(this.dispatcher.getMaxBatch(), null, null);
+
+                if (msg != null && this.dispatcher.isActive()) {
+                    this.dispatcher.deliverBatch(msg, this);
+                }
+            } else {
+                int delivered = 0;
+
+                while (delivered < this.quantum && this.dispatcher.isActive()) {
+                    NatsMessage msg = this.incoming.popNow();
+
+                    if (msg == null) {
+                        break;
+                    }
+
+                    this.dispatcher.deliver(msg, this);
+                    delivered++;
+                }
+            }
+
+            drained = this.incoming.isDrained();
+        } catch (InterruptedException exp) {
+            if (this.dispatcher.isActive()) {
+                this.dispatcher.connection.processException(exp);
+            }
+        } finally {
+            this.scheduled.set(false);
+        }
+
+        if (drained) {
+            laneExited();
+        } else if (this.dispatcher.isActive() && this.incoming.length() > 0) {
+            // Yield to the other lanes, a message may also have arrived after we cleared the flag
+            schedule();
+        }
+    }
+
+    private void laneExited() {
+        if (this.exited.compareAndSet(false, true)) {
+            this.dispatcher.laneStopped(this);
+        }
+    }
+
+    void stop() {
+        this.incoming.pause();
+
+        Thread t = this.thread;
+        if (t != null) {
+            try {
+                if (t.isAlive()) {
+                    t.interrupt();
+                }
+            } catch (Exception exp) {
+                // let it go
+            }
+        }
+    }
+
+    int getIndex() {
+        return this.index;
+    }
+
+    MessageQueue getMessageQueue() {
+        return this.incoming;
+    }
+
+    long getDeliveredCount() {
+        return this.messagesDelivered.get();
+    }
+
+    void incrementDeliveredCount() {
+        this.messagesDelivered.incrementAndGet();
+    }
+
+    void addDeliveredCount(long count) {
+        this.messagesDelivered.addAndGet(count);
+    }
+}
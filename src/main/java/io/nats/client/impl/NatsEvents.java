@@ -0,0 +1,68 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+/**
+ * Reports what the connection is doing to Java Flight Recorder.
+ * 
+ * <p>This is the Java 8 version, which has no flight recorder, so every method does nothing. The jar is built as a
+ * multi-release jar and a Java 11 version of this class, in {@code META-INF/versions/11}, replaces it on runtimes
+ * that have {@code jdk.jfr}.
+ * 
+ * <p>Timed events are started with a begin method, which returns null unless the event is enabled in the
+ * running recording, and finished by passing that value to the matching end method.
+ */
+class NatsEvents {
+
+    private NatsEvents() {
+    }
+
+    static Object beginSocketRead() {
+        return null;
+    }
+
+    static void endSocketRead(Object event, long bytes) {
+    }
+
+    static Object beginSocketWrite() {
+        return null;
+    }
+
+    static void endSocketWrite(Object event, long bytes, long messages) {
+    }
+
+    static Object beginHandler() {
+        return null;
+    }
+
+    static void endHandler(Object event, String subject, long messages) {
+    }
+
+    static void slowConsumerDrop(String subject, long pendingMessages, long pendingBytes) {
+    }
+
+    static Object beginReconnectPhase() {
+        return null;
+    }
+
+    static void endReconnectPhase(Object event, String phase, String server, boolean success) {
+    }
+
+    static Object beginPing() {
+        return null;
+    }
+
+    static void endPing(Object event) {
+    }
+}
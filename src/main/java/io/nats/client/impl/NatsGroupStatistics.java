@@ -0,0 +1,174 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import io.nats.client.Histogram;
+import io.nats.client.Statistics;
+import io.nats.client.SubjectTraffic;
+
+/**
+ * The statistics for a connection group, each value is the sum over the members and is read
+ * when it is asked for.
+ */
+class NatsGroupStatistics implements Statistics {
+    private final NatsConnection[] members;
+
+    NatsGroupStatistics(NatsConnection[] members) {
+        this.members = members;
+    }
+
+    private long sum(ToLongFunction<Statistics> stat) {
+        long total = 0;
+        for (NatsConnection member : this.members) {
+            total += stat.applyAsLong(member.getStatistics());
+        }
+        return total;
+    }
+
+    private Histogram merge(Function<Statistics, Histogram> stat) {
+        ArrayList<NatsHistogram.Snapshot> snapshots = new ArrayList<>();
+        for (NatsConnection member : this.members) {
+            snapshots.add((NatsHistogram.Snapshot) stat.apply(member.getStatistics()));
+        }
+        return NatsHistogram.Snapshot.merge(snapshots);
+    }
+
+    // Adds up the members' counts for each subject, a subject only in some members' top lists is undercounted
+    private List<SubjectTraffic> mergeSubjects(Function<Statistics, List<SubjectTraffic>> stat) {
+        HashMap<String, long[]> totals = new HashMap<>();
+        for (NatsConnection member : this.members) {
+            for (SubjectTraffic traffic : stat.apply(member.getStatistics())) {
+                long[] total = totals.computeIfAbsent(traffic.getSubject(), (s) -> new long[2]);
+                total[0] += traffic.getMessages();
+                total[1] += traffic.getBytes();
+            }
+        }
+
+        ArrayList<SubjectTraffic> merged = new ArrayList<>(totals.size());
+        totals.forEach((subject, total) -> merged.add(new NatsSubjectTracker.Traffic(subject, total[0], total[1])));
+        merged.sort(Comparator.comparingLong(SubjectTraffic::getBytes).reversed());
+        return Collections.unmodifiableList(merged);
+    }
+
+    private long max(ToLongFunction<Statistics> stat) {
+        long max = 0;
+        for (NatsConnection member : this.members) {
+            max = Math.max(max, stat.applyAsLong(member.getStatistics()));
+        }
+        return max;
+    }
+
+    public long getInMsgs() {
+        return sum(Statistics::getInMsgs);
+    }
+
+    public long getOutMsgs() {
+        return sum(Statistics::getOutMsgs);
+    }
+
+    public long getInBytes() {
+        return sum(Statistics::getInBytes);
+    }
+
+    public long getOutBytes() {
+        return sum(Statistics::getOutBytes);
+    }
+
+    public long getReconnects() {
+        return sum(Statistics::getReconnects);
+    }
+
+    public long getDroppedCount() {
+        return sum(Statistics::getDroppedCount);
+    }
+
+    public long getRequestCacheHits() {
+        return sum(Statistics::getRequestCacheHits);
+    }
+
+    public long getRequestCacheMisses() {
+        return sum(Statistics::getRequestCacheMisses);
+    }
+
+    public long getRequestCacheCoalesced() {
+        return sum(Statistics::getRequestCacheCoalesced);
+    }
+
+    public long getHedgedRequests() {
+        return sum(Statistics::getHedgedRequests);
+    }
+
+    public long getHedgesSent() {
+        return sum(Statistics::getHedgesSent);
+    }
+
+    public long getHedgeWins() {
+        return sum(Statistics::getHedgeWins);
+    }
+
+    public long getLastResubscribeCount() {
+        return sum(Statistics::getLastResubscribeCount);
+    }
+
+    // The members resubscribe in parallel, so this is the slowest of them
+    public long getLastResubscribeNanos() {
+        return max(Statistics::getLastResubscribeNanos);
+    }
+
+    public Histogram getReadSizes() {
+        return merge(Statistics::getReadSizes);
+    }
+
+    public Histogram getWriteSizes() {
+        return merge(Statistics::getWriteSizes);
+    }
+
+    public Histogram getRequestLatency() {
+        return merge(Statistics::getRequestLatency);
+    }
+
+    public Histogram getFlushLatency() {
+        return merge(Statistics::getFlushLatency);
+    }
+
+    public List<SubjectTraffic> getTopInboundSubjects() {
+        return mergeSubjects(Statistics::getTopInboundSubjects);
+    }
+
+    public List<SubjectTraffic> getTopOutboundSubjects() {
+        return mergeSubjects(Statistics::getTopOutboundSubjects);
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < this.members.length; i++) {
+            builder.append("### Member ");
+            builder.append(i);
+            builder.append(" ###\n");
+            builder.append(this.members[i].getStatistics().toString());
+            builder.append("\n");
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.nats.client.Message;
+
+/**
+ * A request that sends a second copy, the hedge, if the first reply is slow. The result completes
+ * with whichever reply arrives first, and the other request is cancelled and removed from the
+ * connection. The result only fails if every copy that was sent fails.
+ */
+class NatsHedgedRequest {
+
+    private final NatsConnection connection;
+    private final NatsTimingWheel wheel;
+    private final String subject;
+    private final byte[] body;
+    private final Duration timeout;
+    private final CompletableFuture<Message> result;
+    private final AtomicInteger attempts;
+    private final AtomicInteger failures;
+    private final AtomicBoolean answered;
+
+    private volatile NatsRequestFuture primary;
+    private volatile NatsRequestFuture hedge;
+    private Duration hedgeDelay;
+
+    NatsHedgedRequest(NatsConnection connection, NatsTimingWheel wheel, String subject, byte[] body, Duration timeout) {
+        this.connection = connection;
+        this.wheel = wheel;
+        this.subject = subject;
+        this.body = body;
+        this.timeout = timeout;
+        this.result = new CompletableFuture<>();
+        this.attempts = new AtomicInteger();
+        this.failures = new AtomicInteger();
+        this.answered = new AtomicBoolean();
+    }
+
+    // A null delay, or one past the timeout, sends no hedge
+    CompletableFuture<Message> start(Duration hedgeDelay) {
+        this.hedgeDelay = hedgeDelay;
+        this.attempts.incrementAndGet();
+        this.primary = this.connection.sendRequest(this.subject, this.body, this.timeout);
+        this.primary.whenComplete((msg, exp) -> replied(msg, exp, false));
+
+        if (hedgeDelay != null && hedgeDelay.compareTo(this.timeout) < 0) {
+            NatsTimingWheel.Timeout hedgeTimer = this.wheel.schedule(this::sendHedge, hedgeDelay);
+
+            if (hedgeTimer != null) {
+                this.result.whenComplete((msg, exp) -> hedgeTimer.cancel());
+            }
+        }
+
+        // If the application cancels, or both copies fail, nothing is left waiting
+        this.result.whenComplete((msg, exp) -> cancelRequests());
+
+        return this.result;
+    }
+
+    private void cancelRequests() {
+        this.connection.cancelRequest(this.primary);
+
+        NatsRequestFuture h = this.hedge;
+        if (h != null) {
+            this.connection.cancelRequest(h);
+        }
+    }
+
+    void sendHedge() {
+        if (this.result.isDone()) {
+            return;
+        }
+
+        this.attempts.incrementAndGet();
+
+        if (this.result.isDone()) { // the primary may have failed while we counted the hedge
+            return;
+        }
+
+        try {
+            // The hedge gets what is left of the timeout, so both copies expire together
+            NatsRequestFuture h = this.connection.sendRequest(this.subject, this.body, this.timeout.minus(this.hedgeDelay));
+            this.hedge = h;
+            this.connection.getNatsStatistics().incrementHedgesSent();
+            h.whenComplete((msg, exp) -> replied(msg, exp, true));
+
+            if (this.result.isDone()) {
+                this.connection.cancelRequest(h);
+            }
+        } catch (RuntimeException exp) {
+            replied(null, exp, true);
+        }
+    }
+
+    void replied(Message msg, Throwable exp, boolean fromHedge) {
+        if (exp == null) {
+            if (this.result.isDone() || !this.answered.compareAndSet(false, true)) {
+                return;
+            }
+
+            // Count the win and remove the loser before anyone waiting on the result wakes up
+            if (fromHedge) {
+                this.connection.getNatsStatistics().incrementHedgeWins();
+            }
+            cancelRequests();
+            this.result.complete(msg);
+        } else if (this.failures.incrementAndGet() >= this.attempts.get()) {
+            this.result.completeExceptionally(exp);
+        }
+    }
+}
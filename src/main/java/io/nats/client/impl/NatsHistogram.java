@@ -0,0 +1,244 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.nats.client.Histogram;
+
+/**
+ * A lock-free histogram of positive long values, like latencies in nanoseconds.
+ *
+ * <p>Values are counted in log-linear buckets: each power of two is split into 8 sub-buckets,
+ * so a bucket is within 12.5% of the values it holds. Recording is an array index calculation,
+ * an atomic increment of the bucket and an atomic add to the sum, plus a compare and set loop
+ * when the value is a new min or max for its stripe. There are no locks, so it is cheap enough
+ * for every request.
+ *
+ * <p>The counts are striped by thread, so threads like the reader and the writer don't share
+ * cache lines. A stripe is only allocated when a thread that maps to it first records a value.
+ */
+class NatsHistogram {
+
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = 64 * SUB_BUCKETS;
+    static final int MAX_STRIPES = 8;
+
+    private final AtomicReferenceArray<Stripe> stripes;
+    private final int stripeMask;
+
+    static class Stripe {
+        private final AtomicLongArray counts;
+        private final AtomicLong sum;
+        private final AtomicLong min;
+        private final AtomicLong max;
+
+        Stripe() {
+            this.counts = new AtomicLongArray(BUCKETS);
+            this.sum = new AtomicLong();
+            this.min = new AtomicLong(Long.MAX_VALUE);
+            this.max = new AtomicLong(Long.MIN_VALUE);
+        }
+
+        void record(long value) {
+            this.counts.incrementAndGet(bucketFor(value));
+            this.sum.addAndGet(value);
+
+            // Usually one thread per stripe, so these rarely loop
+            long current = this.min.get();
+            while (value < current && !this.min.compareAndSet(current, value)) {
+                current = this.min.get();
+            }
+
+            current = this.max.get();
+            while (value > current && !this.max.compareAndSet(current, value)) {
+                current = this.max.get();
+            }
+        }
+    }
+
+    NatsHistogram() {
+        int stripes = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors())));
+        this.stripes = new AtomicReferenceArray<>(stripes);
+        this.stripeMask = stripes - 1;
+    }
+
+    void record(long value) {
+        stripe().record(Math.max(0, value));
+    }
+
+    private Stripe stripe() {
+        long id = Thread.currentThread().getId();
+        int index = (int) (id ^ (id >>> 16)) & this.stripeMask;
+        Stripe stripe = this.stripes.get(index);
+
+        if (stripe == null) {
+            this.stripes.compareAndSet(index, null, new Stripe());
+            stripe = this.stripes.get(index);
+        }
+
+        return stripe;
+    }
+
+    long getCount() {
+        return snapshot().getCount();
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the value at the percentile, or 0 if nothing has
+     * been recorded. Counts may change while this runs, so it is an estimate.
+     */
+    long getPercentile(double percentile) {
+        return snapshot().getPercentile(percentile);
+    }
+
+    // Adds up the stripes, values recorded while this runs may or may not be included
+    Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        for (int s = 0; s < this.stripes.length(); s++) {
+            Stripe stripe = this.stripes.get(s);
+
+            if (stripe == null) {
+                continue;
+            }
+
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.counts.get(i);
+            }
+
+            sum += stripe.sum.get();
+            min = Math.min(min, stripe.min.get());
+            max = Math.max(max, stripe.max.get());
+        }
+
+        return new Snapshot(counts, sum, min, max);
+    }
+
+    static class Snapshot implements Histogram {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        Snapshot(long[] counts, long sum, long min, long max) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+
+            this.counts = counts;
+            this.count = total;
+            this.sum = sum;
+            this.min = (total == 0) ? 0 : min;
+            this.max = (total == 0) ? 0 : max;
+        }
+
+        // Combines snapshots, for example from the members of a connection group
+        static Snapshot merge(Iterable<Snapshot> snapshots) {
+            long[] counts = new long[BUCKETS];
+            long sum = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+
+            for (Snapshot snapshot : snapshots) {
+                if (snapshot.count == 0) {
+                    continue;
+                }
+
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] += snapshot.counts[i];
+                }
+
+                sum += snapshot.sum;
+                min = Math.min(min, snapshot.min);
+                max = Math.max(max, snapshot.max);
+            }
+
+            return new Snapshot(counts, sum, min, max);
+        }
+
+        public long getCount() {
+            return this.count;
+        }
+
+        public long getSum() {
+            return this.sum;
+        }
+
+        public long getMin() {
+            return this.min;
+        }
+
+        public long getMax() {
+            return this.max;
+        }
+
+        public double getMean() {
+            return (this.count == 0) ? 0 : (double) this.sum / this.count;
+        }
+
+        public long getPercentile(double percentile) {
+            if (this.count == 0) {
+                return 0;
+            }
+
+            long target = Math.max(1, (long) Math.ceil(this.count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+            long seen = 0;
+
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += this.counts[i];
+                if (seen >= target) {
+                    return Math.min(upperBound(i), this.max);
+                }
+            }
+
+            return this.max;
+        }
+    }
+
+    static int bucketFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return ((shift + 1) << SUB_BUCKET_BITS) + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        long sub = bucket & (SUB_BUCKETS - 1);
+        return (SUB_BUCKETS + sub) << shift;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket >= bucketFor(Long.MAX_VALUE)) {
+            return Long.MAX_VALUE;
+        }
+        return lowerBound(bucket + 1) - 1;
+    }
+}
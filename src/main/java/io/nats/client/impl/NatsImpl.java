@@ -30,6 +30,10 @@ public class NatsImpl {
         return conn;
     }
 
+    public static Connection createConnectionGroup(Options options, int size) throws IOException, InterruptedException {
+        return NatsConnectionGroup.connect(options, size);
+    }
+
     public static Statistics createEmptyStats() {
         return new NatsStatistics(false);
     }
@@ -0,0 +1,249 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import io.nats.client.ConnectionMXBean;
+import io.nats.client.ConsumerMXBean;
+
+/**
+ * Registers the MXBeans for a connection and its consumers with the platform MBean server. The beans hold
+ * no state of their own, every attribute is read from the connection or consumer when it is asked for.
+ *
+ * <p>JMX problems are passed to the connection's error listener, they never stop the connection.
+ */
+class NatsMBeans {
+    static final String DOMAIN = "io.nats";
+
+    private static final AtomicLong ids = new AtomicLong();
+
+    private final NatsConnection connection;
+    private final MBeanServer server;
+    private final String id;
+    private final ConcurrentHashMap<NatsConsumer, ObjectName> consumers;
+    private ObjectName connectionName;
+
+    NatsMBeans(NatsConnection connection) {
+        this.connection = connection;
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        this.id = String.valueOf(ids.incrementAndGet());
+        this.consumers = new ConcurrentHashMap<>();
+    }
+
+    String getId() {
+        return this.id;
+    }
+
+    void registerConnection() {
+        String name = this.connection.getOptions().getConnectionName();
+
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=Connection,name="
+                    + ObjectName.quote((name != null) ? name : "nats") + ",id=" + this.id);
+            this.server.registerMBean(new ConnectionBean(this.connection), objectName);
+            this.connectionName = objectName;
+        } catch (JMException exp) {
+            this.connection.processException(exp);
+        }
+    }
+
+    void registerDispatcher(NatsDispatcher dispatcher) {
+        register(dispatcher, DOMAIN + ":type=Dispatcher,connection=" + this.id + ",id=" + dispatcher.getId());
+    }
+
+    void registerSubscription(NatsSubscription sub) {
+        register(sub, DOMAIN + ":type=Subscription,connection=" + this.id + ",sid=" + sub.getSID()
+                + ",subject=" + ObjectName.quote(sub.getSubject()));
+    }
+
+    private void register(NatsConsumer consumer, String name) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            this.server.registerMBean(new ConsumerBean(consumer), objectName);
+            this.consumers.put(consumer, objectName);
+        } catch (JMException exp) {
+            this.connection.processException(exp);
+        }
+    }
+
+    void unregister(NatsConsumer consumer) {
+        ObjectName objectName = this.consumers.remove(consumer);
+
+        if (objectName != null) {
+            unregister(objectName);
+        }
+    }
+
+    // Called when the connection closes
+    void unregisterAll() {
+        this.consumers.forEach((consumer, objectName) -> unregister(objectName));
+        this.consumers.clear();
+
+        if (this.connectionName != null) {
+            unregister(this.connectionName);
+            this.connectionName = null;
+        }
+    }
+
+    private void unregister(ObjectName objectName) {
+        try {
+            this.server.unregisterMBean(objectName);
+        } catch (JMException exp) {
+            // Already gone
+        }
+    }
+
+    static class ConnectionBean implements ConnectionMXBean {
+        private final NatsConnection connection;
+
+        ConnectionBean(NatsConnection connection) {
+            this.connection = connection;
+        }
+
+        public String getName() {
+            return this.connection.getOptions().getConnectionName();
+        }
+
+        public String getStatus() {
+            return String.valueOf(this.connection.getStatus());
+        }
+
+        public String getConnectedUrl() {
+            return this.connection.getConnectedUrl();
+        }
+
+        public long getInMsgs() {
+            return this.connection.getNatsStatistics().getInMsgs();
+        }
+
+        public long getOutMsgs() {
+            return this.connection.getNatsStatistics().getOutMsgs();
+        }
+
+        public long getInBytes() {
+            return this.connection.getNatsStatistics().getInBytes();
+        }
+
+        public long getOutBytes() {
+            return this.connection.getNatsStatistics().getOutBytes();
+        }
+
+        public long getReconnects() {
+            return this.connection.getNatsStatistics().getReconnects();
+        }
+
+        public long getDroppedCount() {
+            return this.connection.getNatsStatistics().getDroppedCount();
+        }
+
+        public long getOutgoingPendingMessages() {
+            return this.connection.getWriter().getPendingMessages();
+        }
+
+        public long getOutgoingPendingBytes() {
+            return this.connection.getWriter().getPendingBytes();
+        }
+
+        public long getReconnectBufferedBytes() {
+            return this.connection.getWriter().getBufferedBytes();
+        }
+
+        public long getLastRttNanos() {
+            return this.connection.getNatsStatistics().getLastRttNanos();
+        }
+
+        public long getFlushLatencyP99Nanos() {
+            return this.connection.getNatsStatistics().getFlushLatency().getPercentile(99);
+        }
+
+        public long getRequestLatencyP99Nanos() {
+            return this.connection.getNatsStatistics().getRequestLatency().getPercentile(99);
+        }
+
+        public int getDispatcherCount() {
+            return this.connection.getDispatcherCount();
+        }
+
+        public int getSubscriptionCount() {
+            return this.connection.getSubscriptionCount();
+        }
+    }
+
+    static class ConsumerBean implements ConsumerMXBean {
+        private final NatsConsumer consumer;
+
+        ConsumerBean(NatsConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        public String getSubject() {
+            return (this.consumer instanceof NatsSubscription) ? ((NatsSubscription) this.consumer).getSubject() : null;
+        }
+
+        public String getQueueName() {
+            return (this.consumer instanceof NatsSubscription) ? ((NatsSubscription) this.consumer).getQueueName() : null;
+        }
+
+        public boolean isActive() {
+            return this.consumer.isActive();
+        }
+
+        public int getLaneCount() {
+            return this.consumer.getLaneCount();
+        }
+
+        public long getPendingMessages() {
+            return this.consumer.getPendingMessageCount();
+        }
+
+        public long getPendingBytes() {
+            return this.consumer.getPendingByteCount();
+        }
+
+        public long getPendingMessageLimit() {
+            return this.consumer.getPendingMessageLimit();
+        }
+
+        public long getPendingByteLimit() {
+            return this.consumer.getPendingByteLimit();
+        }
+
+        public long getDeliveredCount() {
+            return this.consumer.getDeliveredCount();
+        }
+
+        public long getDroppedCount() {
+            return this.consumer.getDroppedCount();
+        }
+
+        public long getOldestPendingNanos() {
+            return this.consumer.getOldestPendingNanos();
+        }
+
+        public long getResidencyP99Nanos() {
+            return this.consumer.getResidencyTime().getPercentile(99);
+        }
+
+        public long getHandlerP99Nanos() {
+            return this.consumer.getHandlerTime().getPercentile(99);
+        }
+    }
+}
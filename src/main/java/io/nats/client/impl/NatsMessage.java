@@ -26,6 +26,7 @@ class NatsMessage implements Message {
     private byte[] protocolBytes;
     private NatsSubscription subscription;
     private long sizeInBytes;
+    private long enqueueNanos; // 0 unless the connection is timing consumers
     
     NatsMessage next; // for linked list
 
@@ -119,6 +120,12 @@ class NatsMessage implements Message {
         this.sizeInBytes = this.protocolBytes.length + 2;// for \r\n
     }
 
+    // Create a protocol only message from lines that are already encoded, without the final \r\n
+    NatsMessage(byte[] protocol) {
+        this.protocolBytes = protocol;
+        this.sizeInBytes = this.protocolBytes.length + 2;// for \r\n
+    }
+
     // Create an incoming message for a subscriber
     // Doesn't check controlline size, since the server sent us the message
     NatsMessage(String sid, String subject, String replyTo, int protocolLength) {
@@ -148,6 +155,14 @@ class NatsMessage implements Message {
         return sizeInBytes;
     }
 
+    void setEnqueueNanos(long nanos) {
+        this.enqueueNanos = nanos;
+    }
+
+    long getEnqueueNanos() {
+        return this.enqueueNanos;
+    }
+
     String getSID() {
         return this.sid;
     }
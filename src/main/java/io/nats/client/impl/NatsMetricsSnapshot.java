@@ -0,0 +1,209 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.nats.client.Histogram;
+import io.nats.client.MetricsSnapshot;
+import io.nats.client.SubjectTraffic;
+
+/**
+ * Copies the statistics of a connection in one pass, counters first and histograms last, so the counters
+ * are as close together in time as the reads allow. Rates are against the previous snapshot.
+ */
+class NatsMetricsSnapshot implements MetricsSnapshot {
+    private final String connectionName;
+    private final long timestamp;
+    private final long nanos;
+    private final long intervalNanos;
+
+    private final long inMsgs;
+    private final long outMsgs;
+    private final long inBytes;
+    private final long outBytes;
+    private final long reconnects;
+    private final long droppedCount;
+    private final long requestCacheHits;
+    private final long requestCacheMisses;
+    private final long requestCacheCoalesced;
+    private final long hedgedRequests;
+    private final long hedgesSent;
+    private final long hedgeWins;
+    private final long lastResubscribeCount;
+    private final long lastResubscribeNanos;
+
+    private final Histogram readSizes;
+    private final Histogram writeSizes;
+    private final Histogram requestLatency;
+    private final Histogram flushLatency;
+    private final List<SubjectTraffic> topInboundSubjects;
+    private final List<SubjectTraffic> topOutboundSubjects;
+
+    private final double inMsgsPerSecond;
+    private final double outMsgsPerSecond;
+    private final double inBytesPerSecond;
+    private final double outBytesPerSecond;
+
+    // The previous snapshot is null for the first one, which is measured from start, when the connection was made
+    NatsMetricsSnapshot(String connectionName, NatsStatistics stats, NatsMetricsSnapshot previous, long start) {
+        this.nanos = System.nanoTime();
+        this.timestamp = System.currentTimeMillis();
+        this.connectionName = connectionName;
+
+        this.inMsgs = stats.getInMsgs();
+        this.outMsgs = stats.getOutMsgs();
+        this.inBytes = stats.getInBytes();
+        this.outBytes = stats.getOutBytes();
+        this.reconnects = stats.getReconnects();
+        this.droppedCount = stats.getDroppedCount();
+        this.requestCacheHits = stats.getRequestCacheHits();
+        this.requestCacheMisses = stats.getRequestCacheMisses();
+        this.requestCacheCoalesced = stats.getRequestCacheCoalesced();
+        this.hedgedRequests = stats.getHedgedRequests();
+        this.hedgesSent = stats.getHedgesSent();
+        this.hedgeWins = stats.getHedgeWins();
+        this.lastResubscribeCount = stats.getLastResubscribeCount();
+        this.lastResubscribeNanos = stats.getLastResubscribeNanos();
+
+        this.readSizes = stats.getReadSizes();
+        this.writeSizes = stats.getWriteSizes();
+        this.requestLatency = stats.getRequestLatency();
+        this.flushLatency = stats.getFlushLatency();
+        this.topInboundSubjects = stats.getTopInboundSubjects();
+        this.topOutboundSubjects = stats.getTopOutboundSubjects();
+
+        this.intervalNanos = this.nanos - ((previous != null) ? previous.nanos : start);
+        this.inMsgsPerSecond = rate(this.inMsgs, (previous != null) ? previous.inMsgs : 0);
+        this.outMsgsPerSecond = rate(this.outMsgs, (previous != null) ? previous.outMsgs : 0);
+        this.inBytesPerSecond = rate(this.inBytes, (previous != null) ? previous.inBytes : 0);
+        this.outBytesPerSecond = rate(this.outBytes, (previous != null) ? previous.outBytes : 0);
+    }
+
+    private double rate(long current, long previous) {
+        if (this.intervalNanos <= 0) {
+            return 0;
+        }
+        return (double) (current - previous) * TimeUnit.SECONDS.toNanos(1) / this.intervalNanos;
+    }
+
+    public String getConnectionName() {
+        return this.connectionName;
+    }
+
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    public long getIntervalNanos() {
+        return this.intervalNanos;
+    }
+
+    public double getInMsgsPerSecond() {
+        return this.inMsgsPerSecond;
+    }
+
+    public double getOutMsgsPerSecond() {
+        return this.outMsgsPerSecond;
+    }
+
+    public double getInBytesPerSecond() {
+        return this.inBytesPerSecond;
+    }
+
+    public double getOutBytesPerSecond() {
+        return this.outBytesPerSecond;
+    }
+
+    public long getInMsgs() {
+        return this.inMsgs;
+    }
+
+    public long getOutMsgs() {
+        return this.outMsgs;
+    }
+
+    public long getInBytes() {
+        return this.inBytes;
+    }
+
+    public long getOutBytes() {
+        return this.outBytes;
+    }
+
+    public long getReconnects() {
+        return this.reconnects;
+    }
+
+    public long getDroppedCount() {
+        return this.droppedCount;
+    }
+
+    public long getRequestCacheHits() {
+        return this.requestCacheHits;
+    }
+
+    public long getRequestCacheMisses() {
+        return this.requestCacheMisses;
+    }
+
+    public long getRequestCacheCoalesced() {
+        return this.requestCacheCoalesced;
+    }
+
+    public long getHedgedRequests() {
+        return this.hedgedRequests;
+    }
+
+    public long getHedgesSent() {
+        return this.hedgesSent;
+    }
+
+    public long getHedgeWins() {
+        return this.hedgeWins;
+    }
+
+    public long getLastResubscribeCount() {
+        return this.lastResubscribeCount;
+    }
+
+    public long getLastResubscribeNanos() {
+        return this.lastResubscribeNanos;
+    }
+
+    public Histogram getReadSizes() {
+        return this.readSizes;
+    }
+
+    public Histogram getWriteSizes() {
+        return this.writeSizes;
+    }
+
+    public Histogram getRequestLatency() {
+        return this.requestLatency;
+    }
+
+    public Histogram getFlushLatency() {
+        return this.flushLatency;
+    }
+
+    public List<SubjectTraffic> getTopInboundSubjects() {
+        return this.topInboundSubjects;
+    }
+
+    public List<SubjectTraffic> getTopOutboundSubjects() {
+        return this.topOutboundSubjects;
+    }
+}
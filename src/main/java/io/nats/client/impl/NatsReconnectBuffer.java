@@ -0,0 +1,226 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the publishes made while the connection is down as encoded PUB frames in off-heap chunks,
+ * so a long outage doesn't fill the old generation with message objects. Frames are kept in the
+ * order they were published and the writer sends them a buffer full at a time once the connection is back.
+ *
+ * <p>A frame never spans two chunks, so a chunk can be resent as is after a failed write. Chunks are
+ * returned to a pool shared by all connections when they have been written.
+ */
+class NatsReconnectBuffer implements ReplayBuffer {
+    static final int CHUNK_SIZE = 64 * 1024;
+    static final int MAX_POOLED_CHUNKS = 128; // the default reconnect buffer size
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    private final ArrayDeque<Chunk> chunks;
+    private final ReentrantLock lock;
+    private long sizeInBytes;
+    private volatile long length; // written under lock, read without it on every connected publish
+
+    // The last peek, which commit consumes
+    private int peekChunks;
+    private long peekMessages;
+    private long peekBytes;
+
+    static class Chunk {
+        private final ByteBuffer buffer;
+        private int messages;
+
+        Chunk(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    NatsReconnectBuffer() {
+        this.chunks = new ArrayDeque<>();
+        this.lock = new ReentrantLock();
+    }
+
+    // Appends the frame for the message, unless that would take the buffer to maxSize or more. A maxSize of 0 or
+    // less means there is no limit.
+    boolean append(NatsMessage msg, long maxSize) {
+        lock.lock();
+        try {
+            long size = msg.getSizeInBytes();
+
+            if (maxSize > 0 && (this.sizeInBytes + size) >= maxSize) {
+                return false;
+            }
+
+            Chunk chunk = this.chunks.peekLast();
+
+            // Peeked chunks may be written already, don't add to them
+            if (chunk == null || chunk.buffer.remaining() < size || this.chunks.size() <= this.peekChunks) {
+                chunk = new Chunk(allocate((int) size));
+                this.chunks.addLast(chunk);
+            }
+
+            ByteBuffer buffer = chunk.buffer;
+            buffer.put(msg.getProtocolBytes());
+            buffer.put(NatsConnection.CRLF);
+            buffer.put(msg.getData());
+            buffer.put(NatsConnection.CRLF);
+            chunk.messages++;
+
+            this.sizeInBytes += size;
+            this.length++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return this.length == 0;
+    }
+
+    long sizeInBytes() {
+        lock.lock();
+        try {
+            return this.sizeInBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long length() {
+        return this.length;
+    }
+
+    // Copies whole chunks from the front of the buffer into dst, without consuming them. Returns the number of bytes
+    // copied, or minus the size of the first chunk if it doesn't fit in dst at all.
+    public int peek(byte[] dst) {
+        lock.lock();
+        try {
+            int copied = 0;
+            int count = 0;
+            long messages = 0;
+
+            for (Chunk chunk : this.chunks) {
+                int size = chunk.buffer.position();
+
+                if (copied + size > dst.length) {
+                    if (count == 0) {
+                        return -size;
+                    }
+                    break;
+                }
+
+                ByteBuffer frames = chunk.buffer.duplicate();
+                frames.flip();
+                frames.get(dst, copied, size);
+
+                copied += size;
+                messages += chunk.messages;
+                count++;
+            }
+
+            this.peekChunks = count;
+            this.peekMessages = messages;
+            this.peekBytes = copied;
+            return copied;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPeekBytes() {
+        return this.peekBytes;
+    }
+
+    // Consumes the chunks from the last peek, once they are written, and returns how many messages they held
+    public long commit() {
+        lock.lock();
+        try {
+            long messages = this.peekMessages;
+
+            for (int i = 0; i < this.peekChunks; i++) {
+                release(this.chunks.pollFirst().buffer);
+            }
+
+            this.sizeInBytes -= this.peekBytes;
+            this.length -= messages;
+            this.peekChunks = 0;
+            this.peekMessages = 0;
+            this.peekBytes = 0;
+            return messages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops everything in the buffer, returns the number of messages dropped
+    long clear() {
+        lock.lock();
+        try {
+            long dropped = this.length;
+            Chunk chunk;
+
+            while ((chunk = this.chunks.pollFirst()) != null) {
+                release(chunk.buffer);
+            }
+
+            this.sizeInBytes = 0;
+            this.length = 0;
+            this.peekChunks = 0;
+            this.peekMessages = 0;
+            this.peekBytes = 0;
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static ByteBuffer allocate(int size) {
+        if (size > CHUNK_SIZE) {
+            return ByteBuffer.allocateDirect(size); // too big to pool
+        }
+
+        ByteBuffer buffer = pool.poll();
+
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(CHUNK_SIZE);
+        }
+
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    static void release(ByteBuffer buffer) {
+        if (buffer.capacity() != CHUNK_SIZE || pooled.incrementAndGet() > MAX_POOLED_CHUNKS) {
+            if (buffer.capacity() == CHUNK_SIZE) {
+                pooled.decrementAndGet();
+            }
+            return; // let the collector free it
+        }
+
+        buffer.clear();
+        pool.add(buffer);
+    }
+
+    static int getPooledChunks() {
+        return pooled.get();
+    }
+}
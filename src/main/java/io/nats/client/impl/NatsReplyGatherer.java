@@ -0,0 +1,86 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+
+/**
+ * Collects the replies to a single requestMany() call. Replies are added on the inbox
+ * dispatcher's thread, while the timeout fires on the timing wheel, so adding and
+ * finishing are synchronized.
+ */
+class NatsReplyGatherer {
+
+    private final String token;
+    private final int maxReplies;
+    private final MessageHandler handler;
+    private final CompletableFuture<List<Message>> future;
+    private final List<Message> replies;
+    private boolean finished;
+
+    NatsReplyGatherer(String token, int maxReplies, MessageHandler handler) {
+        this.token = token;
+        this.maxReplies = maxReplies;
+        this.handler = handler;
+        this.future = new CompletableFuture<>();
+        this.replies = new ArrayList<>();
+    }
+
+    String getToken() {
+        return this.token;
+    }
+
+    MessageHandler getHandler() {
+        return this.handler;
+    }
+
+    CompletableFuture<List<Message>> getFuture() {
+        return this.future;
+    }
+
+    // Returns false if the gatherer already finished
+    synchronized boolean add(Message msg) {
+        if (this.finished) {
+            return false;
+        }
+
+        this.replies.add(msg);
+        return true;
+    }
+
+    synchronized boolean isFull() {
+        return this.replies.size() >= this.maxReplies;
+    }
+
+    // Completes the future with the replies so far, only the first call does anything
+    boolean finish() {
+        List<Message> result;
+
+        synchronized (this) {
+            if (this.finished) {
+                return false;
+            }
+            this.finished = true;
+            result = new ArrayList<>(this.replies);
+        }
+
+        this.future.complete(result);
+        return true;
+    }
+}
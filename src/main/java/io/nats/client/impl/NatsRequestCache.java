@@ -0,0 +1,297 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import io.nats.client.Message;
+
+/**
+ * Caches replies to requests on the subjects configured with
+ * {@link io.nats.client.Options.Builder#cacheRequests(String, Duration) cacheRequests()}.
+ * 
+ * <p>Requests are keyed by subject and body. While a request is in flight, identical requests
+ * are given a future that completes with the same reply, so they don't go to the server. Once
+ * the reply arrives it is kept until its time to live runs out, or until it is the least recently
+ * used reply in a full cache.
+ * 
+ * <p>The request in flight belongs to the cache, not to the caller that started it. It is sent without
+ * a timeout, and each caller, the first one included, gets its own future that only applies that caller's
+ * timeout. Cancelling or timing out one caller leaves the others waiting. The request is only given up when
+ * every caller waiting on it has.
+ */
+class NatsRequestCache {
+
+    private static class Key {
+        private final String subject;
+        private final byte[] body;
+        private final int hash;
+
+        Key(String subject, byte[] body) {
+            this.subject = subject;
+            this.body = body.clone(); // the caller may reuse its buffer
+            this.hash = 31 * subject.hashCode() + Arrays.hashCode(body);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.hash == other.hash && this.subject.equals(other.subject) && Arrays.equals(this.body, other.body);
+        }
+    }
+
+    private static class CachedReply {
+        private final Message reply;
+        private final long expires;
+
+        CachedReply(Message reply, long expires) {
+            this.reply = reply;
+            this.expires = expires;
+        }
+    }
+
+    // A request in flight and the number of callers waiting on it
+    private class Flight {
+        private final Key key;
+        private final CompletableFuture<Message> shared;
+        private CompletableFuture<Message> sent; // guarded by this
+        private int waiting; // guarded by this, -1 once the flight is given up
+
+        Flight(Key key) {
+            this.key = key;
+            this.shared = new CompletableFuture<>();
+        }
+
+        synchronized boolean join() {
+            if (this.waiting < 0) {
+                return false;
+            }
+            this.waiting++;
+            return true;
+        }
+
+        synchronized void setSent(CompletableFuture<Message> sent) {
+            this.sent = sent;
+        }
+
+        void leave() {
+            CompletableFuture<Message> abandoned;
+
+            synchronized (this) {
+                this.waiting--;
+
+                if (this.waiting > 0 || this.shared.isDone()) {
+                    return;
+                }
+
+                this.waiting = -1;
+                abandoned = this.sent;
+            }
+
+            // No one is waiting, cancelled requests are removed by the connection's cleanup timer
+            inFlight.remove(this.key, this);
+            if (abandoned != null) {
+                abandoned.cancel(true);
+            }
+        }
+
+        // A future for one caller, with that caller's timeout
+        CompletableFuture<Message> waitFor(Duration timeout) {
+            CompletableFuture<Message> result = new CompletableFuture<>();
+
+            this.shared.whenComplete((msg, exp) -> {
+                if (exp != null) {
+                    result.completeExceptionally(exp);
+                } else {
+                    result.complete(msg);
+                }
+            });
+
+            if (timeout != null) {
+                NatsTimingWheel.Timeout expiry = timeouts.schedule(
+                        () -> result.completeExceptionally(new TimeoutException("Request timed out")), timeout);
+
+                if (expiry != null) {
+                    result.whenComplete((msg, exp) -> expiry.cancel());
+                }
+            }
+
+            result.whenComplete((msg, exp) -> leave());
+            return result;
+        }
+    }
+
+    private final Map<String, Duration> ttls;
+    private final NatsStatistics statistics;
+    private final NatsTimingWheel timeouts;
+    private final Map<Key, Flight> inFlight;
+    private final LinkedHashMap<Key, CachedReply> replies;
+    private final ReentrantLock lock;
+
+    NatsRequestCache(Map<String, Duration> ttls, int maxEntries, NatsStatistics statistics, NatsTimingWheel timeouts) {
+        this.ttls = ttls;
+        this.statistics = statistics;
+        this.timeouts = timeouts;
+        this.inFlight = new ConcurrentHashMap<>();
+        this.lock = new ReentrantLock();
+
+        // Access order makes the eldest entry the least recently used
+        this.replies = new LinkedHashMap<Key, CachedReply>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedReply> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    boolean isCached(String subject) {
+        return this.ttls.containsKey(subject);
+    }
+
+    // Returns the cached reply, or waits on the in flight request or the new request made by send. Send is
+    // given the timeout for the request, which is null for the cache's own shared request.
+    CompletableFuture<Message> request(String subject, byte[] body, Duration timeout,
+            Function<Duration, CompletableFuture<Message>> send) {
+        Duration ttl = this.ttls.get(subject);
+
+        if (ttl == null) {
+            return send.apply(timeout);
+        }
+
+        Key key = new Key(subject, body);
+        Message cached = lookup(key);
+
+        if (cached != null) {
+            this.statistics.incrementRequestCacheHits();
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        Flight flight = new Flight(key);
+        flight.join();
+
+        while (true) {
+            Flight existing = this.inFlight.putIfAbsent(key, flight);
+
+            if (existing == null) {
+                break;
+            }
+
+            if (existing.join()) {
+                this.statistics.incrementRequestCacheCoalesced();
+                return existing.waitFor(timeout);
+            }
+
+            this.inFlight.remove(key, existing); // given up, but not removed yet
+        }
+
+        this.statistics.incrementRequestCacheMisses();
+
+        CompletableFuture<Message> sent;
+        try {
+            sent = send.apply(null); // the callers' timeouts decide how long it is waited for
+        } catch (RuntimeException exp) {
+            this.inFlight.remove(key, flight);
+            flight.shared.completeExceptionally(exp);
+            throw exp;
+        }
+
+        flight.setSent(sent);
+        sent.whenComplete((msg, exp) -> {
+            if (msg != null) {
+                store(key, msg, ttl);
+            }
+
+            // Store first, so there is no gap where a new request sees neither the reply nor the flight
+            this.inFlight.remove(key, flight);
+
+            if (exp != null) {
+                flight.shared.completeExceptionally(exp);
+            } else {
+                flight.shared.complete(msg);
+            }
+        });
+
+        return flight.waitFor(timeout);
+    }
+
+    private Message lookup(Key key) {
+        lock.lock();
+        try {
+            CachedReply entry = this.replies.get(key);
+
+            if (entry == null) {
+                return null;
+            }
+
+            if (System.nanoTime() - entry.expires >= 0) {
+                this.replies.remove(key);
+                return null;
+            }
+
+            return entry.reply;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(Key key, Message reply, Duration ttl) {
+        long expires = System.nanoTime() + ttl.toNanos();
+
+        lock.lock();
+        try {
+            this.replies.put(key, new CachedReply(reply, expires));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return this.replies.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            this.replies.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
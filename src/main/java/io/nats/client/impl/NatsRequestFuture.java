@@ -0,0 +1,57 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.concurrent.CompletableFuture;
+
+import io.nats.client.Message;
+
+/**
+ * The future handed out for a request. It remembers its response token, so the connection
+ * can remove it when it times out or is cancelled, and when it was sent, to track latency.
+ */
+class NatsRequestFuture extends CompletableFuture<Message> {
+
+    private final String token;
+    private final long counterToken;
+    private final long startNanos;
+
+    NatsRequestFuture(String token) {
+        this.token = token;
+        this.counterToken = -1;
+        this.startNanos = System.nanoTime();
+    }
+
+    NatsRequestFuture(long counterToken) {
+        this.token = null;
+        this.counterToken = counterToken;
+        this.startNanos = System.nanoTime();
+    }
+
+    String getToken() {
+        return this.token;
+    }
+
+    long getCounterToken() {
+        return this.counterToken;
+    }
+
+    boolean hasCounterToken() {
+        return this.token == null;
+    }
+
+    long getStartNanos() {
+        return this.startNanos;
+    }
+}
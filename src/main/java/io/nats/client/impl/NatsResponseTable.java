@@ -0,0 +1,149 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A lock-free table keyed by long tokens, used to match replies to requests when response
+ * tokens are counters.
+ * 
+ * <p>Tokens are handed out in increasing order, so they spread evenly over a fixed array of slots,
+ * indexed by the low bits of the token. Put and remove are a single compare and set on the slot,
+ * with no boxing or hashing. If a slot is still held by an older token, for example a slow request
+ * with a long timeout, the new entry goes to an overflow map instead.
+ */
+class NatsResponseTable<T> {
+
+    private static class Entry<T> {
+        private final long token;
+        private final T value;
+
+        Entry(long token, T value) {
+            this.token = token;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry<T>> slots;
+    private final int mask;
+    private final Map<Long, T> overflow;
+    private final AtomicLong size;
+
+    NatsResponseTable(int slotCount) {
+        if (slotCount <= 0 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two");
+        }
+
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.mask = slotCount - 1;
+        this.overflow = new ConcurrentHashMap<>();
+        this.size = new AtomicLong();
+    }
+
+    void put(long token, T value) {
+        if (!this.slots.compareAndSet(index(token), null, new Entry<>(token, value))) {
+            this.overflow.put(token, value);
+        }
+        this.size.incrementAndGet();
+    }
+
+    T get(long token) {
+        Entry<T> entry = this.slots.get(index(token));
+
+        if (entry != null && entry.token == token) {
+            return entry.value;
+        }
+
+        return this.overflow.get(token);
+    }
+
+    T remove(long token) {
+        int index = index(token);
+        Entry<T> entry = this.slots.get(index);
+
+        if (entry != null && entry.token == token) {
+            if (this.slots.compareAndSet(index, entry, null)) {
+                this.size.decrementAndGet();
+                return entry.value;
+            }
+            return null; // someone else removed it
+        }
+
+        T value = this.overflow.remove(token);
+
+        if (value != null) {
+            this.size.decrementAndGet();
+        }
+
+        return value;
+    }
+
+    // Only removes the entry if it still maps to this value
+    boolean remove(long token, T value) {
+        int index = index(token);
+        Entry<T> entry = this.slots.get(index);
+
+        if (entry != null && entry.token == token) {
+            if (entry.value == value && this.slots.compareAndSet(index, entry, null)) {
+                this.size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        if (this.overflow.remove(token, value)) {
+            this.size.decrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    // Removes every entry that matches the filter, then passes each one that this call removed to the consumer
+    void removeIf(Predicate<? super T> filter, Consumer<? super T> removed) {
+        for (int i = 0; i < this.slots.length(); i++) {
+            Entry<T> entry = this.slots.get(i);
+
+            if (entry != null && filter.test(entry.value) && this.slots.compareAndSet(i, entry, null)) {
+                this.size.decrementAndGet();
+                removed.accept(entry.value);
+            }
+        }
+
+        for (Iterator<Map.Entry<Long, T>> i = this.overflow.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Long, T> entry = i.next();
+            T value = entry.getValue();
+
+            if (filter.test(value) && this.overflow.remove(entry.getKey(), value)) {
+                this.size.decrementAndGet();
+                removed.accept(value);
+            }
+        }
+    }
+
+    long size() {
+        return this.size.get();
+    }
+
+    private int index(long token) {
+        return (int) (token & this.mask);
+    }
+}
@@ -0,0 +1,65 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The process wide scheduler that connections share for their timers: pings, request cleanup and
+ * timeouts, reconnect waits and drain checks. Sharing it means an application with many connections
+ * doesn't pay for a timer thread per connection.
+ * 
+ * <p>The scheduler is created on first use and its threads are daemons, so it never keeps the JVM
+ * alive. Connections cancel their own tasks when they close, they never shut the scheduler down.
+ * 
+ * <p>Scheduled work must never block and never runs application code. Anything that blocks, like a flush,
+ * is handed off to another thread, and work that completes an application's future, like a request
+ * timeout, is handed to the connection's callback executor so the application's dependent stages don't
+ * run here. The pool grows with the processor count so many busy connections still get their ticks on time.
+ */
+class NatsScheduler {
+
+    static final int SHARED_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 4);
+
+    private static volatile ScheduledExecutorService shared;
+
+    static ScheduledExecutorService shared() {
+        ScheduledExecutorService s = shared;
+
+        if (s == null) {
+            synchronized (NatsScheduler.class) {
+                s = shared;
+                if (s == null) {
+                    s = createShared();
+                    shared = s;
+                }
+            }
+        }
+
+        return s;
+    }
+
+    private static ScheduledExecutorService createShared() {
+        AtomicInteger threadNo = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(SHARED_THREADS, (r) -> {
+            Thread t = new Thread(r, "Nats Scheduler " + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true); // cancelled connection timers shouldn't pile up in the queue
+        return executor;
+    }
+}
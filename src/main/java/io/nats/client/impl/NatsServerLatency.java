@@ -0,0 +1,153 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The PING round trip time to each server the connection has talked to, kept as an exponentially
+ * weighted moving average so one slow ping doesn't reorder the servers. Only PING round trips are
+ * recorded, so the averages are comparable.
+ *
+ * <p>A server is unhealthy from the time a connect to it fails, or the connection to it is lost,
+ * until a round trip to it succeeds again.
+ */
+class NatsServerLatency {
+    // Weight of the newest sample, about the last ten samples count
+    static final double ALPHA = 0.2;
+
+    private final ConcurrentHashMap<String, Entry> servers;
+
+    static class Entry {
+        private double average = -1;
+        private long samples;
+        private long failures; // since the last good sample
+
+        synchronized void record(long nanos) {
+            this.average = (this.average < 0) ? nanos : (ALPHA * nanos) + ((1 - ALPHA) * this.average);
+            this.samples++;
+            this.failures = 0;
+        }
+
+        synchronized void recordFailure() {
+            this.failures++;
+        }
+
+        synchronized double getAverage() {
+            return this.average;
+        }
+
+        synchronized long getSamples() {
+            return this.samples;
+        }
+
+        synchronized long getFailures() {
+            return this.failures;
+        }
+    }
+
+    NatsServerLatency() {
+        this.servers = new ConcurrentHashMap<>();
+    }
+
+    void record(String server, long nanos) {
+        if (server != null && nanos >= 0) {
+            this.servers.computeIfAbsent(server, (s) -> new Entry()).record(nanos);
+        }
+    }
+
+    void recordFailure(String server) {
+        if (server != null) {
+            this.servers.computeIfAbsent(server, (s) -> new Entry()).recordFailure();
+        }
+    }
+
+    // The average round trip, or null if the server hasn't been measured
+    Duration getLatency(String server) {
+        Entry entry = this.servers.get(server);
+
+        if (entry == null || entry.getSamples() == 0) {
+            return null;
+        }
+
+        return Duration.ofNanos((long) entry.getAverage());
+    }
+
+    boolean isHealthy(String server) {
+        Entry entry = this.servers.get(server);
+        return entry == null || entry.getFailures() == 0;
+    }
+
+    Map<String, Duration> getLatencies() {
+        HashMap<String, Duration> latencies = new HashMap<>();
+
+        this.servers.forEach((server, entry) -> {
+            if (entry.getSamples() > 0) {
+                latencies.put(server, Duration.ofNanos((long) entry.getAverage()));
+            }
+        });
+
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    // Healthy servers with the lowest round trip come first, then the servers that haven't been measured, in the
+    // order given, then the unhealthy ones with the fewest recent failures first
+    List<String> order(Collection<String> candidates) {
+        ArrayList<String> healthy = new ArrayList<>();
+        ArrayList<String> unmeasured = new ArrayList<>();
+        ArrayList<String> unhealthy = new ArrayList<>();
+
+        // The pings and probes update the entries while we sort, so sort on a copy of each value
+        HashMap<String, Double> averages = new HashMap<>();
+        HashMap<String, Long> failures = new HashMap<>();
+
+        for (String server : candidates) {
+            Entry entry = this.servers.get(server);
+
+            if (entry == null) {
+                unmeasured.add(server);
+                continue;
+            }
+
+            synchronized (entry) {
+                if (entry.samples == 0 && entry.failures == 0) {
+                    unmeasured.add(server);
+                } else if (entry.failures == 0) {
+                    healthy.add(server);
+                    averages.put(server, entry.average);
+                } else {
+                    unhealthy.add(server);
+                    failures.put(server, entry.failures);
+                }
+            }
+        }
+
+        healthy.sort(Comparator.comparingDouble(averages::get));
+        unhealthy.sort(Comparator.comparingLong(failures::get));
+
+        ArrayList<String> ordered = new ArrayList<>(candidates.size());
+        ordered.addAll(healthy);
+        ordered.addAll(unmeasured);
+        ordered.addAll(unhealthy);
+        return ordered;
+    }
+}
@@ -0,0 +1,129 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A server that answered a probe, with its open data port and the INFO it sent. Reconnect
+ * uses probes to try several servers at once and keeps the first one that answers.
+ */
+class NatsServerProbe {
+    private final String server;
+    private final DataPort dataPort;
+    private final String infoJson;
+
+    NatsServerProbe(String server, DataPort dataPort, String infoJson) {
+        this.server = server;
+        this.dataPort = dataPort;
+        this.infoJson = infoJson;
+    }
+
+    String getServer() {
+        return this.server;
+    }
+
+    DataPort getDataPort() {
+        return this.dataPort;
+    }
+
+    String getInfoJson() {
+        return this.infoJson;
+    }
+
+    // Connects to each server on its own thread and waits for the first one to send its INFO, the other ports are
+    // closed. Returns null if none of the servers answer within the connection timeout.
+    static NatsServerProbe race(NatsConnection conn, List<String> servers) throws InterruptedException {
+        CompletableFuture<NatsServerProbe> winner = new CompletableFuture<>();
+        ConcurrentHashMap<String, DataPort> ports = new ConcurrentHashMap<>();
+        AtomicInteger failed = new AtomicInteger();
+
+        for (String server : servers) {
+            Thread t = conn.createThread(() -> {
+                DataPort port = null;
+
+                try {
+                    port = conn.getOptions().buildDataPort();
+                    ports.put(server, port);
+
+                    // Only PING round trips are recorded, opening a socket isn't comparable
+                    port.connect(server, conn);
+
+                    // race() closes the ports it knows about once there is a winner, but a port can't be closed
+                    // before it connects and reading the INFO from a silent server would block forever
+                    if (winner.isDone()) {
+                        closeQuietly(port);
+                        return;
+                    }
+
+                    String info = conn.readInitialInfo(port);
+
+                    if (winner.complete(new NatsServerProbe(server, port, info))) {
+                        return;
+                    }
+                } catch (IOException | RuntimeException exp) {
+                    if (!winner.isDone()) {
+                        conn.getServerLatency().recordFailure(server); // not one we closed
+                    }
+
+                    if (failed.incrementAndGet() == servers.size()) {
+                        winner.complete(null);
+                    }
+                }
+
+                closeQuietly(port);
+            }, "Nats Server Probe " + server);
+            t.start();
+        }
+
+        NatsServerProbe probe = null;
+
+        try {
+            Duration timeout = conn.getOptions().getConnectionTimeout();
+            probe = winner.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException exp) {
+            winner.complete(null);
+            probe = winner.getNow(null);
+        } finally {
+            // Unblock the probes that are still connecting or reading
+            for (DataPort port : ports.values()) {
+                if (probe == null || port != probe.getDataPort()) {
+                    closeQuietly(port);
+                }
+            }
+        }
+
+        return probe;
+    }
+
+    static void closeQuietly(DataPort port) {
+        if (port == null) {
+            return;
+        }
+
+        try {
+            port.close();
+        } catch (IOException | RuntimeException exp) {
+            // ignore, the probe lost
+        }
+    }
+}
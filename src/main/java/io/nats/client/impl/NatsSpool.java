@@ -0,0 +1,247 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A memory-mapped file that holds publishes once the reconnect buffer is full.
+ * Each message is written as a 4 byte length followed by the bytes that go on the wire, and the
+ * writer replays them in order, a buffer full at a time, once the connection is back.
+ *
+ * <p>The file is mapped in segments as it grows, up to the maximum size, and used as a ring. Space the
+ * writer has replayed is written again once the end of the file is reached, so publishes made while a
+ * replay is under way only run out of room if the replay falls a whole file behind. When the writer has
+ * replayed everything the positions go back to the start, so the file is reused by the next outage.
+ *
+ * <p>Once a message is spooled, later publishes are spooled too until the spool is empty, so
+ * publishes keep their order.
+ */
+class NatsSpool implements ReplayBuffer {
+    static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+    static final int LENGTH_BYTES = 4;
+
+    private final Path path;
+    private final long maxBytes;
+    private final int segmentSize;
+    private final FileChannel channel;
+    private final ArrayList<MappedByteBuffer> segments;
+    private final ReentrantLock lock;
+    private final byte[] header; // guarded by lock, for reading and writing lengths
+
+    // Positions only grow, the place in the file is the position modulo the max size
+    private long writePosition;
+    private long readPosition;
+    private volatile boolean active; // written under lock, read without it on every publish
+    private boolean closed;
+
+    // The last peek, which commit consumes
+    private long peekEnd;
+    private long peekMessages;
+    private long peekBytes;
+
+    NatsSpool(Path path, long maxBytes) throws IOException {
+        if (maxBytes <= LENGTH_BYTES) {
+            throw new IllegalArgumentException("Spool size is too small");
+        }
+
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.segmentSize = (int) Math.min(SEGMENT_SIZE, maxBytes);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.segments = new ArrayList<>();
+        this.lock = new ReentrantLock();
+        this.header = new byte[LENGTH_BYTES];
+    }
+
+    // Appends the message if the spool is already in use, or if overflow is set, and there is room.
+    // Returns false if the message wasn't spooled, the caller can tell a full spool by it not being empty.
+    boolean append(NatsMessage msg, boolean overflow) throws IOException {
+        lock.lock();
+        try {
+            if (this.closed || (!this.active && !overflow)) {
+                return false;
+            }
+
+            byte[] protocol = msg.getProtocolBytes();
+            byte[] data = msg.getData();
+            long size = msg.getSizeInBytes();
+
+            // Anything before the read position has been replayed and can be written over
+            if (this.writePosition - this.readPosition + LENGTH_BYTES + size > this.maxBytes) {
+                return false;
+            }
+
+            int length = (int) size;
+            this.header[0] = (byte) (length >>> 24);
+            this.header[1] = (byte) (length >>> 16);
+            this.header[2] = (byte) (length >>> 8);
+            this.header[3] = (byte) length;
+
+            put(this.header, 0, LENGTH_BYTES);
+            put(protocol, 0, protocol.length);
+            put(NatsConnection.CRLF, 0, 2);
+            put(data, 0, data.length);
+            put(NatsConnection.CRLF, 0, 2);
+
+            this.active = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return !this.active;
+    }
+
+    long getSpooledBytes() {
+        lock.lock();
+        try {
+            return this.writePosition - this.readPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Copies whole messages from the read position into dst, without consuming them. Returns the number of bytes
+    // copied, or minus the size of the next message if it doesn't fit in dst at all.
+    public int peek(byte[] dst) {
+        lock.lock();
+        try {
+            long position = this.readPosition;
+            int copied = 0;
+            long messages = 0;
+
+            while (position < this.writePosition) {
+                get(position, this.header, 0, LENGTH_BYTES);
+                int length = ((this.header[0] & 0xFF) << 24) | ((this.header[1] & 0xFF) << 16)
+                        | ((this.header[2] & 0xFF) << 8) | (this.header[3] & 0xFF);
+
+                if (copied + length > dst.length) {
+                    if (copied == 0) {
+                        return -length;
+                    }
+                    break;
+                }
+
+                get(position + LENGTH_BYTES, dst, copied, length);
+                copied += length;
+                position += LENGTH_BYTES + length;
+                messages++;
+            }
+
+            this.peekEnd = position;
+            this.peekMessages = messages;
+            this.peekBytes = copied;
+            return copied;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Consumes the messages from the last peek, once they are written, and returns how many there were
+    public long commit() {
+        lock.lock();
+        try {
+            long messages = this.peekMessages;
+            this.readPosition = Math.max(this.readPosition, this.peekEnd);
+            this.peekMessages = 0;
+            this.peekBytes = 0;
+
+            if (this.readPosition >= this.writePosition) {
+                // Everything has been replayed, start over at the front of the file
+                this.readPosition = 0;
+                this.writePosition = 0;
+                this.peekEnd = 0;
+                this.active = false;
+            }
+
+            return messages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPeekBytes() {
+        return this.peekBytes;
+    }
+
+    void close() throws IOException {
+        lock.lock();
+        try {
+            this.segments.clear();
+            this.active = false;
+            this.closed = true;
+            this.readPosition = 0;
+            this.writePosition = 0;
+            this.channel.close();
+            Files.deleteIfExists(this.path);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        while (this.segments.size() <= index) {
+            long start = (long) this.segments.size() * this.segmentSize;
+            long size = Math.min(this.segmentSize, this.maxBytes - start);
+            this.segments.add(this.channel.map(FileChannel.MapMode.READ_WRITE, start, size));
+        }
+        return this.segments.get(index);
+    }
+
+    // Writes at the write position, the last segment ends at the max size so a write that reaches it wraps to the start
+    private void put(byte[] src, int offset, int length) throws IOException {
+        while (length > 0) {
+            long place = this.writePosition % this.maxBytes;
+            int index = (int) (place / this.segmentSize);
+            int at = (int) (place % this.segmentSize);
+            MappedByteBuffer buffer = segment(index);
+            int count = Math.min(length, buffer.capacity() - at);
+
+            buffer.position(at);
+            buffer.put(src, offset, count);
+
+            offset += count;
+            length -= count;
+            this.writePosition += count;
+        }
+    }
+
+    private void get(long position, byte[] dst, int offset, int length) {
+        while (length > 0) {
+            long place = position % this.maxBytes;
+            int index = (int) (place / this.segmentSize);
+            int at = (int) (place % this.segmentSize);
+            MappedByteBuffer buffer = this.segments.get(index);
+            int count = Math.min(length, buffer.capacity() - at);
+
+            buffer.position(at);
+            buffer.get(dst, offset, count);
+
+            offset += count;
+            length -= count;
+            position += count;
+        }
+    }
+}
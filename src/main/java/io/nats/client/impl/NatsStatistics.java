@@ -13,17 +13,18 @@
 
 package io.nats.client.impl;
 
+import io.nats.client.Histogram;
 import io.nats.client.Statistics;
+import io.nats.client.SubjectTraffic;
 
 import java.text.NumberFormat;
-import java.util.LongSummaryStatistics;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantLock;
 
 class NatsStatistics implements Statistics {
-    private ReentrantLock lock;
-    private LongSummaryStatistics readStats;
-    private LongSummaryStatistics writeStats;
+    private NatsHistogram readSizes;
+    private NatsHistogram writeSizes;
 
     private AtomicLong flushCounter;
     private AtomicLong outstandingRequests;
@@ -39,15 +40,38 @@ class NatsStatistics implements Statistics {
     private AtomicLong errCount;
     private AtomicLong exceptionCount;
     private AtomicLong droppedCount;
+    private AtomicLong requestCacheHits;
+    private AtomicLong requestCacheMisses;
+    private AtomicLong requestCacheCoalesced;
+    private AtomicLong hedgedRequests;
+    private AtomicLong hedgesSent;
+    private AtomicLong hedgeWins;
+    private volatile long lastResubscribeCount;
+    private volatile long lastResubscribeNanos;
+    private volatile long lastRttNanos;
+
+    private NatsHistogram requestLatency;
+    private NatsHistogram flushLatency;
+
+    // Null unless subjects are tracked
+    private NatsSubjectTracker inboundSubjects;
+    private NatsSubjectTracker outboundSubjects;
 
     final private boolean trackAdvanced;
 
     public NatsStatistics(boolean trackAdvanced) {
+        this(trackAdvanced, 0);
+    }
+
+    public NatsStatistics(boolean trackAdvanced, int trackedSubjects) {
         this.trackAdvanced = trackAdvanced;
-        this.readStats = new LongSummaryStatistics();
-        this.writeStats = new LongSummaryStatistics();
+        if (trackedSubjects > 0) {
+            this.inboundSubjects = new NatsSubjectTracker(trackedSubjects);
+            this.outboundSubjects = new NatsSubjectTracker(trackedSubjects);
+        }
+        this.readSizes = new NatsHistogram();
+        this.writeSizes = new NatsHistogram();
 
-        this.lock = new ReentrantLock();
         this.flushCounter = new AtomicLong();
         this.outstandingRequests = new AtomicLong();
         this.requestsSent = new AtomicLong();
@@ -62,6 +86,15 @@ class NatsStatistics implements Statistics {
         this.errCount = new AtomicLong();
         this.exceptionCount = new AtomicLong();
         this.droppedCount = new AtomicLong();
+        this.requestCacheHits = new AtomicLong();
+        this.requestCacheMisses = new AtomicLong();
+        this.requestCacheCoalesced = new AtomicLong();
+        this.hedgedRequests = new AtomicLong();
+        this.hedgesSent = new AtomicLong();
+        this.hedgeWins = new AtomicLong();
+
+        this.requestLatency = new NatsHistogram();
+        this.flushLatency = new NatsHistogram();
     }
 
     void incrementPingCount() {
@@ -92,6 +125,87 @@ class NatsStatistics implements Statistics {
         this.repliesReceived.incrementAndGet();
     }
 
+    void incrementRequestCacheHits() {
+        this.requestCacheHits.incrementAndGet();
+    }
+
+    void incrementRequestCacheMisses() {
+        this.requestCacheMisses.incrementAndGet();
+    }
+
+    void incrementRequestCacheCoalesced() {
+        this.requestCacheCoalesced.incrementAndGet();
+    }
+
+    void incrementHedgedRequests() {
+        this.hedgedRequests.incrementAndGet();
+    }
+
+    void incrementHedgesSent() {
+        this.hedgesSent.incrementAndGet();
+    }
+
+    void incrementHedgeWins() {
+        this.hedgeWins.incrementAndGet();
+    }
+
+    // Always tracked, hedged requests use it to pick a delay
+    void recordRequestLatency(long nanos) {
+        this.requestLatency.record(nanos);
+    }
+
+    // Always tracked, like the request latency
+    void recordFlushLatency(long nanos) {
+        this.flushLatency.record(nanos);
+    }
+
+    public Histogram getRequestLatency() {
+        return this.requestLatency.snapshot();
+    }
+
+    public Histogram getFlushLatency() {
+        return this.flushLatency.snapshot();
+    }
+
+    void registerInboundSubject(String subject, long bytes) {
+        if (this.inboundSubjects != null) {
+            this.inboundSubjects.record(subject, bytes);
+        }
+    }
+
+    void registerOutboundSubject(String subject, long bytes) {
+        if (this.outboundSubjects != null) {
+            this.outboundSubjects.record(subject, bytes);
+        }
+    }
+
+    public List<SubjectTraffic> getTopInboundSubjects() {
+        if (this.inboundSubjects == null) {
+            return Collections.emptyList();
+        }
+        return this.inboundSubjects.getTopSubjects();
+    }
+
+    public List<SubjectTraffic> getTopOutboundSubjects() {
+        if (this.outboundSubjects == null) {
+            return Collections.emptyList();
+        }
+        return this.outboundSubjects.getTopSubjects();
+    }
+
+    void registerRtt(long nanos) {
+        this.lastRttNanos = nanos;
+    }
+
+    long getLastRttNanos() {
+        return this.lastRttNanos;
+    }
+
+    void registerResubscribe(long count, long nanos) {
+        this.lastResubscribeCount = count;
+        this.lastResubscribeNanos = nanos;
+    }
+
     void incrementReconnects() {
         this.reconnects.incrementAndGet();
     }
@@ -104,6 +218,10 @@ class NatsStatistics implements Statistics {
         this.outMsgs.incrementAndGet();
     }
 
+    void incrementOutMsgs(long count) {
+        this.outMsgs.addAndGet(count);
+    }
+
     void incrementInBytes(long bytes) {
         this.inBytes.addAndGet(bytes);
     }
@@ -124,24 +242,27 @@ class NatsStatistics implements Statistics {
         this.outstandingRequests.decrementAndGet();
     }
 
-    void registerSummaryStat(LongSummaryStatistics stats, long value) {
+    void registerHistogramStat(NatsHistogram histogram, long value) {
         if(!trackAdvanced) {
             return;
         }
-        lock.lock();
-        try {
-            stats.accept(value);
-        } finally {
-            lock.unlock();
-        }
+        histogram.record(value);
     }
 
     void registerRead(long bytes) {
-        registerSummaryStat(readStats, bytes);
+        registerHistogramStat(readSizes, bytes);
     }
 
     void registerWrite(long bytes) {
-        registerSummaryStat(writeStats, bytes);
+        registerHistogramStat(writeSizes, bytes);
+    }
+
+    public Histogram getReadSizes() {
+        return this.readSizes.snapshot();
+    }
+
+    public Histogram getWriteSizes() {
+        return this.writeSizes.snapshot();
     }
 
     public long getPings() {
@@ -152,6 +273,38 @@ class NatsStatistics implements Statistics {
         return this.droppedCount.get();
     }
 
+    public long getRequestCacheHits() {
+        return this.requestCacheHits.get();
+    }
+
+    public long getRequestCacheMisses() {
+        return this.requestCacheMisses.get();
+    }
+
+    public long getRequestCacheCoalesced() {
+        return this.requestCacheCoalesced.get();
+    }
+
+    public long getHedgedRequests() {
+        return this.hedgedRequests.get();
+    }
+
+    public long getHedgesSent() {
+        return this.hedgesSent.get();
+    }
+
+    public long getHedgeWins() {
+        return this.hedgeWins.get();
+    }
+
+    public long getLastResubscribeCount() {
+        return this.lastResubscribeCount;
+    }
+
+    public long getLastResubscribeNanos() {
+        return this.lastResubscribeNanos;
+    }
+
     public long getOKs() {
         return this.okCount.get();
     }
@@ -204,49 +357,87 @@ class NatsStatistics implements Statistics {
         builder.append("\n");
     }
 
+    void appendSubjects(StringBuilder builder, String name, List<SubjectTraffic> subjects) {
+        if (subjects.isEmpty()) {
+            return;
+        }
+
+        builder.append("\n");
+        builder.append(name);
+        builder.append("\n");
+        for (SubjectTraffic traffic : subjects) {
+            builder.append("    ");
+            builder.append(traffic.getSubject());
+            builder.append(": ");
+            builder.append(NumberFormat.getNumberInstance().format(traffic.getMessages()));
+            builder.append(" msgs, ");
+            builder.append(NumberFormat.getNumberInstance().format(traffic.getBytes()));
+            builder.append(" bytes\n");
+        }
+    }
+
     public String toString() {
         StringBuilder builder = new StringBuilder();
 
-        lock.lock();
-        try {
-            builder.append("### Connection ###\n");
-            appendNumberStat(builder, "Reconnects:                      ", this.reconnects.get());
-            if (this.trackAdvanced) {
-                appendNumberStat(builder, "Requests Sent:                   ", this.requestsSent.get());
-                appendNumberStat(builder, "Replies Received:                ", this.repliesReceived.get());
-                appendNumberStat(builder, "Pings Sent:                      ", this.pingCount.get());
-                appendNumberStat(builder, "+OKs Received:                   ", this.okCount.get());
-                appendNumberStat(builder, "-Errs Received:                  ", this.errCount.get());
-                appendNumberStat(builder, "Handled Exceptions:              ", this.exceptionCount.get());
-                appendNumberStat(builder, "Successful Flush Calls:          ", this.flushCounter.get());
-                appendNumberStat(builder, "Outstanding Request Futures:     ", this.outstandingRequests.get());
-                appendNumberStat(builder, "Dropped Messages:                ", this.droppedCount.get());
-            }
-            builder.append("\n");
-            builder.append("### Reader ###\n");
-            appendNumberStat(builder, "Messages in:                     ", this.inMsgs.get());
-            appendNumberStat(builder, "Bytes in:                        ", this.inBytes.get());
-            builder.append("\n");
-            if (this.trackAdvanced) {
-                appendNumberStat(builder, "Socket Reads:                    ", readStats.getCount());
-                appendNumberStat(builder, "Average Bytes Per Read:          ", readStats.getAverage());
-                appendNumberStat(builder, "Min Bytes Per Read:              ", readStats.getMin());
-                appendNumberStat(builder, "Max Bytes Per Read:              ", readStats.getMax());
-            }
-            builder.append("\n");
-            builder.append("### Writer ###\n");
-            appendNumberStat(builder, "Messages out:                    ", this.outMsgs.get());
-            appendNumberStat(builder, "Bytes out:                       ", this.outBytes.get());
-            builder.append("\n");
-            if (this.trackAdvanced) {
-                appendNumberStat(builder, "Socket Writes:                   ", writeStats.getCount());
-                appendNumberStat(builder, "Average Bytes Per Write:         ", writeStats.getAverage());
-                appendNumberStat(builder, "Min Bytes Per Write:             ", writeStats.getMin());
-                appendNumberStat(builder, "Max Bytes Per Write:             ", writeStats.getMax());
-            }
-        } finally {
-            lock.unlock();
+        builder.append("### Connection ###\n");
+        appendNumberStat(builder, "Reconnects:                      ", this.reconnects.get());
+        appendNumberStat(builder, "Last Resubscribe Count:          ", this.lastResubscribeCount);
+        appendNumberStat(builder, "Last Resubscribe Time (ns):      ", this.lastResubscribeNanos);
+        if (this.trackAdvanced) {
+            appendNumberStat(builder, "Requests Sent:                   ", this.requestsSent.get());
+            appendNumberStat(builder, "Replies Received:                ", this.repliesReceived.get());
+            appendNumberStat(builder, "Pings Sent:                      ", this.pingCount.get());
+            appendNumberStat(builder, "+OKs Received:                   ", this.okCount.get());
+            appendNumberStat(builder, "-Errs Received:                  ", this.errCount.get());
+            appendNumberStat(builder, "Handled Exceptions:              ", this.exceptionCount.get());
+            appendNumberStat(builder, "Successful Flush Calls:          ", this.flushCounter.get());
+            appendNumberStat(builder, "Outstanding Request Futures:     ", this.outstandingRequests.get());
+            appendNumberStat(builder, "Dropped Messages:                ", this.droppedCount.get());
+            appendNumberStat(builder, "Request Cache Hits:              ", this.requestCacheHits.get());
+            appendNumberStat(builder, "Request Cache Misses:            ", this.requestCacheMisses.get());
+            appendNumberStat(builder, "Request Cache Coalesced:         ", this.requestCacheCoalesced.get());
+            appendNumberStat(builder, "Hedged Requests:                 ", this.hedgedRequests.get());
+            appendNumberStat(builder, "Hedges Sent:                     ", this.hedgesSent.get());
+            appendNumberStat(builder, "Hedge Wins:                      ", this.hedgeWins.get());
+            Histogram requests = this.requestLatency.snapshot();
+            appendNumberStat(builder, "Request Latency p50 (ns):        ", requests.getPercentile(50));
+            appendNumberStat(builder, "Request Latency p99 (ns):        ", requests.getPercentile(99));
+            appendNumberStat(builder, "Request Latency p99.9 (ns):      ", requests.getPercentile(99.9));
+            Histogram flushes = this.flushLatency.snapshot();
+            appendNumberStat(builder, "Flush Latency p50 (ns):          ", flushes.getPercentile(50));
+            appendNumberStat(builder, "Flush Latency p99 (ns):          ", flushes.getPercentile(99));
+            appendNumberStat(builder, "Flush Latency p99.9 (ns):        ", flushes.getPercentile(99.9));
+        }
+        builder.append("\n");
+        builder.append("### Reader ###\n");
+        appendNumberStat(builder, "Messages in:                     ", this.inMsgs.get());
+        appendNumberStat(builder, "Bytes in:                        ", this.inBytes.get());
+        builder.append("\n");
+        if (this.trackAdvanced) {
+            Histogram reads = this.readSizes.snapshot();
+            appendNumberStat(builder, "Socket Reads:                    ", reads.getCount());
+            appendNumberStat(builder, "Average Bytes Per Read:          ", reads.getMean());
+            appendNumberStat(builder, "Min Bytes Per Read:              ", reads.getMin());
+            appendNumberStat(builder, "Median Bytes Per Read:           ", reads.getPercentile(50));
+            appendNumberStat(builder, "99th Percentile Bytes Per Read:  ", reads.getPercentile(99));
+            appendNumberStat(builder, "Max Bytes Per Read:              ", reads.getMax());
+        }
+        appendSubjects(builder, "Top Subjects In:", getTopInboundSubjects());
+        builder.append("\n");
+        builder.append("### Writer ###\n");
+        appendNumberStat(builder, "Messages out:                    ", this.outMsgs.get());
+        appendNumberStat(builder, "Bytes out:                       ", this.outBytes.get());
+        builder.append("\n");
+        if (this.trackAdvanced) {
+            Histogram writes = this.writeSizes.snapshot();
+            appendNumberStat(builder, "Socket Writes:                   ", writes.getCount());
+            appendNumberStat(builder, "Average Bytes Per Write:         ", writes.getMean());
+            appendNumberStat(builder, "Min Bytes Per Write:             ", writes.getMin());
+            appendNumberStat(builder, "Median Bytes Per Write:          ", writes.getPercentile(50));
+            appendNumberStat(builder, "99th Percentile Bytes Per Write: ", writes.getPercentile(99));
+            appendNumberStat(builder, "Max Bytes Per Write:             ", writes.getMax());
         }
+        appendSubjects(builder, "Top Subjects Out:", getTopOutboundSubjects());
 
         return builder.toString();
     }
@@ -0,0 +1,211 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.nats.client.SubjectTraffic;
+
+/**
+ * Finds the subjects with the most traffic in a fixed amount of memory. Message and byte counts go into
+ * Count-Min sketches, which over-estimate a subject only when it shares every counter with heavier subjects.
+ * Next to the sketches are two small candidate sets, the heaviest subjects by messages and by bytes. A subject
+ * whose estimate beats the lightest candidate takes its place, as in Space-Saving.
+ *
+ * <p>Recording is a few atomic adds and a map lookup, there are no locks. A subject only scans the candidates
+ * when its estimate beats the lightest one, and after a replacement the threshold is the new lightest. Two
+ * threads replacing candidates at once can leave a set a little out of date, which only costs accuracy.
+ */
+class NatsSubjectTracker {
+    static final int DEPTH = 4;
+    static final int MIN_WIDTH = 1024;
+
+    private final int capacity;
+    private final int width;
+    private final AtomicLongArray messages;
+    private final AtomicLongArray bytes;
+    private final Candidates byMessages;
+    private final Candidates byBytes;
+
+    static class Traffic implements SubjectTraffic {
+        private final String subject;
+        private final long messages;
+        private final long bytes;
+
+        Traffic(String subject, long messages, long bytes) {
+            this.subject = subject;
+            this.messages = messages;
+            this.bytes = bytes;
+        }
+
+        public String getSubject() {
+            return this.subject;
+        }
+
+        public long getMessages() {
+            return this.messages;
+        }
+
+        public long getBytes() {
+            return this.bytes;
+        }
+
+        public String toString() {
+            return this.subject + " " + this.messages + " msgs " + this.bytes + " bytes";
+        }
+    }
+
+    // The heaviest subjects by one sketch, with the estimate of the lightest so most subjects are turned away cheaply.
+    // The size counts the subjects plus the slots reserved by inserts in flight, so the set never grows past capacity.
+    class Candidates {
+        private final AtomicLongArray sketch;
+        private final ConcurrentHashMap<String, Boolean> subjects;
+        private final AtomicInteger size;
+        private volatile long threshold;
+
+        Candidates(AtomicLongArray sketch) {
+            this.sketch = sketch;
+            this.subjects = new ConcurrentHashMap<>();
+            this.size = new AtomicInteger();
+        }
+
+        void offer(String subject, long estimate) {
+            if (estimate <= this.threshold || this.subjects.containsKey(subject)) {
+                return;
+            }
+
+            int current = this.size.get();
+
+            if (current < capacity) {
+                if (this.size.compareAndSet(current, current + 1)
+                        && this.subjects.putIfAbsent(subject, Boolean.TRUE) != null) {
+                    this.size.decrementAndGet(); // another thread added it first
+                }
+                return;
+            }
+
+            // Find the lightest candidate, and the next lightest which is the minimum once it is replaced
+            String lightest = null;
+            long min = Long.MAX_VALUE;
+            long next = Long.MAX_VALUE;
+
+            for (String candidate : this.subjects.keySet()) {
+                long e = estimate(this.sketch, candidate);
+                if (e < min) {
+                    next = min;
+                    min = e;
+                    lightest = candidate;
+                } else if (e < next) {
+                    next = e;
+                }
+            }
+
+            if (lightest == null || estimate <= min) {
+                this.threshold = min;
+                return;
+            }
+
+            // Removing the lightest frees the slot for this subject
+            if (this.subjects.remove(lightest) != null) {
+                if (this.subjects.putIfAbsent(subject, Boolean.TRUE) != null) {
+                    this.size.decrementAndGet();
+                }
+                this.threshold = Math.min(next, estimate);
+            }
+        }
+    }
+
+    NatsSubjectTracker(int capacity) {
+        this.capacity = capacity;
+        this.width = Integer.highestOneBit(Math.max(MIN_WIDTH, capacity * 64 - 1)) << 1;
+        this.messages = new AtomicLongArray(DEPTH * this.width);
+        this.bytes = new AtomicLongArray(DEPTH * this.width);
+        this.byMessages = new Candidates(this.messages);
+        this.byBytes = new Candidates(this.bytes);
+    }
+
+    void record(String subject, long size) {
+        if (subject == null) {
+            return;
+        }
+
+        int hash = subject.hashCode();
+        int step = spread(hash) | 1;
+        long messageEstimate = Long.MAX_VALUE;
+        long byteEstimate = Long.MAX_VALUE;
+
+        for (int d = 0; d < DEPTH; d++) {
+            int index = index(hash, step, d);
+            messageEstimate = Math.min(messageEstimate, this.messages.incrementAndGet(index));
+            byteEstimate = Math.min(byteEstimate, this.bytes.addAndGet(index, size));
+        }
+
+        this.byMessages.offer(subject, messageEstimate);
+        this.byBytes.offer(subject, byteEstimate);
+    }
+
+    long estimateMessages(String subject) {
+        return estimate(this.messages, subject);
+    }
+
+    long estimateBytes(String subject) {
+        return estimate(this.bytes, subject);
+    }
+
+    // The heaviest subjects by messages and by bytes, heaviest by bytes first
+    List<SubjectTraffic> getTopSubjects() {
+        HashSet<String> subjects = new HashSet<>(this.byMessages.subjects.keySet());
+        subjects.addAll(this.byBytes.subjects.keySet());
+
+        ArrayList<SubjectTraffic> top = new ArrayList<>(subjects.size());
+        for (String subject : subjects) {
+            top.add(new Traffic(subject, estimateMessages(subject), estimateBytes(subject)));
+        }
+
+        top.sort(Comparator.comparingLong(SubjectTraffic::getBytes).reversed()
+                .thenComparing(Comparator.comparingLong(SubjectTraffic::getMessages).reversed()));
+        return Collections.unmodifiableList(top);
+    }
+
+    private long estimate(AtomicLongArray sketch, String subject) {
+        int hash = subject.hashCode();
+        int step = spread(hash) | 1;
+        long estimate = Long.MAX_VALUE;
+
+        for (int d = 0; d < DEPTH; d++) {
+            estimate = Math.min(estimate, sketch.get(index(hash, step, d)));
+        }
+
+        return estimate;
+    }
+
+    // Double hashing, row d uses hash + d * step
+    private int index(int hash, int step, int d) {
+        return (d * this.width) + ((spread(hash + d * step)) & (this.width - 1));
+    }
+
+    private static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+}
@@ -0,0 +1,117 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes the SUB lines for a resubscribe straight into large byte arrays, each of which goes out as one
+ * protocol message. The lines in a chunk are separated by CRLF and the writer adds the last one, so a
+ * chunk the size of the send buffer is written with a single call.
+ */
+class NatsSubscribeBatch {
+    private final int chunkSize;
+    private final boolean utf8mode;
+    private final ArrayList<NatsMessage> messages;
+
+    private byte[] buffer;
+    private int position;
+    private int count;
+
+    NatsSubscribeBatch(int chunkSize, boolean utf8mode) {
+        this.chunkSize = Math.max(chunkSize, 16);
+        this.utf8mode = utf8mode;
+        this.messages = new ArrayList<>();
+        this.buffer = new byte[this.chunkSize];
+    }
+
+    void add(CharSequence sid, String subject, String queueName) {
+        byte[] subjectBytes = encode(subject);
+        byte[] queueBytes = (queueName != null) ? encode(queueName) : null;
+        byte[] sidBytes = encode(sid.toString());
+
+        int length = 4 + subjectBytes.length + 1 + sidBytes.length;
+
+        if (queueBytes != null) {
+            length += queueBytes.length + 1;
+        }
+
+        if (this.position > 0 && this.position + 2 + length > this.buffer.length) {
+            finishChunk();
+        }
+
+        if (length > this.buffer.length) { // a line longer than a chunk gets a chunk of its own
+            this.buffer = new byte[length];
+        }
+
+        if (this.position > 0) {
+            this.buffer[this.position++] = NatsConnection.CR;
+            this.buffer[this.position++] = NatsConnection.LF;
+        }
+
+        this.buffer[this.position++] = 'S';
+        this.buffer[this.position++] = 'U';
+        this.buffer[this.position++] = 'B';
+        this.buffer[this.position++] = ' ';
+        put(subjectBytes);
+        this.buffer[this.position++] = ' ';
+
+        if (queueBytes != null) {
+            put(queueBytes);
+            this.buffer[this.position++] = ' ';
+        }
+
+        put(sidBytes);
+        this.count++;
+    }
+
+    int getCount() {
+        return this.count;
+    }
+
+    // The protocol messages holding every line added so far
+    List<NatsMessage> finish() {
+        if (this.position > 0) {
+            finishChunk();
+        }
+        return this.messages;
+    }
+
+    private void finishChunk() {
+        this.messages.add(new NatsMessage(Arrays.copyOf(this.buffer, this.position)));
+        this.position = 0;
+
+        if (this.buffer.length != this.chunkSize) {
+            this.buffer = new byte[this.chunkSize];
+        }
+    }
+
+    private byte[] encode(String value) {
+        if (this.utf8mode) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = new byte[value.length()];
+        NatsMessage.copy(bytes, 0, value);
+        return bytes;
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+        this.position += bytes.length;
+    }
+}
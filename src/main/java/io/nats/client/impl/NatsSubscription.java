@@ -18,6 +18,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import io.nats.client.Dispatcher;
 import io.nats.client.Message;
+import io.nats.client.MessageHandler;
 import io.nats.client.Subscription;
 
 class NatsSubscription extends NatsConsumer implements Subscription {
@@ -28,16 +29,23 @@ class NatsSubscription extends NatsConsumer implements Subscription {
 
     private NatsDispatcher dispatcher;
     private MessageQueue incoming;
+    private final MessageHandler handler;
 
     private AtomicLong unSubMessageLimit;
 
     NatsSubscription(String sid, String subject, String queueName, NatsConnection connection,
             NatsDispatcher dispatcher) {
+        this(sid, subject, queueName, connection, dispatcher, null);
+    }
+
+    NatsSubscription(String sid, String subject, String queueName, NatsConnection connection,
+            NatsDispatcher dispatcher, MessageHandler handler) {
         super(connection);
         this.subject = subject;
         this.queueName = queueName;
         this.sid = sid;
         this.dispatcher = dispatcher;
+        this.handler = handler;
         this.unSubMessageLimit = new AtomicLong(-1);
 
         if (this.dispatcher == null) {
@@ -55,6 +63,7 @@ class NatsSubscription extends NatsConsumer implements Subscription {
         }
         this.dispatcher = null;
         this.incoming = null;
+        checkDrained();
     }
 
     void setUnsubLimit(long cd) {
@@ -67,10 +76,19 @@ class NatsSubscription extends NatsConsumer implements Subscription {
         return (max > 0) && (max <= recv);
     }
 
+    long getUnsubLimit() {
+        return this.unSubMessageLimit.get();
+    }
+
     String getSID() {
         return this.sid;
     }
 
+    // The handler for this subscription, or null if the dispatcher's handler is used
+    MessageHandler getHandler() {
+        return this.handler;
+    }
+
     NatsDispatcher getNatsDispatcher() {
         return this.dispatcher;
     }
@@ -99,12 +117,17 @@ class NatsSubscription extends NatsConsumer implements Subscription {
             throw new IllegalStateException("This subscription is inactive.");
         }
 
-        NatsMessage msg = incoming.pop(timeout);
+        MessageQueue queue = this.incoming;
+        NatsMessage msg = queue.pop(timeout);
 
-        if (this.incoming == null || !this.incoming.isRunning()) { // We were unsubscribed while waiting
+        if (msg == null && (this.incoming == null || !queue.isRunning())) { // We were unsubscribed while waiting
             throw new IllegalStateException("This subscription became inactive.");
         }
 
+        if (msg != null && this.timed) {
+            this.recordResidency(msg, System.nanoTime());
+        }
+
         this.incrementDeliveredCount();
 
         if (this.reachedUnsubLimit()) {
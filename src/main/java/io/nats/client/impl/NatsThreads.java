@@ -0,0 +1,39 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+/**
+ * Creates the threads used by a connection when virtual threads are requested.
+ * 
+ * <p>This is the Java 8 version, which doesn't support virtual threads. The jar is built as a
+ * multi-release jar and a Java 21 version of this class, in {@code META-INF/versions/21}, replaces
+ * it on runtimes that have them.
+ */
+class NatsThreads {
+
+    private NatsThreads() {
+    }
+
+    static boolean isVirtualSupported() {
+        return false;
+    }
+
+    // Connections don't ask for virtual threads unless they are supported, fall back to a daemon platform
+    // thread, which is the closest match, rather than failing if something does
+    static Thread newVirtualThread(Runnable runnable, String name) {
+        Thread t = new Thread(runnable, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,295 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A hashed timing wheel, used to expire deadlines like request timeouts without scanning every
+ * outstanding request. Scheduling and cancelling are O(1) and can be done from any thread.
+ * 
+ * <p>The wheel is an array of buckets, each covering one tick. A periodic task on the scheduler advances
+ * the wheel one bucket per tick and runs the tasks in that bucket whose deadline has passed. If the task
+ * runs late it catches up on the ticks it missed. Deadlines further out than one turn of the wheel wait
+ * in their bucket for the right number of rounds. New timeouts are handed to the ticking task through
+ * a queue, so the buckets are only touched while ticking.
+ * 
+ * <p>The wheel only ticks while something is pending. The ticking task cancels itself once the last
+ * timeout expires or is cancelled, and the next timeout scheduled after that starts it again.
+ * 
+ * <p>Cancelling a timeout drops its task right away, so whatever the task refers to can be collected,
+ * the small timeout object itself is removed the next time the wheel passes its bucket.
+ * 
+ * <p>Expired tasks are collected while ticking and handed to the expiry executor once the wheel's lock is
+ * released, so a task that completes a future doesn't run the application's callbacks on the shared
+ * scheduler or hold up the next tick.
+ */
+class NatsTimingWheel {
+
+    static class Timeout {
+        private final long deadline;
+        private final AtomicReference<Runnable> task;
+        private final NatsTimingWheel wheel;
+        private long rounds;
+
+        Timeout(NatsTimingWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = new AtomicReference<>(task);
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return true if the timeout was cancelled, false if it already expired or was cancelled
+         */
+        boolean cancel() {
+            if (this.task.getAndSet(null) != null) {
+                this.wheel.pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        boolean isDone() {
+            return this.task.get() == null;
+        }
+
+        // Takes the task for running, or returns null if the timeout was cancelled first
+        Runnable claim() {
+            Runnable r = this.task.getAndSet(null);
+
+            if (r != null) {
+                this.wheel.pending.decrementAndGet();
+            }
+
+            return r;
+        }
+    }
+
+    private final long tickNanos;
+    private final int mask;
+    private final ArrayDeque<Timeout>[] buckets; // guarded by this, like startTime and tick
+    private final ConcurrentLinkedQueue<Timeout> incoming;
+    private final AtomicLong pending;
+    private final AtomicBoolean running;
+    private final ScheduledExecutorService scheduler;
+    private final Executor expirer;
+
+    private ScheduledFuture<?> ticker; // guarded by this, null while idle
+    private long startTime;
+    private long tick;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    NatsTimingWheel(Duration tickDuration, int wheelSize, ScheduledExecutorService scheduler, Executor expirer) {
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two");
+        }
+
+        this.tickNanos = tickDuration.toNanos();
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayDeque[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.buckets[i] = new ArrayDeque<>();
+        }
+        this.incoming = new ConcurrentLinkedQueue<>();
+        this.pending = new AtomicLong();
+        this.running = new AtomicBoolean(true);
+        this.scheduler = scheduler;
+        this.expirer = expirer;
+    }
+
+    /**
+     * Schedule the task to run after the delay. The wheel starts ticking if nothing else was pending.
+     * 
+     * @return the timeout, which can be cancelled, or null if the wheel was stopped
+     */
+    Timeout schedule(Runnable task, Duration delay) {
+        if (!this.running.get()) {
+            return null;
+        }
+
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + Math.max(0, delay.toNanos()));
+        long previous = this.pending.getAndIncrement();
+        this.incoming.add(timeout);
+
+        // The ticker only goes idle when pending is 0, so whoever takes it off 0 makes sure it is running
+        if (previous == 0) {
+            start();
+        }
+
+        return timeout;
+    }
+
+    /**
+     * @return true if the ticking task is scheduled
+     */
+    synchronized boolean isTicking() {
+        return this.ticker != null;
+    }
+
+    /**
+     * @return the number of timeouts that haven't expired or been cancelled
+     */
+    long getPendingCount() {
+        return this.pending.get();
+    }
+
+    void stop() {
+        this.running.set(false);
+
+        // Drop anything that didn't make it to a bucket
+        Timeout timeout = this.incoming.poll();
+        while (timeout != null) {
+            timeout.cancel();
+            timeout = this.incoming.poll();
+        }
+
+        synchronized (this) {
+            idle();
+
+            for (ArrayDeque<Timeout> bucket : this.buckets) {
+                for (Timeout pendingTimeout : bucket) {
+                    pendingTimeout.cancel();
+                }
+                bucket.clear();
+            }
+        }
+    }
+
+    // Checks running under the lock, so a concurrent stop() either cancels this ticker or keeps it from starting
+    private synchronized void start() {
+        if (!this.running.get() || this.ticker != null) {
+            return;
+        }
+
+        this.startTime = System.nanoTime();
+        this.tick = 0;
+
+        try {
+            this.ticker = this.scheduler.scheduleAtFixedRate(this::advance, this.tickNanos, this.tickNanos,
+                    TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException exp) {
+            // The scheduler was shut down under us, nothing will expire so drop everything
+            stop();
+        }
+    }
+
+    private void idle() {
+        if (this.ticker != null) {
+            this.ticker.cancel(false);
+            this.ticker = null;
+        }
+    }
+
+    // Runs on the scheduler, and catches up if the scheduler was busy
+    void advance() {
+        ArrayList<Runnable> expired = new ArrayList<>();
+
+        synchronized (this) {
+            if (!this.running.get() || this.ticker == null) {
+                return;
+            }
+
+            long elapsedTicks = (System.nanoTime() - this.startTime) / this.tickNanos;
+
+            while (this.tick < elapsedTicks && this.running.get()) {
+                transferIncoming();
+                expireBucket(this.buckets[(int) (this.tick & this.mask)], expired);
+                this.tick++;
+            }
+
+            // Everything in the buckets is done, a timeout scheduled after this read restarts the ticker once we
+            // release the lock. Anything left in incoming is either done or belongs to that timeout.
+            if (this.pending.get() == 0) {
+                idle();
+                for (ArrayDeque<Timeout> bucket : this.buckets) {
+                    bucket.clear();
+                }
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            runExpired(expired);
+        }
+    }
+
+    private void runExpired(ArrayList<Runnable> expired) {
+        Runnable all = () -> {
+            for (Runnable task : expired) {
+                try {
+                    task.run();
+                } catch (RuntimeException exp) {
+                    // tasks are internal and shouldn't throw, keep going
+                }
+            }
+        };
+
+        try {
+            this.expirer.execute(all);
+        } catch (RejectedExecutionException exp) {
+            // The executor is shutting down with the connection, so there is no one else to run them
+            all.run();
+        }
+    }
+
+    private void transferIncoming() {
+        Timeout timeout = this.incoming.poll();
+
+        while (timeout != null) {
+            if (!timeout.isDone()) {
+                long ticks = (timeout.deadline - this.startTime) / this.tickNanos;
+                timeout.rounds = (ticks - this.tick) / this.buckets.length;
+                long index = Math.max(ticks, this.tick); // anything already late goes in the current bucket
+                this.buckets[(int) (index & this.mask)].add(timeout);
+            }
+            timeout = this.incoming.poll();
+        }
+    }
+
+    private void expireBucket(ArrayDeque<Timeout> bucket, ArrayList<Runnable> expired) {
+        Iterator<Timeout> i = bucket.iterator();
+
+        while (i.hasNext()) {
+            Timeout timeout = i.next();
+
+            if (timeout.isDone()) {
+                i.remove();
+            } else if (timeout.rounds <= 0) {
+                i.remove();
+                Runnable task = timeout.claim();
+
+                if (task != null) {
+                    expired.add(task);
+                }
+            } else {
+                timeout.rounds--;
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+/**
+ * Encoded messages the writer sends, in order, after the outgoing queue once the connection is back.
+ * The writer peeks a buffer full, writes it and then commits it, so nothing is lost if the write fails.
+ */
+interface ReplayBuffer {
+    /**
+     * @return true if there is nothing left to write
+     */
+    boolean isEmpty();
+
+    /**
+     * Copies whole messages from the front into dst without consuming them.
+     * 
+     * @param dst the buffer to copy into
+     * @return the number of bytes copied, or minus the size needed if dst is too small for the first piece
+     */
+    int peek(byte[] dst);
+
+    /**
+     * @return the number of bytes copied by the last peek
+     */
+    long getPeekBytes();
+
+    /**
+     * Consumes the messages from the last peek, once they have been written.
+     * 
+     * @return the number of messages consumed
+     */
+    long commit();
+}
@@ -0,0 +1,240 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Reports what the connection is doing to Java Flight Recorder.
+ * 
+ * <p>This is the Java 11 version of the class, packaged in {@code META-INF/versions/11}. Every event is disabled
+ * by default, turn them on in the recording settings, for example {@code io.nats.SocketRead#enabled=true}. While
+ * an event is disabled its begin method is a field read that returns null, and nothing is allocated.
+ */
+class NatsEvents {
+
+    @Name("io.nats.SocketRead")
+    @Label("NATS Socket Read")
+    @Category({"NATS", "Connection"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class SocketRead extends Event {
+        @Label("Bytes Read")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("io.nats.SocketWrite")
+    @Label("NATS Socket Write")
+    @Category({"NATS", "Connection"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class SocketWrite extends Event {
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+
+        @Label("Messages")
+        @Description("The number of messages in the write, a replay of the reconnect buffer counts as 0")
+        long messages;
+    }
+
+    @Name("io.nats.Handler")
+    @Label("NATS Message Handler")
+    @Category({"NATS", "Dispatcher"})
+    @Enabled(false)
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static class Handler extends Event {
+        @Label("Subject")
+        String subject;
+
+        @Label("Messages")
+        @Description("1, or the size of the batch for a batch handler")
+        long messages;
+    }
+
+    @Name("io.nats.SlowConsumerDrop")
+    @Label("NATS Slow Consumer Drop")
+    @Category({"NATS", "Dispatcher"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class SlowConsumerDrop extends Event {
+        @Label("Subject")
+        String subject;
+
+        @Label("Pending Messages")
+        long pendingMessages;
+
+        @Label("Pending Bytes")
+        @DataAmount
+        long pendingBytes;
+    }
+
+    @Name("io.nats.Reconnect")
+    @Label("NATS Reconnect Phase")
+    @Category({"NATS", "Connection"})
+    @Enabled(false)
+    @StackTrace(false)
+    static class ReconnectPhase extends Event {
+        @Label("Phase")
+        @Description("connect for each server tried, resubscribe, or reconnect for the whole reconnect")
+        String phase;
+
+        @Label("Server")
+        String server;
+
+        @Label("Success")
+        boolean success;
+    }
+
+    @Name("io.nats.Ping")
+    @Label("NATS Ping")
+    @Category({"NATS", "Connection"})
+    @Description("From sending a PING to getting the PONG back")
+    @Enabled(false)
+    @StackTrace(false)
+    static class Ping extends Event {
+    }
+
+    private static final EventType SOCKET_READ = EventType.getEventType(SocketRead.class);
+    private static final EventType SOCKET_WRITE = EventType.getEventType(SocketWrite.class);
+    private static final EventType HANDLER = EventType.getEventType(Handler.class);
+    private static final EventType SLOW_CONSUMER_DROP = EventType.getEventType(SlowConsumerDrop.class);
+    private static final EventType RECONNECT_PHASE = EventType.getEventType(ReconnectPhase.class);
+    private static final EventType PING = EventType.getEventType(Ping.class);
+
+    private NatsEvents() {
+    }
+
+    static Object beginSocketRead() {
+        if (!SOCKET_READ.isEnabled()) {
+            return null;
+        }
+        SocketRead event = new SocketRead();
+        event.begin();
+        return event;
+    }
+
+    static void endSocketRead(Object event, long bytes) {
+        if (event != null) {
+            SocketRead read = (SocketRead) event;
+            read.end();
+            if (read.shouldCommit()) {
+                read.bytes = bytes;
+                read.commit();
+            }
+        }
+    }
+
+    static Object beginSocketWrite() {
+        if (!SOCKET_WRITE.isEnabled()) {
+            return null;
+        }
+        SocketWrite event = new SocketWrite();
+        event.begin();
+        return event;
+    }
+
+    static void endSocketWrite(Object event, long bytes, long messages) {
+        if (event != null) {
+            SocketWrite write = (SocketWrite) event;
+            write.end();
+            if (write.shouldCommit()) {
+                write.bytes = bytes;
+                write.messages = messages;
+                write.commit();
+            }
+        }
+    }
+
+    static Object beginHandler() {
+        if (!HANDLER.isEnabled()) {
+            return null;
+        }
+        Handler event = new Handler();
+        event.begin();
+        return event;
+    }
+
+    static void endHandler(Object event, String subject, long messages) {
+        if (event != null) {
+            Handler handler = (Handler) event;
+            handler.end();
+            if (handler.shouldCommit()) { // only handlers over the threshold
+                handler.subject = subject;
+                handler.messages = messages;
+                handler.commit();
+            }
+        }
+    }
+
+    static void slowConsumerDrop(String subject, long pendingMessages, long pendingBytes) {
+        if (SLOW_CONSUMER_DROP.isEnabled()) {
+            SlowConsumerDrop event = new SlowConsumerDrop();
+            event.subject = subject;
+            event.pendingMessages = pendingMessages;
+            event.pendingBytes = pendingBytes;
+            event.commit();
+        }
+    }
+
+    static Object beginReconnectPhase() {
+        if (!RECONNECT_PHASE.isEnabled()) {
+            return null;
+        }
+        ReconnectPhase event = new ReconnectPhase();
+        event.begin();
+        return event;
+    }
+
+    static void endReconnectPhase(Object event, String phase, String server, boolean success) {
+        if (event != null) {
+            ReconnectPhase reconnect = (ReconnectPhase) event;
+            reconnect.end();
+            if (reconnect.shouldCommit()) {
+                reconnect.phase = phase;
+                reconnect.server = server;
+                reconnect.success = success;
+                reconnect.commit();
+            }
+        }
+    }
+
+    static Object beginPing() {
+        if (!PING.isEnabled()) {
+            return null;
+        }
+        Ping event = new Ping();
+        event.begin();
+        return event;
+    }
+
+    static void endPing(Object event) {
+        if (event != null) {
+            Ping ping = (Ping) event;
+            ping.end();
+            ping.commit();
+        }
+    }
+}
@@ -175,6 +175,30 @@ public class ConnectTests {
         }
     }
 
+    @Test
+    public void testPreferLowLatencyConnect() throws IOException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().
+                                        server(NatsTestServer.getURIForPort(NatsTestServer.nextPort())).
+                                        server(ts.getURI()).
+                                        preferLowLatency().
+                                        build();
+            Connection nc = Nats.connect(options);
+            try {
+                assertEquals("Connected Status", Connection.Status.CONNECTED, nc.getStatus());
+                assertEquals(ts.getURI(), nc.getConnectedUrl());
+
+                Duration latency = nc.getServerLatencies().get(ts.getURI());
+                assertNotNull(latency);
+                assertTrue(latency.toNanos() > 0);
+                assertEquals(1, nc.getServerLatencies().size());
+            } finally {
+                nc.close();
+                assertTrue("Closed Status", Connection.Status.CLOSED == nc.getStatus());
+            }
+        }
+    }
+
     @Test
     public void testConnectWithConfig() throws IOException, InterruptedException {
         try (NatsTestServer ts = new NatsTestServer("src/test/resources/simple.conf", false)) {
@@ -22,11 +22,15 @@ import static org.junit.Assert.assertTrue;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.net.ssl.SSLContext;
 
@@ -52,6 +56,9 @@ public class OptionsTests {
         assertEquals("default oldstyle", false, o.isOldRequestStyle());
         assertEquals("default noEcho", false, o.isNoEcho());
         assertEquals("default UTF8 Support", false, o.supportUTF8Subjects());
+        assertEquals("default virtual threads", false, o.isUseVirtualThreads());
+        assertEquals("default counter tokens", false, o.isCounterResponseTokens());
+        assertEquals("default prefer low latency", false, o.isPreferLowLatency());
 
         assertNull("default username", o.getUsername());
         assertNull("default password", o.getPassword());
@@ -70,13 +77,16 @@ public class OptionsTests {
         assertEquals("default cleanup interval", Options.DEFAULT_REQUEST_CLEANUP_INTERVAL,
                 o.getRequestCleanupInterval());
 
+        assertEquals("default dispatcher pool size", 0, o.getDispatcherPoolSize());
+        assertEquals("default dispatcher quantum", Options.DEFAULT_DISPATCHER_QUANTUM, o.getDispatcherQuantum());
+
         assertNull("error handler", o.getErrorListener());
         assertNull("disconnect handler", o.getConnectionListener());
     }
 
     @Test
     public void testChainedBooleanOptions() throws NoSuchAlgorithmException {
-        Options o = new Options.Builder().verbose().pedantic().noRandomize().supportUTF8Subjects().noEcho().oldRequestStyle().build();
+        Options o = new Options.Builder().verbose().pedantic().noRandomize().supportUTF8Subjects().noEcho().oldRequestStyle().useVirtualThreads().counterResponseTokens().preferLowLatency().build();
         assertNull("default username", o.getUsername());
         assertEquals("chained verbose", true, o.isVerbose());
         assertEquals("chained pedantic", true, o.isPedantic());
@@ -84,6 +94,9 @@ public class OptionsTests {
         assertEquals("chained oldstyle", true, o.isOldRequestStyle());
         assertEquals("chained noecho", true, o.isNoEcho());
         assertEquals("chained utf8", true, o.supportUTF8Subjects());
+        assertEquals("chained virtual threads", true, o.isUseVirtualThreads());
+        assertEquals("chained counter tokens", true, o.isCounterResponseTokens());
+        assertEquals("chained prefer low latency", true, o.isPreferLowLatency());
     }
 
     @Test
@@ -120,6 +133,183 @@ public class OptionsTests {
         assertEquals("chained reconnect buffer size", 300, o.getReconnectBufferSize());
     }
 
+    @Test
+    public void testChainedDispatcherPoolOptions() {
+        Options o = new Options.Builder().dispatcherPoolSize(4).dispatcherQuantum(16).build();
+        assertEquals("chained dispatcher pool size", 4, o.getDispatcherPoolSize());
+        assertEquals("chained dispatcher quantum", 16, o.getDispatcherQuantum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnNegativeDispatcherPoolSize() {
+        new Options.Builder().dispatcherPoolSize(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnZeroDispatcherQuantum() {
+        new Options.Builder().dispatcherQuantum(0);
+    }
+
+    @Test
+    public void testChainedReconnectProbes() {
+        Options o = new Options.Builder().build();
+        assertEquals("default reconnect probes", Options.DEFAULT_RECONNECT_PROBES, o.getReconnectProbes());
+
+        o = new Options.Builder().reconnectProbes(3).build();
+        assertEquals("chained reconnect probes", 3, o.getReconnectProbes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnZeroReconnectProbes() {
+        new Options.Builder().reconnectProbes(0);
+    }
+
+    @Test
+    public void testChainedReconnectSpool() {
+        Options o = new Options.Builder().build();
+        assertNull("default reconnect spool", o.getReconnectSpoolFile());
+        assertEquals("default reconnect spool size", Options.DEFAULT_RECONNECT_SPOOL_SIZE, o.getReconnectSpoolSize());
+
+        Path file = Paths.get("reconnect.spool");
+        o = new Options.Builder().reconnectSpool(file, 4096).build();
+        assertEquals("chained reconnect spool", file, o.getReconnectSpoolFile());
+        assertEquals("chained reconnect spool size", 4096, o.getReconnectSpoolSize());
+    }
+
+    @Test
+    public void testPropertyReconnectSpool() {
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_RECONNECT_SPOOL_FILE, "reconnect.spool");
+        props.setProperty(Options.PROP_RECONNECT_SPOOL_SIZE, "4096");
+
+        Options o = new Options.Builder(props).build();
+        assertEquals("property reconnect spool", Paths.get("reconnect.spool"), o.getReconnectSpoolFile());
+        assertEquals("property reconnect spool size", 4096, o.getReconnectSpoolSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnZeroReconnectSpoolSize() {
+        new Options.Builder().reconnectSpool(Paths.get("reconnect.spool"), 0);
+    }
+
+    @Test
+    public void testChainedTrackSubjects() {
+        Options o = new Options.Builder().build();
+        assertEquals("default tracked subjects", 0, o.getTrackedSubjects());
+
+        o = new Options.Builder().trackSubjects(20).build();
+        assertEquals("chained tracked subjects", 20, o.getTrackedSubjects());
+    }
+
+    @Test
+    public void testPropertyTrackSubjects() {
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_TRACK_SUBJECTS, "20");
+
+        Options o = new Options.Builder(props).build();
+        assertEquals("property tracked subjects", 20, o.getTrackedSubjects());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnNegativeTrackedSubjects() {
+        new Options.Builder().trackSubjects(-1);
+    }
+
+    @Test
+    public void testChainedRegisterMBeans() {
+        Options o = new Options.Builder().build();
+        assertFalse("default register mbeans", o.isRegisterMBeans());
+
+        o = new Options.Builder().registerMBeans().build();
+        assertTrue("chained register mbeans", o.isRegisterMBeans());
+    }
+
+    @Test
+    public void testPropertyRegisterMBeans() {
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_REGISTER_MBEANS, "true");
+
+        Options o = new Options.Builder(props).build();
+        assertTrue("property register mbeans", o.isRegisterMBeans());
+    }
+
+    @Test
+    public void testChainedMetricsReporter() {
+        Options o = new Options.Builder().build();
+        assertNull("default metrics reporter", o.getMetricsReporter());
+        assertEquals("default metrics interval", Options.DEFAULT_METRICS_INTERVAL, o.getMetricsInterval());
+
+        PrometheusReporter reporter = new PrometheusReporter();
+        o = new Options.Builder().metricsReporter(reporter).metricsInterval(Duration.ofSeconds(1)).build();
+        assertTrue("chained metrics reporter", reporter == o.getMetricsReporter());
+        assertEquals("chained metrics interval", Duration.ofSeconds(1), o.getMetricsInterval());
+    }
+
+    @Test
+    public void testPropertyMetricsReporter() {
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_METRICS_REPORTER, PrometheusReporter.class.getCanonicalName());
+        props.setProperty(Options.PROP_METRICS_INTERVAL, "1000");
+
+        Options o = new Options.Builder(props).build();
+        assertTrue("property metrics reporter", o.getMetricsReporter() instanceof PrometheusReporter);
+        assertEquals("property metrics interval", Duration.ofSeconds(1), o.getMetricsInterval());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnZeroMetricsInterval() {
+        new Options.Builder().metricsInterval(Duration.ZERO);
+    }
+
+    @Test
+    public void testChainedScheduler() {
+        Options o = new Options.Builder().build();
+        assertNull("default scheduler", o.getScheduler());
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            o = new Options.Builder().scheduler(scheduler).build();
+            assertTrue("chained scheduler", scheduler == o.getScheduler());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testChainedRequestCacheOptions() {
+        Options o = new Options.Builder().build();
+        assertEquals("default request cache size", Options.DEFAULT_REQUEST_CACHE_SIZE, o.getRequestCacheSize());
+        assertTrue("default request cache subjects", o.getRequestCacheTtls().isEmpty());
+
+        o = new Options.Builder().cacheRequests("config", Duration.ofSeconds(5))
+                .cacheRequests("lookup", Duration.ofMillis(100)).requestCacheSize(50).build();
+        assertEquals("chained request cache size", 50, o.getRequestCacheSize());
+        assertEquals("chained request cache subjects", 2, o.getRequestCacheTtls().size());
+        assertEquals("chained request cache ttl", Duration.ofSeconds(5), o.getRequestCacheTtls().get("config"));
+    }
+
+    @Test
+    public void testPropertyRequestCacheOptions() {
+        Properties props = new Properties();
+        props.setProperty(Options.PROP_REQUEST_CACHE_SIZE, "20");
+        props.setProperty(Options.PROP_REQUEST_CACHE_SUBJECTS, "config=5000, lookup.region=100");
+
+        Options o = new Options.Builder(props).build();
+        assertEquals("property request cache size", 20, o.getRequestCacheSize());
+        assertEquals("property request cache ttl", Duration.ofSeconds(5), o.getRequestCacheTtls().get("config"));
+        assertEquals("property request cache ttl", Duration.ofMillis(100), o.getRequestCacheTtls().get("lookup.region"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnZeroRequestCacheTtl() {
+        new Options.Builder().cacheRequests("config", Duration.ZERO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnZeroRequestCacheSize() {
+        new Options.Builder().requestCacheSize(0);
+    }
+
     @Test
     public void testChainedDurationOptions() {
         Options o = new Options.Builder().reconnectWait(Duration.ofMillis(101))
@@ -159,6 +349,9 @@ public class OptionsTests {
         props.setProperty(Options.PROP_OPENTLS, "true");
         props.setProperty(Options.PROP_NO_ECHO, "true");
         props.setProperty(Options.PROP_UTF8_SUBJECTS, "true");
+        props.setProperty(Options.PROP_USE_VIRTUAL_THREADS, "true");
+        props.setProperty(Options.PROP_COUNTER_RESPONSE_TOKENS, "true");
+        props.setProperty(Options.PROP_PREFER_LOW_LATENCY, "true");
 
         Options o = new Options.Builder(props).build();
         assertNull("default username", o.getUsername());
@@ -168,7 +361,10 @@ public class OptionsTests {
         assertEquals("property oldstyle", true, o.isOldRequestStyle());
         assertEquals("property noecho", true, o.isNoEcho());
         assertEquals("property utf8", true, o.supportUTF8Subjects());
+        assertEquals("property virtual threads", true, o.isUseVirtualThreads());
+        assertEquals("property counter tokens", true, o.isCounterResponseTokens());
         assertNotNull("property opentls", o.getSslContext());
+        assertEquals("property prefer low latency", true, o.isPreferLowLatency());
     }
 
     @Test
@@ -204,6 +400,9 @@ public class OptionsTests {
         props.setProperty(Options.PROP_MAX_PINGS, "200");
         props.setProperty(Options.PROP_RECONNECT_BUF_SIZE, "300");
         props.setProperty(Options.PROP_MAX_CONTROL_LINE, "400");
+        props.setProperty(Options.PROP_DISPATCHER_POOL_SIZE, "5");
+        props.setProperty(Options.PROP_DISPATCHER_QUANTUM, "32");
+        props.setProperty(Options.PROP_RECONNECT_PROBES, "4");
 
         Options o = new Options.Builder(props).build();
         assertEquals("default verbose", false, o.isVerbose()); // One from a different type
@@ -211,6 +410,9 @@ public class OptionsTests {
         assertEquals("property ping max", 200, o.getMaxPingsOut());
         assertEquals("property reconnect buffer size", 300, o.getReconnectBufferSize());
         assertEquals("property max control line", 400, o.getMaxControlLine());
+        assertEquals("property dispatcher pool size", 5, o.getDispatcherPoolSize());
+        assertEquals("property dispatcher quantum", 32, o.getDispatcherQuantum());
+        assertEquals("property reconnect probes", 4, o.getReconnectProbes());
     }
 
     @Test
@@ -221,9 +423,11 @@ public class OptionsTests {
         props.setProperty(Options.PROP_PING_INTERVAL, "-1");
         props.setProperty(Options.PROP_CLEANUP_INTERVAL, "-1");
         props.setProperty(Options.PROP_MAX_CONTROL_LINE, "-1");
+        props.setProperty(Options.PROP_DISPATCHER_QUANTUM, "-1");
 
         Options o = new Options.Builder(props).build();
         assertEquals("default max control line", Options.DEFAULT_MAX_CONTROL_LINE, o.getMaxControlLine());
+        assertEquals("default dispatcher quantum", Options.DEFAULT_DISPATCHER_QUANTUM, o.getDispatcherQuantum());
         assertEquals("default reconnect wait", Options.DEFAULT_RECONNECT_WAIT, o.getReconnectWait());
         assertEquals("default connection timeout", Options.DEFAULT_CONNECTION_TIMEOUT, o.getConnectionTimeout());
         assertEquals("default ping interval", Options.DEFAULT_PING_INTERVAL, o.getPingInterval());
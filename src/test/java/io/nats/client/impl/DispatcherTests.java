@@ -22,7 +22,9 @@ import static org.junit.Assert.assertTrue;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -33,10 +35,13 @@ import org.junit.Test;
 
 import io.nats.client.Connection;
 import io.nats.client.Dispatcher;
+import io.nats.client.Histogram;
 import io.nats.client.Message;
+import io.nats.client.MessageHandler;
 import io.nats.client.Nats;
 import io.nats.client.NatsTestServer;
 import io.nats.client.Options;
+import io.nats.client.Subscription;
 
 public class DispatcherTests {
     @Test
@@ -65,6 +70,70 @@ public class DispatcherTests {
         }
     }
 
+    @Test
+    public void testResidencyAndHandlerTime() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).turnOnAdvancedStats().build())) {
+            CountDownLatch done = new CountDownLatch(5);
+            Dispatcher d = nc.createDispatcher((msg) -> {});
+            Subscription dsub = d.subscribe("subject", (msg) -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException exp) {
+                    // ignore
+                }
+                done.countDown();
+            });
+            Subscription sync = nc.subscribe("subject");
+            nc.flush(Duration.ofMillis(500));
+
+            for (int i = 0; i < 5; i++) {
+                nc.publish("subject", new byte[16]);
+            }
+            nc.flush(Duration.ofMillis(500));
+
+            // The sync subscription isn't read yet, so it lags
+            Thread.sleep(50);
+            assertTrue(sync.getOldestPendingNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            Thread.sleep(50); // let the last handler time be recorded
+
+            Histogram handler = d.getHandlerTime();
+            assertEquals(5, handler.getCount());
+            assertTrue(handler.getMin() >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertEquals(5, dsub.getHandlerTime().getCount());
+
+            // Later messages wait behind the slow handler
+            Histogram residency = d.getResidencyTime();
+            assertEquals(5, residency.getCount());
+            assertTrue(residency.getMax() >= TimeUnit.MILLISECONDS.toNanos(60));
+            assertEquals(5, dsub.getResidencyTime().getCount());
+            assertEquals(0, d.getOldestPendingNanos());
+
+            for (int i = 0; i < 5; i++) {
+                assertNotNull(sync.nextMessage(Duration.ofMillis(500)));
+            }
+            assertEquals(5, sync.getResidencyTime().getCount());
+            assertEquals(0, sync.getHandlerTime().getCount());
+            assertEquals(0, sync.getOldestPendingNanos());
+        }
+    }
+
+    @Test
+    public void testNoTimesWithoutAdvancedStats() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            Subscription sync = nc.subscribe("subject");
+            nc.publish("subject", new byte[16]);
+            nc.flush(Duration.ofMillis(500));
+
+            assertEquals(0, sync.getOldestPendingNanos());
+            assertNotNull(sync.nextMessage(Duration.ofMillis(500)));
+            assertEquals(0, sync.getResidencyTime().getCount());
+        }
+    }
+
     @Test
     public void testMultiSubject() throws IOException, InterruptedException, ExecutionException, TimeoutException {
         try (NatsTestServer ts = new NatsTestServer(false);
@@ -565,7 +634,7 @@ public class DispatcherTests {
         try (NatsTestServer ts = new NatsTestServer(false);
                     Connection nc = Nats.connect(ts.getURI())) {
             Dispatcher d = nc.createDispatcher((msg) -> {});
-            d.subscribe("subject", null);
+            d.subscribe("subject", (String) null);
             assertFalse(true);
         }
     }
@@ -671,7 +740,7 @@ public class DispatcherTests {
         try (NatsTestServer ts = new NatsTestServer(false);
                     Connection nc = Nats.connect(ts.getURI())) {
             Dispatcher d = nc.createDispatcher((msg) -> {});
-            d.unsubscribe(null);
+            d.unsubscribe((String) null);
             assertFalse(true);
         }
     }
@@ -707,4 +776,461 @@ public class DispatcherTests {
             assertEquals(msgCount, q.size()); // Shoudl only get one since all the extra subs do nothing??
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLanesKeepSubjectOrder() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            int msgCount = 100;
+            String[] subjects = {"one", "two", "three", "four"};
+            final CountDownLatch latch = new CountDownLatch(msgCount * subjects.length);
+            final ConcurrentHashMap<String, ConcurrentLinkedQueue<Integer>> received = new ConcurrentHashMap<>();
+
+            Dispatcher d = nc.createDispatcher((msg) -> {
+                received.computeIfAbsent(msg.getSubject(), (s) -> new ConcurrentLinkedQueue<>()).add((int) msg.getData()[0]);
+                latch.countDown();
+            }, 4);
+
+            assertEquals(4, d.getLaneCount());
+
+            for (String subject : subjects) {
+                d.subscribe(subject);
+            }
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            for (int i = 0; i < msgCount; i++) {
+                for (String subject : subjects) {
+                    nc.publish(subject, new byte[] {(byte) i});
+                }
+            }
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+            for (String subject : subjects) {
+                int expected = 0;
+                for (Integer actual : received.get(subject)) {
+                    assertEquals(expected, actual.intValue());
+                    expected++;
+                }
+                assertEquals(msgCount, expected);
+            }
+
+            long delivered = 0;
+            for (int i = 0; i < d.getLaneCount(); i++) {
+                delivered += d.getLaneDeliveredCount(i);
+                assertEquals(0, d.getLanePendingMessageCount(i));
+            }
+            assertEquals(d.getDeliveredCount(), delivered);
+            assertEquals(msgCount * subjects.length, delivered);
+        }
+    }
+
+    @Test
+    public void testLanesWithKeyExtractor() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            int msgCount = 50;
+            final CountDownLatch latch = new CountDownLatch(msgCount);
+            final ConcurrentLinkedQueue<String> threads = new ConcurrentLinkedQueue<>();
+
+            // Every message has the same key, so they all share a lane
+            Dispatcher d = nc.createDispatcher((msg) -> {
+                threads.add(Thread.currentThread().getName());
+                latch.countDown();
+            }, 8, (msg) -> "same");
+
+            d.subscribe("subject.*");
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            for (int i = 0; i < msgCount; i++) {
+                nc.publish("subject." + i, new byte[16]);
+            }
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(1, threads.stream().distinct().count());
+
+            int busyLanes = 0;
+            for (int i = 0; i < d.getLaneCount(); i++) {
+                if (d.getLaneDeliveredCount(i) > 0) {
+                    busyLanes++;
+                }
+            }
+            assertEquals(1, busyLanes);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowOnZeroLanes() throws IOException, InterruptedException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            nc.createDispatcher((msg) -> {}, 0);
+            assertFalse(true);
+        }
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testThrowOnBadLane() throws IOException, InterruptedException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            Dispatcher d = nc.createDispatcher((msg) -> {}, 2);
+            d.getLanePendingMessageCount(2);
+            assertFalse(true);
+        }
+    }
+
+    @Test
+    public void testPooledDispatchersShareThreads() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).connectionName("pooled")
+                                    .dispatcherPoolSize(2).dispatcherQuantum(4).build();
+            Connection nc = Nats.connect(options);
+            try {
+                int dispatcherCount = 20;
+                int msgCount = 50;
+                final CountDownLatch latch = new CountDownLatch(dispatcherCount * msgCount);
+                final ConcurrentHashMap<String, ConcurrentLinkedQueue<Integer>> received = new ConcurrentHashMap<>();
+                final ConcurrentHashMap<String, Boolean> threads = new ConcurrentHashMap<>();
+
+                for (int i = 0; i < dispatcherCount; i++) {
+                    Dispatcher d = nc.createDispatcher((msg) -> {
+                        threads.put(Thread.currentThread().getName(), Boolean.TRUE);
+                        received.computeIfAbsent(msg.getSubject(), (s) -> new ConcurrentLinkedQueue<>()).add((int) msg.getData()[0]);
+                        latch.countDown();
+                    });
+                    d.subscribe("pooled." + i);
+                }
+                nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+                for (int j = 0; j < msgCount; j++) {
+                    for (int i = 0; i < dispatcherCount; i++) {
+                        nc.publish("pooled." + i, new byte[] {(byte) j});
+                    }
+                }
+                nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+                for (int i = 0; i < dispatcherCount; i++) {
+                    int expected = 0;
+                    for (Integer actual : received.get("pooled." + i)) {
+                        assertEquals(expected, actual.intValue());
+                        expected++;
+                    }
+                    assertEquals(msgCount, expected);
+                }
+
+                assertTrue(threads.size() <= 2);
+                for (String name : threads.keySet()) {
+                    assertTrue(name.startsWith("pooled Dispatcher Pool"));
+                }
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testPooledDispatcherDrain() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).dispatcherPoolSize(1).dispatcherQuantum(1).build();
+            Connection nc = Nats.connect(options);
+            try {
+                int msgCount = 100;
+                final AtomicInteger count = new AtomicInteger();
+                Dispatcher d = nc.createDispatcher((msg) -> {
+                    count.incrementAndGet();
+                }, 2);
+                d.subscribe("draining");
+                nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+                for (int i = 0; i < msgCount; i++) {
+                    nc.publish("draining", null);
+                }
+                nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+                CompletableFuture<Boolean> tracker = d.drain(Duration.ofSeconds(4));
+                assertTrue(tracker.get(5, TimeUnit.SECONDS));
+                assertFalse(d.isActive());
+                assertEquals(msgCount, count.get());
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testAutoUnsubscribeLimitAcrossLanes() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            int limit = 10;
+            AtomicInteger count = new AtomicInteger();
+            CountDownLatch release = new CountDownLatch(1);
+            Dispatcher d = nc.createDispatcher(null, 8);
+            Subscription sub = d.subscribe("limit.*", (msg) -> {
+                count.incrementAndGet();
+                try {
+                    release.await(); // hold the lanes so the messages queue up
+                    Thread.sleep(20); // the other lanes deliver while this one is in its handler
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            });
+            nc.flush(Duration.ofMillis(500));
+
+            // Different subjects spread over the lanes
+            for (int i = 0; i < 200; i++) {
+                nc.publish("limit." + i, null);
+            }
+            nc.flush(Duration.ofMillis(1000));
+
+            // The messages are already here, so only the client can enforce the limit
+            d.unsubscribe(sub, limit);
+            release.countDown();
+
+            long end = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+            while (sub.isActive() && System.nanoTime() < end) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(100); // let any extra deliveries show up
+
+            assertFalse(sub.isActive());
+            assertEquals(limit, count.get());
+            assertEquals(limit, sub.getDeliveredCount());
+        }
+    }
+
+    @Test
+    public void testVirtualThreadsOption() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).useVirtualThreads().build();
+            Connection nc = Nats.connect(options);
+            try {
+                // Falls back to platform threads before Java 21
+                assertEquals(NatsThreads.isVirtualSupported(), ((NatsConnection) nc).isUsingVirtualThreads());
+
+                int msgCount = 100;
+                final CountDownLatch latch = new CountDownLatch(msgCount);
+                Dispatcher d = nc.createDispatcher((msg) -> {
+                    latch.countDown();
+                }, 16);
+                d.subscribe("virtual.*");
+                nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+                for (int i = 0; i < msgCount; i++) {
+                    nc.publish("virtual." + i, null);
+                }
+                nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+                assertTrue(latch.await(5, TimeUnit.SECONDS));
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testBatchDispatcher() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            int msgCount = 100;
+            final CountDownLatch latch = new CountDownLatch(msgCount);
+            final ConcurrentLinkedQueue<Integer> received = new ConcurrentLinkedQueue<>();
+            final AtomicInteger biggest = new AtomicInteger();
+
+            Dispatcher d = nc.createDispatcher((msgs) -> {
+                biggest.accumulateAndGet(msgs.size(), Math::max);
+                for (Message msg : msgs) {
+                    received.add((int) msg.getData()[0]);
+                    latch.countDown();
+                }
+            }, 10, Duration.ofMillis(50));
+            d.subscribe("batch");
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            for (int i = 0; i < msgCount; i++) {
+                nc.publish("batch", new byte[] {(byte) i});
+            }
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(biggest.get() > 1);
+            assertTrue(biggest.get() <= 10);
+
+            int expected = 0;
+            for (Integer actual : received) {
+                assertEquals(expected, actual.intValue());
+                expected++;
+            }
+            assertEquals(msgCount, expected);
+            assertEquals(msgCount, d.getDeliveredCount());
+        }
+    }
+
+    @Test
+    public void testBatchDispatcherHonorsUnsubLimit() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            final AtomicInteger count = new AtomicInteger();
+            Dispatcher d = nc.createDispatcher((msgs) -> {
+                count.addAndGet(msgs.size());
+            }, 100, Duration.ofMillis(100));
+
+            // Publish before the unsub so the messages are queued locally
+            d.subscribe("limited");
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            for (int i = 0; i < 10; i++) {
+                nc.publish("limited", null);
+            }
+            d.unsubscribe("limited", 5);
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            Thread.sleep(500);
+            assertEquals(5, count.get());
+            assertEquals(5, d.getDeliveredCount());
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowOnZeroMaxBatch() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            nc.createDispatcher((msgs) -> {}, 0, Duration.ofMillis(10));
+            assertFalse(true);
+        }
+    }
+
+    @Test
+    public void testSubscriptionHandlers() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            final CompletableFuture<Message> defaultFuture = new CompletableFuture<>();
+            final CompletableFuture<Message> aFuture = new CompletableFuture<>();
+            final CompletableFuture<Message> bFuture = new CompletableFuture<>();
+
+            Dispatcher d = nc.createDispatcher((msg) -> defaultFuture.complete(msg));
+            Subscription a = d.subscribe("a", (msg) -> aFuture.complete(msg));
+            Subscription b = d.subscribe("b", "queue", (msg) -> bFuture.complete(msg));
+            d.subscribe("c");
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            assertTrue(a.isActive());
+            assertEquals(d, a.getDispatcher());
+            assertEquals("queue", b.getQueueName());
+
+            nc.publish("a", null);
+            nc.publish("b", null);
+            nc.publish("c", null);
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            assertEquals("a", aFuture.get(500, TimeUnit.MILLISECONDS).getSubject());
+            assertEquals("b", bFuture.get(500, TimeUnit.MILLISECONDS).getSubject());
+            assertEquals("c", defaultFuture.get(500, TimeUnit.MILLISECONDS).getSubject());
+            assertEquals(1, a.getDeliveredCount());
+            assertEquals(3, d.getDeliveredCount());
+        }
+    }
+
+    @Test
+    public void testSubscriptionHandlersOnSameSubject() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            final CountDownLatch latch = new CountDownLatch(2);
+            final AtomicInteger first = new AtomicInteger();
+            final AtomicInteger second = new AtomicInteger();
+
+            // No default handler, every subscription has its own
+            Dispatcher d = nc.createDispatcher(null);
+            Subscription one = d.subscribe("same", (msg) -> { first.incrementAndGet(); latch.countDown(); });
+            Subscription two = d.subscribe("same", (msg) -> { second.incrementAndGet(); latch.countDown(); });
+            assertFalse(one == two);
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            nc.publish("same", null);
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            assertTrue(latch.await(500, TimeUnit.MILLISECONDS));
+            assertEquals(1, first.get());
+            assertEquals(1, second.get());
+
+            d.unsubscribe(one);
+            assertFalse(one.isActive());
+            assertTrue(two.isActive());
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            nc.publish("same", null);
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+            Thread.sleep(100);
+
+            assertEquals(1, first.get());
+            assertEquals(2, second.get());
+        }
+    }
+
+    @Test
+    public void testUnsubscribeSubscriptionAfter() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            final AtomicInteger count = new AtomicInteger();
+            Dispatcher d = nc.createDispatcher(null);
+            Subscription sub = d.subscribe("limited", (msg) -> count.incrementAndGet());
+            d.unsubscribe(sub, 3);
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+
+            for (int i = 0; i < 10; i++) {
+                nc.publish("limited", null);
+            }
+            nc.flush(Duration.ofMillis(500)); // wait for them to go through
+            Thread.sleep(100);
+
+            assertEquals(3, count.get());
+            assertFalse(sub.isActive());
+            d.unsubscribe(sub); // no-op once inactive
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testThrowOnSubscribeWithoutDefaultHandler() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            Dispatcher d = nc.createDispatcher(null);
+            d.subscribe("subject");
+            assertFalse(true);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowOnNullSubscriptionHandler() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            Dispatcher d = nc.createDispatcher(null);
+            d.subscribe("subject", (MessageHandler) null);
+            assertFalse(true);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowOnUnsubscribeFromOtherDispatcher() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            Dispatcher d = nc.createDispatcher(null);
+            Dispatcher other = nc.createDispatcher(null);
+            Subscription sub = d.subscribe("subject", (msg) -> {});
+            other.unsubscribe(sub);
+            assertFalse(true);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowOnUnsubscribeConnectionSubscription() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+            Dispatcher d = nc.createDispatcher(null);
+            Subscription sub = nc.subscribe("subject");
+            d.unsubscribe(sub, 1);
+            assertFalse(true);
+        }
+    }
+}
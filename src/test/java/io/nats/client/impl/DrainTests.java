@@ -631,6 +631,37 @@ public class DrainTests {
         }
     }
 
+    @Test
+    public void testDrainManySubscriptions() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection subCon = Nats.connect(new Options.Builder().server(ts.getURI()).maxReconnects(0).build());
+                Connection pubCon = Nats.connect(new Options.Builder().server(ts.getURI()).maxReconnects(0).build())) {
+            assertTrue("Connected Status", Connection.Status.CONNECTED == subCon.getStatus());
+            assertTrue("Connected Status", Connection.Status.CONNECTED == pubCon.getStatus());
+
+            int total = 500;
+            AtomicInteger count = new AtomicInteger();
+
+            for (int i = 0; i < total; i++) {
+                Dispatcher d = subCon.createDispatcher((msg) -> {
+                    count.incrementAndGet();
+                });
+                d.subscribe("draintest");
+            }
+            subCon.flush(Duration.ofSeconds(5)); // Get the subs to the server
+
+            pubCon.publish("draintest", null);
+            pubCon.flush(Duration.ofSeconds(1));
+
+            CompletableFuture<Boolean> tracker = subCon.drain(Duration.ofSeconds(10));
+
+            assertTrue(tracker.get(10, TimeUnit.SECONDS));
+            assertEquals(total, count.get()); // every dispatcher handled the message before the drain finished
+            assertTrue(((NatsConnection) subCon).isDrained());
+            assertTrue(Connection.Status.CLOSED == subCon.getStatus());
+        }
+    }
+
     @Test
     public void testSlowAsyncDuringDrainCanFinishIfTime() throws Exception {
         try (NatsTestServer ts = new NatsTestServer(false);
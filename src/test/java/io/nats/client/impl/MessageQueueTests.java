@@ -25,7 +25,9 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
@@ -344,6 +346,89 @@ public class MessageQueueTests {
         checkCount(msg, 0);
     }
 
+    @Test
+    public void testLingerAccumulateTakesQueued() throws InterruptedException {
+        MessageQueue q = new MessageQueue(true);
+        q.push(new NatsMessage("PING"));
+        q.push(new NatsMessage("PING"));
+        q.push(new NatsMessage("PING"));
+        NatsMessage msg = q.accumulate(10, null, null);
+        checkCount(msg, 3);
+        assertEquals(0, q.length());
+        assertEquals(0, q.sizeInBytes());
+    }
+
+    @Test
+    public void testLingerAccumulateStopsAtMax() throws InterruptedException {
+        MessageQueue q = new MessageQueue(true);
+        q.push(new NatsMessage("PING"));
+        q.push(new NatsMessage("PING"));
+        q.push(new NatsMessage("PING"));
+        long start = System.nanoTime();
+        NatsMessage msg = q.accumulate(2, null, Duration.ofSeconds(10));
+        long end = System.nanoTime();
+        checkCount(msg, 2);
+        assertEquals(1, q.length());
+        assertTrue(end - start < Duration.ofSeconds(5).toNanos()); // didn't linger
+    }
+
+    @Test
+    public void testLingerAccumulateWaitsForMore() throws InterruptedException {
+        MessageQueue q = new MessageQueue(true);
+        Thread t = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                q.push(new NatsMessage("PING"));
+                Thread.sleep(50);
+                q.push(new NatsMessage("PING"));
+            } catch (Exception exp) {
+                // eat the exception, test will fail
+            }
+        });
+        t.start();
+
+        NatsMessage msg = q.accumulate(2, Duration.ZERO, Duration.ofSeconds(5));
+        checkCount(msg, 2);
+        assertEquals(0, q.length());
+    }
+
+    @Test
+    public void testLingerAccumulateTimesOut() throws InterruptedException {
+        MessageQueue q = new MessageQueue(true);
+        q.push(new NatsMessage("PING"));
+        NatsMessage msg = q.accumulate(10, null, Duration.ofMillis(50));
+        checkCount(msg, 1);
+        assertEquals(0, q.length());
+    }
+
+    @Test
+    public void testLingerAccumulateReturnsBatchOnInterrupt() throws InterruptedException {
+        MessageQueue q = new MessageQueue(true);
+        q.push(new NatsMessage("one"));
+        q.push(new NatsMessage("two"));
+
+        AtomicReference<NatsMessage> result = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread t = new Thread(() -> {
+            try {
+                result.set(q.accumulate(10, null, Duration.ofSeconds(10)));
+                interrupted.set(Thread.currentThread().isInterrupted());
+            } catch (InterruptedException exp) {
+                // the batch would be lost, result stays null
+            }
+        });
+        t.start();
+
+        Thread.sleep(100);
+        t.interrupt();
+        t.join(5000);
+
+        checkCount(result.get(), 2);
+        assertTrue(interrupted.get());
+        assertEquals(0, q.length());
+        assertEquals(0, q.sizeInBytes());
+    }
+
     @Test
     public void testMultipleWritersOneAccumulator() throws InterruptedException {
         // Possible flaky test, since we can't be sure of thread timing
@@ -519,4 +604,53 @@ public class MessageQueueTests {
         q.filter((msg) -> {return true;});
         assertFalse(true);
     }
+
+    @Test
+    public void testOnDrainedRunsOnceWhenEmptied() throws InterruptedException {
+        MessageQueue q = new MessageQueue(true);
+        AtomicInteger calls = new AtomicInteger();
+
+        q.push(new NatsMessage("one"));
+        q.push(new NatsMessage("two"));
+        q.onDrained(calls::incrementAndGet);
+        assertEquals(0, calls.get()); // not draining yet
+
+        q.drain();
+        assertEquals(0, calls.get());
+
+        q.popNow();
+        assertEquals(0, calls.get());
+
+        q.popNow();
+        assertEquals(1, calls.get());
+
+        q.popNow();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testOnDrainedWhenAlreadyEmpty() {
+        MessageQueue q = new MessageQueue(false);
+        AtomicInteger calls = new AtomicInteger();
+
+        q.drain();
+        q.onDrained(calls::incrementAndGet);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testOnDrainedAfterAccumulate() throws InterruptedException {
+        MessageQueue q = new MessageQueue(true);
+        CountDownLatch latch = new CountDownLatch(1);
+
+        q.push(new NatsMessage("one"));
+        q.push(new NatsMessage("two"));
+        q.push(new NatsMessage("three"));
+        q.onDrained(latch::countDown);
+        q.drain();
+
+        NatsMessage msg = q.accumulate(10, null, null);
+        assertNotNull(msg);
+        assertTrue(latch.await(0, TimeUnit.MILLISECONDS));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.Nats;
+import io.nats.client.NatsTestServer;
+import io.nats.client.Options;
+import io.nats.client.Subscription;
+
+public class NatsConnectionGroupTests {
+
+    @Test
+    public void testSubjectAlwaysUsesTheSameMember() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connectGroup(new Options.Builder().server(ts.getURI()).build(), 4)) {
+            assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+            NatsConnectionGroup group = (NatsConnectionGroup) nc;
+            assertEquals(4, group.getMemberCount());
+
+            for (int i = 0; i < 100; i++) {
+                String subject = "subject." + i;
+                assertSame(group.memberFor(subject), group.memberFor(subject));
+            }
+        }
+    }
+
+    @Test
+    public void testSubscriptionsAreSpreadOverMembers() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connectGroup(new Options.Builder().server(ts.getURI()).build(), 2)) {
+            NatsConnectionGroup group = (NatsConnectionGroup) nc;
+
+            Subscription one = nc.subscribe("one");
+            Subscription two = nc.subscribe("two");
+            Dispatcher d = nc.createDispatcher((msg) -> {});
+
+            assertNotSame(((NatsSubscription) one).connection, ((NatsSubscription) two).connection);
+            assertSame(group.getMember(0), ((NatsDispatcher) d).connection);
+
+            assertEquals(2, group.getMember(0).getConsumerCount());
+            assertEquals(1, group.getMember(1).getConsumerCount());
+
+            nc.closeDispatcher(d);
+            assertEquals(1, group.getMember(0).getConsumerCount());
+        }
+    }
+
+    @Test
+    public void testOrderOnOneSubject() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connectGroup(new Options.Builder().server(ts.getURI()).build(), 3)) {
+            int total = 100;
+            Subscription sub = nc.subscribe("ordered");
+            nc.flush(Duration.ofSeconds(1));
+
+            for (int i = 0; i < total; i++) {
+                nc.publish("ordered", String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+            }
+            nc.flush(Duration.ofSeconds(1));
+
+            for (int i = 0; i < total; i++) {
+                Message msg = sub.nextMessage(Duration.ofSeconds(1));
+                assertNotNull(msg);
+                assertEquals(String.valueOf(i), new String(msg.getData(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testStatisticsAreSummed() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connectGroup(new Options.Builder().server(ts.getURI()).build(), 4)) {
+            NatsConnectionGroup group = (NatsConnectionGroup) nc;
+            CountDownLatch latch = new CountDownLatch(20);
+            Dispatcher d = nc.createDispatcher((msg) -> latch.countDown());
+            d.subscribe("stats.>");
+            nc.flush(Duration.ofSeconds(1));
+
+            for (int i = 0; i < 20; i++) {
+                nc.publish("stats." + i, null);
+            }
+            nc.flush(Duration.ofSeconds(1));
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+
+            long out = 0;
+            for (int i = 0; i < group.getMemberCount(); i++) {
+                out += group.getMember(i).getStatistics().getOutMsgs();
+            }
+
+            assertEquals(out, nc.getStatistics().getOutMsgs());
+            assertTrue(nc.getStatistics().getOutMsgs() >= 20);
+            assertEquals(20, nc.getStatistics().getInMsgs());
+        }
+    }
+
+    @Test
+    public void testRequestReply() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connectGroup(new Options.Builder().server(ts.getURI()).build(), 2)) {
+            Dispatcher d = nc.createDispatcher((msg) -> {
+                nc.publish(msg.getReplyTo(), null);
+            });
+            d.subscribe("service");
+            nc.flush(Duration.ofSeconds(1));
+
+            for (int i = 0; i < 10; i++) {
+                Message msg = nc.request("service", null, Duration.ofSeconds(1));
+                assertNotNull(msg);
+            }
+        }
+    }
+
+    @Test
+    public void testDrainAndClose() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Connection nc = Nats.connectGroup(new Options.Builder().server(ts.getURI()).build(), 3);
+            NatsConnectionGroup group = (NatsConnectionGroup) nc;
+            nc.subscribe("drain.one");
+            nc.subscribe("drain.two");
+            nc.flush(Duration.ofSeconds(1));
+
+            CompletableFuture<Boolean> tracker = nc.drain(Duration.ofSeconds(5));
+            assertTrue(tracker.get(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < group.getMemberCount(); i++) {
+                assertTrue(Connection.Status.CLOSED == group.getMember(i).getStatus());
+            }
+            assertTrue(Connection.Status.CLOSED == nc.getStatus());
+        }
+    }
+
+    // Waits for every member to be connected, or not, or for the timeout
+    private static boolean waitForMembers(NatsConnectionGroup group, boolean connected) throws InterruptedException {
+        long end = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+
+        for (int i = 0; i < group.getMemberCount(); i++) {
+            while ((group.getMember(i).getStatus() == Connection.Status.CONNECTED) != connected) {
+                if (System.nanoTime() > end) {
+                    return false;
+                }
+                Thread.sleep(10);
+            }
+        }
+
+        return true;
+    }
+
+    @Test
+    public void testMembersHaveTheirOwnSpool() throws Exception {
+        Path spoolFile = Files.createTempFile("nats", ".spool");
+        int port = NatsTestServer.nextPort();
+        NatsConnectionGroup group = null;
+        Path first = null;
+        Path second = null;
+
+        try {
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                Options options = new Options.Builder().server(ts.getURI()).maxReconnects(-1)
+                        .reconnectBufferSize(4*512).reconnectSpool(spoolFile, 1024*1024)
+                        .reconnectWait(Duration.ofMillis(100)).build();
+                group = (NatsConnectionGroup) Nats.connectGroup(options, 2);
+                first = group.getMember(0).getReconnectSpoolFile();
+                second = group.getMember(1).getReconnectSpoolFile();
+                assertEquals(NatsConnectionGroup.spoolFileFor(options, 0), first);
+                assertNotEquals(first, second);
+            }
+
+            // Writing is how the members notice the server is gone
+            for (int i = 0; i < group.getMemberCount(); i++) {
+                try {
+                    group.getMember(i).flush(Duration.ofSeconds(1));
+                } catch (Exception exp) {
+                    // expected
+                }
+            }
+            assertTrue(waitForMembers(group, false));
+
+            // A subject for each member, enough messages on each to spool
+            String one = "spool.0";
+            String two = one;
+            for (int i = 1; group.memberFor(two) == group.memberFor(one); i++) {
+                two = "spool." + i;
+            }
+
+            for (int i = 0; i < 20; i++) {
+                group.publish(one, new byte[512]);
+                group.publish(two, new byte[512]);
+            }
+
+            assertTrue(Files.exists(first));
+            assertTrue(Files.exists(second));
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                assertTrue(waitForMembers(group, true));
+                group.flush(Duration.ofSeconds(5));
+
+                // Each member replayed its own spool
+                for (int i = 0; i < group.getMemberCount(); i++) {
+                    assertEquals(0, group.getMember(i).getWriter().getBufferedBytes());
+                }
+            }
+        } finally {
+            if (group != null) {
+                group.close();
+            }
+            Files.deleteIfExists(spoolFile);
+        }
+
+        assertFalse("Spool deleted on close", Files.exists(first));
+        assertFalse("Spool deleted on close", Files.exists(second));
+    }
+
+    @Test(expected=IOException.class)
+    public void testFailedConnectThrows() throws Exception {
+        Options options = new Options.Builder().server(NatsTestServer.getURIForPort(NatsTestServer.nextPort()))
+                .maxReconnects(0).build();
+        Connection nc = Nats.connectGroup(options, 2);
+        assertFalse(true);
+        nc.close();
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testThrowOnEmptyGroup() throws Exception {
+        Nats.connectGroup(new Options.Builder().build(), 0);
+        assertFalse(true);
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.nats.client.Connection;
+import io.nats.client.Nats;
+import io.nats.client.NatsTestServer;
+
+// The tests compile for Java 8, so the Flight Recorder API is used through reflection. The build runs these
+// against the Java 11 classes when it has a JDK 11, see testJava11 in build.gradle.
+public class NatsEventsTests {
+
+    // Records the connection with the named events enabled, and returns the events as {name, event} pairs
+    static List<Object[]> record(String[] events, ConnectionTask task) throws Exception {
+        Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        Object recording = recordingClass.getConstructor().newInstance();
+        Path file = Files.createTempFile("nats", ".jfr");
+
+        try {
+            for (String event : events) {
+                recordingClass.getMethod("enable", String.class).invoke(recording, event);
+            }
+
+            recordingClass.getMethod("start").invoke(recording);
+            try (NatsTestServer ts = new NatsTestServer(false);
+                    Connection nc = Nats.connect(ts.getURI())) {
+                task.run(nc);
+            }
+            recordingClass.getMethod("stop").invoke(recording);
+            recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+
+            Class<?> eventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+            Method getEventType = eventClass.getMethod("getEventType");
+            Method getName = Class.forName("jdk.jfr.EventType").getMethod("getName");
+            List<?> recorded = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                    .getMethod("readAllEvents", Path.class).invoke(null, file);
+
+            List<Object[]> found = new ArrayList<>();
+            for (Object event : recorded) {
+                found.add(new Object[] {getName.invoke(getEventType.invoke(event)), event});
+            }
+            return found;
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static long getLong(Object event, String field) throws Exception {
+        return (Long) Class.forName("jdk.jfr.consumer.RecordedObject").getMethod("getLong", String.class)
+                .invoke(event, field);
+    }
+
+    interface ConnectionTask {
+        void run(Connection nc) throws Exception;
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        assertNull(NatsEvents.beginSocketRead());
+        assertNull(NatsEvents.beginSocketWrite());
+        assertNull(NatsEvents.beginHandler());
+        assertNull(NatsEvents.beginReconnectPhase());
+        assertNull(NatsEvents.beginPing());
+    }
+
+    @Test
+    public void testRecordsEnabledEvents() throws Exception {
+        assumeTrue(NatsThreadsTests.javaVersion() >= 11);
+
+        int msgCount = 10;
+        List<Object[]> events = record(new String[] {"io.nats.SocketWrite", "io.nats.Ping"}, (nc) -> {
+            for (int i = 0; i < msgCount; i++) {
+                nc.publish("events", new byte[16]);
+            }
+            nc.flush(Duration.ofSeconds(1));
+        });
+
+        long bytes = 0;
+        long messages = 0;
+        int pings = 0;
+
+        for (Object[] event : events) {
+            if ("io.nats.SocketWrite".equals(event[0])) {
+                bytes += getLong(event[1], "bytes");
+                messages += getLong(event[1], "messages");
+            } else if ("io.nats.Ping".equals(event[0])) {
+                pings++;
+            } else {
+                assertTrue("Unexpected event " + event[0], false);
+            }
+        }
+
+        assertTrue(bytes > 0);
+        assertTrue(messages >= msgCount); // connect, ping and the publishes
+        assertTrue(pings >= 1);
+    }
+
+    @Test
+    public void testOnlyEnabledEventsAreRecorded() throws Exception {
+        assumeTrue(NatsThreadsTests.javaVersion() >= 11);
+
+        List<Object[]> events = record(new String[] {"io.nats.SocketRead"}, (nc) -> {
+            nc.flush(Duration.ofSeconds(1));
+        });
+
+        assertTrue(events.size() > 0);
+        for (Object[] event : events) {
+            assertEquals("io.nats.SocketRead", event[0]);
+        }
+    }
+}
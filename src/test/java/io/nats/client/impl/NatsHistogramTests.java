@@ -0,0 +1,142 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class NatsHistogramTests {
+
+    @Test
+    public void testBucketsCoverValues() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = NatsHistogram.bucketFor(value);
+
+            assertTrue(bucket >= 0 && bucket < NatsHistogram.BUCKETS);
+            assertTrue(NatsHistogram.lowerBound(bucket) <= value);
+            assertTrue(NatsHistogram.upperBound(bucket) >= value);
+        }
+
+        // Small values are exact and buckets don't overlap
+        for (int bucket = 0; bucket < NatsHistogram.bucketFor(Long.MAX_VALUE); bucket++) {
+            assertEquals(NatsHistogram.upperBound(bucket) + 1, NatsHistogram.lowerBound(bucket + 1));
+        }
+        assertEquals(7, NatsHistogram.upperBound(NatsHistogram.bucketFor(7)));
+        assertEquals(Long.MAX_VALUE, NatsHistogram.upperBound(NatsHistogram.bucketFor(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        NatsHistogram histogram = new NatsHistogram();
+        assertEquals(0, histogram.getPercentile(95));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+
+        long p50 = histogram.getPercentile(50);
+        long p95 = histogram.getPercentile(95);
+        long max = histogram.getPercentile(100);
+
+        assertTrue(p50 >= 500_000 && p50 <= 500_000 * 1.125);
+        assertTrue(p95 >= 950_000 && p95 <= 950_000 * 1.125);
+        assertTrue(max >= 1_000_000 && max <= 1_000_000 * 1.125);
+    }
+
+    @Test
+    public void testNegativeValuesCountAsZero() {
+        NatsHistogram histogram = new NatsHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void testSnapshotIsExact() {
+        NatsHistogram histogram = new NatsHistogram();
+        NatsHistogram.Snapshot empty = histogram.snapshot();
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMin());
+        assertEquals(0, empty.getMax());
+        assertEquals(0, empty.getMean(), 0);
+
+        histogram.record(3);
+        histogram.record(1001);
+        histogram.record(500);
+
+        NatsHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(3, snapshot.getCount());
+        assertEquals(1504, snapshot.getSum());
+        assertEquals(3, snapshot.getMin());
+        assertEquals(1001, snapshot.getMax());
+        assertEquals(1504 / 3.0, snapshot.getMean(), 0.0001);
+        assertEquals(1001, snapshot.getPercentile(100)); // capped at the max, not the bucket bound
+
+        histogram.record(5000);
+        assertEquals(3, snapshot.getCount()); // snapshots don't change
+    }
+
+    @Test
+    public void testRecordFromManyThreads() throws Exception {
+        NatsHistogram histogram = new NatsHistogram();
+        Thread[] threads = new Thread[8];
+
+        for (int t = 0; t < threads.length; t++) {
+            long value = (t + 1) * 100;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(value);
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        NatsHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(80_000, snapshot.getCount());
+        assertEquals(100, snapshot.getMin());
+        assertEquals(800, snapshot.getMax());
+        assertEquals(10_000L * (100 + 200 + 300 + 400 + 500 + 600 + 700 + 800), snapshot.getSum());
+    }
+
+    @Test
+    public void testMerge() {
+        NatsHistogram a = new NatsHistogram();
+        NatsHistogram b = new NatsHistogram();
+        NatsHistogram empty = new NatsHistogram();
+        a.record(10);
+        b.record(1000);
+        b.record(2000);
+
+        NatsHistogram.Snapshot merged = NatsHistogram.Snapshot.merge(Arrays.asList(a.snapshot(), empty.snapshot(), b.snapshot()));
+        assertEquals(3, merged.getCount());
+        assertEquals(3010, merged.getSum());
+        assertEquals(10, merged.getMin());
+        assertEquals(2000, merged.getMax());
+        assertTrue(merged.getPercentile(50) >= 1000);
+    }
+}
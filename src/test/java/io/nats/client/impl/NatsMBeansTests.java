@@ -0,0 +1,95 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Nats;
+import io.nats.client.NatsTestServer;
+import io.nats.client.Options;
+import io.nats.client.Subscription;
+
+public class NatsMBeansTests {
+
+    private static Set<ObjectName> query(String id, String type) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String key = type.equals("Connection") ? "id" : "connection";
+        return server.queryNames(new ObjectName(NatsMBeans.DOMAIN + ":type=" + type + "," + key + "=" + id + ",*"), null);
+    }
+
+    @Test
+    public void testBeansFollowConsumers() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).connectionName("beans")
+                        .registerMBeans().build())) {
+            String id = ((NatsConnection) nc).getMBeans().getId();
+
+            Set<ObjectName> connections = query(id, "Connection");
+            assertEquals(1, connections.size());
+            ObjectName connection = connections.iterator().next();
+            assertEquals("\"beans\"", connection.getKeyProperty("name"));
+            assertEquals("CONNECTED", server.getAttribute(connection, "Status"));
+
+            Subscription sub = nc.subscribe("subject");
+            Dispatcher d = nc.createDispatcher((msg) -> {});
+            d.subscribe("other");
+            nc.publish("subject", new byte[16]);
+            nc.flush(Duration.ofMillis(500));
+
+            Set<ObjectName> subs = query(id, "Subscription");
+            assertEquals(1, subs.size()); // not the dispatcher's subscription
+            ObjectName subName = subs.iterator().next();
+            assertEquals("subject", server.getAttribute(subName, "Subject"));
+            assertEquals(1L, server.getAttribute(subName, "PendingMessages"));
+            assertEquals(sub.getPendingByteCount(), server.getAttribute(subName, "PendingBytes"));
+            assertEquals(1, query(id, "Dispatcher").size());
+
+            assertEquals(1L, server.getAttribute(connection, "InMsgs"));
+            assertEquals(1, server.getAttribute(connection, "DispatcherCount"));
+            assertEquals(2, server.getAttribute(connection, "SubscriptionCount"));
+            assertTrue((long) server.getAttribute(connection, "LastRttNanos") > 0);
+
+            sub.unsubscribe();
+            nc.closeDispatcher(d);
+            assertEquals(0, query(id, "Subscription").size());
+            assertEquals(0, query(id, "Dispatcher").size());
+
+            nc.close();
+            assertEquals(0, query(id, "Connection").size());
+        }
+    }
+
+    @Test
+    public void testNoBeansByDefault() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            assertNull(((NatsConnection) nc).getMBeans());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.nats.client.Connection;
+import io.nats.client.MetricsSnapshot;
+import io.nats.client.Nats;
+import io.nats.client.NatsTestServer;
+import io.nats.client.Options;
+import io.nats.client.PrometheusReporter;
+
+public class NatsMetricsSnapshotTests {
+
+    @Test
+    public void testSnapshotIsFrozenAndHasRates() throws Exception {
+        NatsStatistics stats = new NatsStatistics(true);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < 10; i++) {
+            stats.incrementInMsgs();
+            stats.incrementInBytes(100);
+        }
+        stats.registerRead(1000);
+
+        NatsMetricsSnapshot first = new NatsMetricsSnapshot("test", stats, null, start);
+        stats.incrementInMsgs();
+
+        assertEquals("test", first.getConnectionName());
+        assertEquals(10, first.getInMsgs());
+        assertEquals(1000, first.getInBytes());
+        assertEquals(1, first.getReadSizes().getCount());
+        assertTrue(first.getIntervalNanos() > 0);
+        assertTrue(first.getInMsgsPerSecond() > 0);
+        assertEquals(first.getInMsgsPerSecond() * 100, first.getInBytesPerSecond(), 0.001);
+
+        Thread.sleep(10);
+        NatsMetricsSnapshot second = new NatsMetricsSnapshot("test", stats, first, start);
+        assertEquals(11, second.getInMsgs());
+        assertEquals(0, second.getInBytesPerSecond(), 0);
+        assertTrue(second.getIntervalNanos() >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(1.0 * TimeUnit.SECONDS.toNanos(1) / second.getIntervalNanos(), second.getInMsgsPerSecond(), 0.001);
+    }
+
+    @Test
+    public void testPrometheusText() {
+        NatsStatistics stats = new NatsStatistics(false);
+        stats.incrementOutMsgs();
+        stats.incrementOutBytes(42);
+        stats.recordFlushLatency(2_000_000);
+
+        MetricsSnapshot one = new NatsMetricsSnapshot("one", stats, null, System.nanoTime() - 1);
+        MetricsSnapshot two = new NatsMetricsSnapshot("tw\"o", stats, null, System.nanoTime() - 1);
+        String text = PrometheusReporter.render(Arrays.asList(one, two));
+
+        assertEquals(1, count(text, "# TYPE nats_client_out_msgs_total counter\n"));
+        assertTrue(text.contains("nats_client_out_msgs_total{connection=\"one\"} 1\n"));
+        assertTrue(text.contains("nats_client_out_bytes_total{connection=\"tw\\\"o\"} 42\n"));
+        assertTrue(text.contains("# TYPE nats_client_flush_latency_seconds summary\n"));
+        assertTrue(text.contains("nats_client_flush_latency_seconds_count{connection=\"one\"} 1\n"));
+        assertTrue(text.contains("nats_client_flush_latency_seconds_sum{connection=\"one\"} 0.002\n"));
+        assertTrue(text.contains("nats_client_flush_latency_seconds{connection=\"one\",quantile=\"0.99\"} "));
+        assertTrue(!text.contains("subject_in"));
+
+        for (String line : text.split("\n")) {
+            assertTrue(line, line.startsWith("# ") || line.matches("nats_client_[a-z_]+\\{.*\\} [-0-9.E]+"));
+        }
+    }
+
+    @Test
+    public void testReporterIsCalled() throws Exception {
+        CountDownLatch reports = new CountDownLatch(2);
+        PrometheusReporter prometheus = new PrometheusReporter();
+
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI())
+                        .connectionName("metrics")
+                        .metricsReporter((snapshot) -> {
+                            prometheus.report(snapshot);
+                            reports.countDown();
+                        })
+                        .metricsInterval(Duration.ofMillis(50)).build())) {
+            nc.publish("subject", new byte[16]);
+            nc.flush(Duration.ofMillis(500));
+
+            assertTrue(reports.await(2, TimeUnit.SECONDS));
+            assertTrue(prometheus.getText().contains("nats_client_out_msgs_total{connection=\"metrics\"} "));
+        }
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        int index = text.indexOf(part);
+        while (index >= 0) {
+            count++;
+            index = text.indexOf(part, index + 1);
+        }
+        return count;
+    }
+}
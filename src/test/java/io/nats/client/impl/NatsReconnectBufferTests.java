@@ -0,0 +1,150 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class NatsReconnectBufferTests {
+
+    static NatsMessage message(String subject, String data) {
+        return new NatsMessage(subject, null, data.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    static String wire(NatsMessage msg) {
+        return new String(msg.getProtocolBytes(), StandardCharsets.UTF_8) + "\r\n"
+                + new String(msg.getData(), StandardCharsets.UTF_8) + "\r\n";
+    }
+
+    @Test
+    public void testSizeAccounting() {
+        NatsReconnectBuffer buffer = new NatsReconnectBuffer();
+        NatsMessage one = message("a", "one");
+        NatsMessage two = message("b", "two");
+
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.append(one, -1));
+        assertTrue(buffer.append(two, -1));
+        assertFalse(buffer.isEmpty());
+        assertEquals(2, buffer.length());
+        assertEquals(one.getSizeInBytes() + two.getSizeInBytes(), buffer.sizeInBytes());
+
+        assertEquals(2, buffer.clear());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.sizeInBytes());
+    }
+
+    @Test
+    public void testMaxSize() {
+        NatsReconnectBuffer buffer = new NatsReconnectBuffer();
+        NatsMessage msg = message("a", "one");
+        long max = 3 * msg.getSizeInBytes();
+
+        assertTrue(buffer.append(msg, max));
+        assertTrue(buffer.append(msg, max));
+        assertFalse(buffer.append(msg, max)); // would reach the max
+        assertEquals(2, buffer.length());
+    }
+
+    @Test
+    public void testReplayInOrder() {
+        NatsReconnectBuffer buffer = new NatsReconnectBuffer();
+        NatsMessage one = message("a", "one");
+        NatsMessage two = message("b", "two");
+        buffer.append(one, -1);
+        buffer.append(two, -1);
+
+        byte[] dst = new byte[256];
+        int length = buffer.peek(dst);
+        assertEquals(wire(one) + wire(two), new String(dst, 0, length, StandardCharsets.UTF_8));
+
+        // Nothing is consumed until the commit
+        assertEquals(length, buffer.peek(dst));
+        assertEquals(length, buffer.getPeekBytes());
+        assertEquals(2, buffer.commit());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.sizeInBytes());
+    }
+
+    @Test
+    public void testAppendAfterPeek() {
+        NatsReconnectBuffer buffer = new NatsReconnectBuffer();
+        NatsMessage one = message("a", "one");
+        NatsMessage two = message("b", "two");
+        buffer.append(one, -1);
+
+        byte[] dst = new byte[256];
+        buffer.peek(dst);
+        buffer.append(two, -1); // can't join the chunk that is being written
+        assertEquals(1, buffer.commit());
+        assertFalse(buffer.isEmpty());
+
+        int length = buffer.peek(dst);
+        assertEquals(wire(two), new String(dst, 0, length, StandardCharsets.UTF_8));
+        assertEquals(1, buffer.commit());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testFramesDontSpanChunks() {
+        NatsReconnectBuffer buffer = new NatsReconnectBuffer();
+        NatsMessage msg = new NatsMessage("a", null, new byte[NatsReconnectBuffer.CHUNK_SIZE / 2], false);
+        buffer.append(msg, -1);
+        buffer.append(msg, -1);
+        buffer.append(msg, -1);
+
+        // Only one frame fits in a chunk, and a chunk is only peeked whole
+        byte[] dst = new byte[(int) msg.getSizeInBytes() * 2 + 1];
+        assertEquals(2 * msg.getSizeInBytes(), buffer.peek(dst));
+        assertEquals(2, buffer.commit());
+
+        assertEquals(-msg.getSizeInBytes(), buffer.peek(new byte[16]));
+        assertEquals(msg.getSizeInBytes(), buffer.peek(dst));
+        assertEquals(1, buffer.commit());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testChunksArePooled() {
+        NatsReconnectBuffer buffer = new NatsReconnectBuffer();
+        buffer.append(message("a", "one"), -1);
+        buffer.peek(new byte[256]);
+        buffer.commit();
+
+        int pooled = NatsReconnectBuffer.getPooledChunks();
+        assertTrue(pooled > 0);
+
+        buffer.append(message("a", "two"), -1);
+        assertEquals(pooled - 1, NatsReconnectBuffer.getPooledChunks());
+        buffer.clear();
+        assertEquals(pooled, NatsReconnectBuffer.getPooledChunks());
+    }
+
+    @Test
+    public void testLargeMessage() {
+        NatsReconnectBuffer buffer = new NatsReconnectBuffer();
+        NatsMessage big = new NatsMessage("a", null, new byte[NatsReconnectBuffer.CHUNK_SIZE * 2], false);
+        assertTrue(buffer.append(big, -1));
+
+        int needed = buffer.peek(new byte[1024]);
+        assertEquals(-big.getSizeInBytes(), needed);
+        assertEquals(big.getSizeInBytes(), buffer.peek(new byte[-needed]));
+        assertEquals(1, buffer.commit());
+    }
+}
@@ -0,0 +1,262 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import io.nats.client.Message;
+
+public class NatsRequestCacheTests {
+
+    private static final byte[] BODY = "body".getBytes(StandardCharsets.UTF_8);
+
+    private static NatsRequestCache createCache(Duration ttl, int size, NatsStatistics stats) {
+        Map<String, Duration> ttls = new HashMap<>();
+        ttls.put("cached", ttl);
+        NatsTimingWheel wheel = new NatsTimingWheel(Duration.ofMillis(5), 64, NatsScheduler.shared(),
+                ForkJoinPool.commonPool());
+        return new NatsRequestCache(ttls, size, stats, wheel);
+    }
+
+    private static Message reply() {
+        return new NatsMessage("reply", null, BODY, false);
+    }
+
+    // Counts the requests that went to the "server" and completes them straight away
+    private static Function<Duration, CompletableFuture<Message>> answer(AtomicInteger sent) {
+        return (timeout) -> {
+            sent.incrementAndGet();
+            return CompletableFuture.completedFuture(reply());
+        };
+    }
+
+    @Test
+    public void testHitsAfterReply() throws InterruptedException, ExecutionException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMinutes(1), 10, stats);
+        AtomicInteger sent = new AtomicInteger();
+
+        Message first = cache.request("cached", BODY, null, answer(sent)).get();
+        Message second = cache.request("cached", "body".getBytes(StandardCharsets.UTF_8), null, answer(sent)).get();
+
+        assertSame(first, second);
+        assertEquals(1, sent.get());
+        assertEquals(1, stats.getRequestCacheMisses());
+        assertEquals(1, stats.getRequestCacheHits());
+
+        // A different body is a different request
+        cache.request("cached", new byte[0], null, answer(sent)).get();
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void testUncachedSubjectsPassThrough() throws InterruptedException, ExecutionException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMinutes(1), 10, stats);
+        AtomicInteger sent = new AtomicInteger();
+
+        assertFalse(cache.isCached("other"));
+        cache.request("other", BODY, null, answer(sent)).get();
+        cache.request("other", BODY, null, answer(sent)).get();
+
+        assertEquals(2, sent.get());
+        assertEquals(0, stats.getRequestCacheMisses());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCoalescesInFlight() throws InterruptedException, ExecutionException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMinutes(1), 10, stats);
+        CompletableFuture<Message> server = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+        Function<Duration, CompletableFuture<Message>> send = (timeout) -> {
+            sent.incrementAndGet();
+            return server;
+        };
+
+        CompletableFuture<Message> one = cache.request("cached", BODY, null, send);
+        CompletableFuture<Message> two = cache.request("cached", BODY, null, send);
+        CompletableFuture<Message> three = cache.request("cached", BODY, null, send);
+
+        assertEquals(1, sent.get());
+        assertEquals(2, stats.getRequestCacheCoalesced());
+
+        // Cancelling a shared copy doesn't affect the others
+        three.cancel(true);
+
+        Message msg = reply();
+        server.complete(msg);
+        assertSame(msg, one.get());
+        assertSame(msg, two.get());
+        assertTrue(three.isCancelled());
+    }
+
+    @Test
+    public void testFailuresAreNotCached() throws InterruptedException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMinutes(1), 10, stats);
+        AtomicInteger sent = new AtomicInteger();
+        Function<Duration, CompletableFuture<Message>> fail = (timeout) -> {
+            sent.incrementAndGet();
+            CompletableFuture<Message> f = new CompletableFuture<>();
+            f.completeExceptionally(new IllegalStateException("failed"));
+            return f;
+        };
+
+        assertTrue(cache.request("cached", BODY, null, fail).isCompletedExceptionally());
+        assertTrue(cache.request("cached", BODY, null, fail).isCompletedExceptionally());
+        assertEquals(2, sent.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpires() throws InterruptedException, ExecutionException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMillis(20), 10, stats);
+        AtomicInteger sent = new AtomicInteger();
+
+        cache.request("cached", BODY, null, answer(sent)).get();
+        cache.request("cached", BODY, null, answer(sent)).get();
+        assertEquals(1, sent.get());
+
+        Thread.sleep(50);
+        cache.request("cached", BODY, null, answer(sent)).get();
+        assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws InterruptedException, ExecutionException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMinutes(1), 2, stats);
+        AtomicInteger sent = new AtomicInteger();
+        byte[] a = {1};
+        byte[] b = {2};
+        byte[] c = {3};
+
+        cache.request("cached", a, null, answer(sent)).get();
+        cache.request("cached", b, null, answer(sent)).get();
+        cache.request("cached", a, null, answer(sent)).get(); // a is now the most recent
+        cache.request("cached", c, null, answer(sent)).get(); // drops b
+        assertEquals(3, sent.get());
+        assertEquals(2, cache.size());
+
+        cache.request("cached", a, null, answer(sent)).get();
+        assertEquals(3, sent.get());
+        cache.request("cached", b, null, answer(sent)).get();
+        assertEquals(4, sent.get());
+    }
+
+    @Test
+    public void testCallersKeepTheirOwnTimeouts() throws InterruptedException, ExecutionException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMinutes(1), 10, stats);
+        CompletableFuture<Message> server = new CompletableFuture<>();
+        AtomicReference<Duration> sentTimeout = new AtomicReference<>(Duration.ZERO);
+        Function<Duration, CompletableFuture<Message>> send = (timeout) -> {
+            sentTimeout.set(timeout);
+            return server;
+        };
+
+        CompletableFuture<Message> shortWait = cache.request("cached", BODY, Duration.ofMillis(50), send);
+        CompletableFuture<Message> longWait = cache.request("cached", BODY, Duration.ofSeconds(10), send);
+        assertNull(sentTimeout.get()); // the shared request isn't bound to the first caller's timeout
+
+        try {
+            shortWait.get(1, TimeUnit.SECONDS);
+            assertTrue("Expected a timeout", false);
+        } catch (ExecutionException | TimeoutException exp) {
+            assertTrue(exp.getCause() instanceof TimeoutException);
+        }
+
+        // The first caller timing out leaves the request to the second
+        Thread.sleep(20);
+        assertFalse(longWait.isDone());
+        assertFalse(server.isDone());
+
+        Message msg = reply();
+        server.complete(msg);
+        assertSame(msg, longWait.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testFirstCallerCancelDoesNotCancelTheRequest() throws InterruptedException, ExecutionException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMinutes(1), 10, stats);
+        CompletableFuture<Message> server = new CompletableFuture<>();
+        Function<Duration, CompletableFuture<Message>> send = (timeout) -> server;
+
+        CompletableFuture<Message> one = cache.request("cached", BODY, null, send);
+        CompletableFuture<Message> two = cache.request("cached", BODY, null, send);
+
+        one.cancel(true);
+        assertFalse(server.isDone());
+
+        Message msg = reply();
+        server.complete(msg);
+        assertSame(msg, two.get());
+    }
+
+    @Test
+    public void testGivesUpWhenNoOneIsWaiting() throws InterruptedException, ExecutionException {
+        NatsStatistics stats = new NatsStatistics(false);
+        NatsRequestCache cache = createCache(Duration.ofMinutes(1), 10, stats);
+        CompletableFuture<Message> server = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+        Function<Duration, CompletableFuture<Message>> send = (timeout) -> {
+            sent.incrementAndGet();
+            return server;
+        };
+
+        CompletableFuture<Message> one = cache.request("cached", BODY, null, send);
+        CompletableFuture<Message> two = cache.request("cached", BODY, Duration.ofMillis(20), send);
+
+        one.cancel(true);
+        try {
+            two.get(1, TimeUnit.SECONDS);
+            assertTrue("Expected a timeout", false);
+        } catch (ExecutionException | TimeoutException exp) {
+            assertTrue(exp.getCause() instanceof TimeoutException);
+        }
+
+        // Both callers are gone, so the shared request is cancelled and the next caller sends again
+        long end = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+        while (!server.isDone() && System.nanoTime() < end) {
+            Thread.sleep(5); // the timed out caller leaves just after its future completes
+        }
+        assertTrue(server.isCancelled());
+        cache.request("cached", BODY, null, answer(sent)).get();
+        assertEquals(2, sent.get());
+    }
+}
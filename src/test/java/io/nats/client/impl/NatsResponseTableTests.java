@@ -0,0 +1,105 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NatsResponseTableTests {
+
+    @Test
+    public void testPutAndRemove() {
+        NatsResponseTable<String> table = new NatsResponseTable<>(16);
+
+        table.put(1, "one");
+        table.put(2, "two");
+        assertEquals(2, table.size());
+        assertEquals("one", table.get(1));
+        assertNull(table.get(3));
+
+        assertEquals("one", table.remove(1));
+        assertNull(table.remove(1));
+        assertEquals(1, table.size());
+        assertEquals("two", table.remove(2));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testCollisionsOverflow() {
+        NatsResponseTable<String> table = new NatsResponseTable<>(4);
+
+        table.put(1, "one");
+        table.put(5, "five"); // same slot as 1
+        table.put(9, "nine");
+        assertEquals(3, table.size());
+
+        assertEquals("five", table.get(5));
+        assertEquals("nine", table.remove(9));
+        assertEquals("one", table.remove(1));
+        assertEquals("five", table.remove(5));
+        assertEquals(0, table.size());
+
+        // the slot is free again
+        table.put(13, "thirteen");
+        assertEquals("thirteen", table.remove(13));
+    }
+
+    @Test
+    public void testRemoveOnlyMatchingValue() {
+        NatsResponseTable<String> table = new NatsResponseTable<>(4);
+        String one = "one";
+        String five = "five";
+
+        table.put(1, one);
+        table.put(5, five);
+
+        assertFalse(table.remove(1, "other"));
+        assertFalse(table.remove(5, "other"));
+        assertTrue(table.remove(1, one));
+        assertTrue(table.remove(5, five));
+        assertFalse(table.remove(5, five));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testRemoveIf() {
+        NatsResponseTable<Integer> table = new NatsResponseTable<>(8);
+        List<Integer> removed = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            table.put(i, i);
+        }
+
+        table.removeIf((v) -> v % 2 == 0, removed::add);
+
+        assertEquals(10, removed.size());
+        assertEquals(10, table.size());
+        assertTrue(removed.stream().allMatch((v) -> v % 2 == 0));
+        assertEquals(Integer.valueOf(3), table.get(3));
+        assertEquals(Integer.valueOf(19), table.get(19));
+        assertNull(table.get(18));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSizeMustBePowerOfTwo() {
+        new NatsResponseTable<String>(12);
+    }
+}
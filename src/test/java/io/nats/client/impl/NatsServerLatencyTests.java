@@ -0,0 +1,130 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class NatsServerLatencyTests {
+
+    @Test
+    public void testFirstSampleIsTheAverage() {
+        NatsServerLatency latency = new NatsServerLatency();
+        assertNull(latency.getLatency("a"));
+
+        latency.record("a", 1000);
+        assertEquals(Duration.ofNanos(1000), latency.getLatency("a"));
+    }
+
+    @Test
+    public void testAverageIsWeightedTowardNewSamples() {
+        NatsServerLatency latency = new NatsServerLatency();
+        latency.record("a", 1000);
+        latency.record("a", 2000);
+
+        long expected = (long) (NatsServerLatency.ALPHA * 2000 + (1 - NatsServerLatency.ALPHA) * 1000);
+        assertEquals(Duration.ofNanos(expected), latency.getLatency("a"));
+
+        for (int i = 0; i < 100; i++) {
+            latency.record("a", 5000);
+        }
+        assertEquals(5000, latency.getLatency("a").toNanos(), 1);
+    }
+
+    @Test
+    public void testFailureUntilGoodSample() {
+        NatsServerLatency latency = new NatsServerLatency();
+        assertTrue(latency.isHealthy("a"));
+
+        latency.record("a", 1000);
+        latency.recordFailure("a");
+        assertFalse(latency.isHealthy("a"));
+        assertEquals(Duration.ofNanos(1000), latency.getLatency("a"));
+
+        latency.record("a", 1000);
+        assertTrue(latency.isHealthy("a"));
+    }
+
+    @Test
+    public void testOrder() {
+        NatsServerLatency latency = new NatsServerLatency();
+        latency.record("slow", 5000);
+        latency.record("fast", 1000);
+        latency.record("failed", 10);
+        latency.recordFailure("failed");
+        latency.recordFailure("failedTwice");
+        latency.recordFailure("failedTwice");
+
+        List<String> ordered = latency.order(Arrays.asList("failedTwice", "new1", "slow", "failed", "fast", "new2"));
+        assertEquals(Arrays.asList("fast", "slow", "new1", "new2", "failed", "failedTwice"), ordered);
+    }
+
+    @Test
+    public void testOrderWhileRecording() throws InterruptedException {
+        NatsServerLatency latency = new NatsServerLatency();
+        List<String> servers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            servers.add("server" + i);
+            latency.record("server" + i, i);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread recorder = new Thread(() -> {
+            Random random = new Random();
+            while (running.get()) {
+                String server = servers.get(random.nextInt(servers.size()));
+                if (random.nextInt(10) == 0) {
+                    latency.recordFailure(server);
+                } else {
+                    latency.record(server, random.nextInt(1_000_000));
+                }
+            }
+        });
+        recorder.start();
+
+        try {
+            long end = System.nanoTime() + Duration.ofMillis(500).toNanos();
+            while (System.nanoTime() < end) {
+                assertEquals(servers.size(), latency.order(servers).size());
+            }
+        } finally {
+            running.set(false);
+            recorder.join();
+        }
+    }
+
+    @Test
+    public void testLatenciesOnlyHaveMeasuredServers() {
+        NatsServerLatency latency = new NatsServerLatency();
+        latency.record("a", 1000);
+        latency.recordFailure("b");
+        latency.record(null, 1000);
+
+        Map<String, Duration> latencies = latency.getLatencies();
+        assertEquals(1, latencies.size());
+        assertEquals(Duration.ofNanos(1000), latencies.get("a"));
+    }
+}
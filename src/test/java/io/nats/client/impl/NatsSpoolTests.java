@@ -0,0 +1,202 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class NatsSpoolTests {
+
+    static NatsMessage message(String subject, String data) {
+        return new NatsMessage(subject, null, data.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    static String wire(NatsMessage msg) {
+        return new String(msg.getProtocolBytes(), StandardCharsets.UTF_8) + "\r\n"
+                + new String(msg.getData(), StandardCharsets.UTF_8) + "\r\n";
+    }
+
+    @Test
+    public void testOnlyStartsOnOverflow() throws Exception {
+        Path file = Files.createTempFile("nats", ".spool");
+        NatsSpool spool = new NatsSpool(file, 1024);
+
+        try {
+            assertFalse(spool.append(message("a", "one"), false));
+            assertTrue(spool.isEmpty());
+
+            assertTrue(spool.append(message("a", "two"), true));
+            assertTrue(spool.append(message("a", "three"), false)); // in use, so later publishes follow
+            assertFalse(spool.isEmpty());
+        } finally {
+            spool.close();
+        }
+
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testReplayInOrder() throws Exception {
+        Path file = Files.createTempFile("nats", ".spool");
+        NatsSpool spool = new NatsSpool(file, 1024);
+
+        try {
+            NatsMessage one = message("a", "one");
+            NatsMessage two = message("b", "two");
+            spool.append(one, true);
+            spool.append(two, true);
+
+            byte[] buffer = new byte[256];
+            int length = spool.peek(buffer);
+            assertEquals(wire(one) + wire(two), new String(buffer, 0, length, StandardCharsets.UTF_8));
+            assertEquals(length, spool.getPeekBytes());
+
+            // Nothing is consumed until the commit
+            assertEquals(length, spool.peek(buffer));
+            assertEquals(2, spool.commit());
+            assertTrue(spool.isEmpty());
+            assertEquals(0, spool.getSpooledBytes());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void testPeekOnlyWholeMessages() throws Exception {
+        Path file = Files.createTempFile("nats", ".spool");
+        NatsSpool spool = new NatsSpool(file, 1024);
+
+        try {
+            NatsMessage one = message("a", "one");
+            NatsMessage two = message("b", "two");
+            spool.append(one, true);
+            spool.append(two, true);
+
+            byte[] small = new byte[(int) one.getSizeInBytes() + 1];
+            assertEquals(one.getSizeInBytes(), spool.peek(small));
+            assertEquals(1, spool.commit());
+            assertFalse(spool.isEmpty());
+
+            assertEquals(-two.getSizeInBytes(), spool.peek(new byte[2]));
+            assertEquals(two.getSizeInBytes(), spool.peek(small));
+            assertEquals(1, spool.commit());
+            assertTrue(spool.isEmpty());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void testFullSpoolInUse() throws Exception {
+        Path file = Files.createTempFile("nats", ".spool");
+        NatsSpool spool = new NatsSpool(file, 64);
+
+        try {
+            assertFalse(spool.append(message("a", new String(new byte[100], StandardCharsets.UTF_8)), true));
+            assertTrue(spool.append(message("a", "one"), true));
+
+            int appended = 1;
+            while (spool.append(message("a", "one"), false)) {
+                appended++;
+            }
+
+            // Full, but still in use so the caller knows not to queue the message anywhere else
+            assertTrue(appended < 10);
+            assertFalse(spool.isEmpty());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void testReusesReplayedSpace() throws Exception {
+        Path file = Files.createTempFile("nats", ".spool");
+        NatsMessage msg = message("a", "0123456789");
+        long record = NatsSpool.LENGTH_BYTES + msg.getSizeInBytes();
+        NatsSpool spool = new NatsSpool(file, 4 * record + record / 2); // records don't line up with the end
+
+        try {
+            int appended = 0;
+            while (spool.append(message("a", String.format("%010d", appended)), true)) {
+                appended++;
+            }
+            assertEquals(4, appended);
+
+            // Replay two, which frees room for two more that wrap around the end of the file
+            byte[] two = new byte[(int) (2 * msg.getSizeInBytes())];
+            assertEquals(two.length, spool.peek(two));
+            assertEquals(2, spool.commit());
+
+            StringBuilder expected = new StringBuilder();
+            for (int i = 2; i < 6; i++) {
+                if (i >= 4) {
+                    assertTrue(spool.append(message("a", String.format("%010d", i)), false));
+                }
+                expected.append(wire(message("a", String.format("%010d", i))));
+            }
+            assertFalse(spool.append(message("a", "full"), false));
+
+            byte[] buffer = new byte[1024];
+            int length = spool.peek(buffer);
+            assertEquals(expected.toString(), new String(buffer, 0, length, StandardCharsets.UTF_8));
+            assertEquals(4, spool.commit());
+            assertTrue(spool.isEmpty());
+        } finally {
+            spool.close();
+        }
+    }
+
+    @Test
+    public void testAcrossSegments() throws Exception {
+        Path file = Files.createTempFile("nats", ".spool");
+        long max = NatsSpool.SEGMENT_SIZE + 1024 * 1024;
+        NatsSpool spool = new NatsSpool(file, max);
+
+        try {
+            byte[] data = new byte[64 * 1024];
+
+            for (int round = 0; round < 2; round++) { // the second round reuses the file
+                NatsMessage msg = new NatsMessage("a", null, data, false);
+                long record = NatsSpool.LENGTH_BYTES + msg.getSizeInBytes();
+                int appended = 0;
+
+                while (spool.getSpooledBytes() + record <= max) {
+                    assertTrue(spool.append(msg, true));
+                    appended++;
+                }
+
+                assertTrue(spool.getSpooledBytes() > NatsSpool.SEGMENT_SIZE);
+
+                byte[] buffer = new byte[1024 * 1024];
+                int replayed = 0;
+
+                while (!spool.isEmpty()) {
+                    assertTrue(spool.peek(buffer) > 0);
+                    replayed += spool.commit();
+                }
+
+                assertEquals(appended, replayed);
+            }
+        } finally {
+            spool.close();
+        }
+    }
+}
@@ -18,6 +18,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -25,10 +26,13 @@ import org.junit.Test;
 
 import io.nats.client.Connection;
 import io.nats.client.Dispatcher;
+import io.nats.client.Histogram;
 import io.nats.client.Message;
 import io.nats.client.NatsTestServer;
 import io.nats.client.Options;
 import io.nats.client.Nats;
+import io.nats.client.Subscription;
+import io.nats.client.SubjectTraffic;
 
 public class NatsStatisticsTests {
     @Test
@@ -60,6 +64,96 @@ public class NatsStatisticsTests {
         }
     }
 
+    @Test
+    public void testTopSubjects() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder()
+                                                .server(ts.getURI())
+                                                .trackSubjects(5)
+                                                .build())) {
+            Subscription sub = nc.subscribe("subject.>");
+            for (int i = 0; i < 10; i++) {
+                nc.publish("subject.one", new byte[100]);
+            }
+            nc.publish("subject.two", new byte[10]);
+            nc.flush(Duration.ofMillis(500));
+
+            for (int i = 0; i < 11; i++) {
+                assertNotNull(sub.nextMessage(Duration.ofMillis(500)));
+            }
+
+            List<SubjectTraffic> out = nc.getStatistics().getTopOutboundSubjects();
+            List<SubjectTraffic> in = nc.getStatistics().getTopInboundSubjects();
+            assertEquals(2, out.size());
+            assertEquals("subject.one", out.get(0).getSubject());
+            assertEquals(10, out.get(0).getMessages());
+            assertEquals(2, in.size());
+            assertEquals("subject.one", in.get(0).getSubject());
+            assertEquals(10, in.get(0).getMessages());
+            assertTrue(nc.getStatistics().toString().contains("Top Subjects In:"));
+        }
+    }
+
+    @Test
+    public void testReadAndWriteSizes() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder()
+                                                .server(ts.getURI())
+                                                .turnOnAdvancedStats()
+                                                .build())) {
+            Subscription sub = nc.subscribe("subject");
+            nc.publish("subject", new byte[1000]);
+            nc.flush(Duration.ofMillis(500));
+            assertNotNull(sub.nextMessage(Duration.ofMillis(500)));
+
+            Histogram writes = nc.getStatistics().getWriteSizes();
+            Histogram reads = nc.getStatistics().getReadSizes();
+            assertTrue(writes.getCount() > 0);
+            assertTrue(reads.getCount() > 0);
+            assertTrue(writes.getMax() >= 1000);
+            assertTrue(writes.getPercentile(99) <= writes.getMax());
+            assertTrue(writes.getSum() >= 1000);
+        }
+    }
+
+    @Test
+    public void testRequestAndFlushLatency() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).build())) {
+            Dispatcher d = nc.createDispatcher((msg) -> {
+                nc.publish(msg.getReplyTo(), new byte[16]);
+            });
+            d.subscribe("subject");
+            nc.flush(Duration.ofMillis(500));
+
+            for (int i = 0; i < 10; i++) {
+                assertNotNull(nc.request("subject", new byte[8]).get(500, TimeUnit.MILLISECONDS));
+            }
+
+            Histogram requests = nc.getStatistics().getRequestLatency();
+            assertEquals(10, requests.getCount());
+            assertTrue(requests.getMin() > 0);
+            assertTrue(requests.getPercentile(50) <= requests.getPercentile(99.9));
+            assertTrue(requests.getPercentile(99.9) <= requests.getMax());
+
+            Histogram flushes = nc.getStatistics().getFlushLatency();
+            assertTrue(flushes.getCount() >= 1);
+            assertTrue(flushes.getMax() > 0);
+        }
+    }
+
+    @Test
+    public void testSizesEmptyWithoutAdvancedStats() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).build())) {
+            nc.publish("subject", new byte[1000]);
+            nc.flush(Duration.ofMillis(500));
+
+            assertEquals(0, nc.getStatistics().getWriteSizes().getCount());
+            assertEquals(0, nc.getStatistics().getReadSizes().getCount());
+        }
+    }
+
     @Test
     public void testInOutOKRequestStats() throws Exception {
         try (NatsTestServer ts = new NatsTestServer(false)) {
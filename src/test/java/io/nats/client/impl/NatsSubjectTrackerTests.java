@@ -0,0 +1,121 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.nats.client.SubjectTraffic;
+
+public class NatsSubjectTrackerTests {
+
+    @Test
+    public void testFindsHeavySubjects() {
+        NatsSubjectTracker tracker = new NatsSubjectTracker(5);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+            if (i % 10 == 0) {
+                tracker.record("heavy.messages", 10);
+            } else if (i % 25 == 0) {
+                tracker.record("heavy.bytes", 10000);
+            } else {
+                tracker.record("noise." + random.nextInt(20000), 10);
+            }
+        }
+
+        List<SubjectTraffic> top = tracker.getTopSubjects();
+        HashSet<String> subjects = new HashSet<>();
+        for (SubjectTraffic traffic : top) {
+            subjects.add(traffic.getSubject());
+        }
+
+        assertTrue(subjects.contains("heavy.messages"));
+        assertTrue(subjects.contains("heavy.bytes"));
+        assertEquals("heavy.bytes", top.get(0).getSubject());
+        assertTrue(top.size() <= 10);
+    }
+
+    @Test
+    public void testEstimatesAreNeverLow() {
+        NatsSubjectTracker tracker = new NatsSubjectTracker(10);
+        HashMap<String, long[]> actual = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50000; i++) {
+            String subject = "subject." + random.nextInt(5000);
+            long size = 1 + random.nextInt(100);
+            tracker.record(subject, size);
+
+            long[] counts = actual.computeIfAbsent(subject, (s) -> new long[2]);
+            counts[0]++;
+            counts[1] += size;
+        }
+
+        actual.forEach((subject, counts) -> {
+            assertTrue(tracker.estimateMessages(subject) >= counts[0]);
+            assertTrue(tracker.estimateBytes(subject) >= counts[1]);
+        });
+    }
+
+    @Test
+    public void testExactWithFewSubjects() {
+        NatsSubjectTracker tracker = new NatsSubjectTracker(10);
+
+        for (int i = 0; i < 100; i++) {
+            tracker.record("a", 5);
+            tracker.record("b", 1);
+        }
+
+        List<SubjectTraffic> top = tracker.getTopSubjects();
+        assertEquals(2, top.size());
+        assertEquals("a", top.get(0).getSubject());
+        assertEquals(100, top.get(0).getMessages());
+        assertEquals(500, top.get(0).getBytes());
+        assertEquals("b", top.get(1).getSubject());
+        assertEquals(100, top.get(1).getBytes());
+    }
+
+    @Test
+    public void testConcurrentRecordsStayWithinCapacity() throws InterruptedException {
+        int capacity = 4;
+        NatsSubjectTracker tracker = new NatsSubjectTracker(capacity);
+        Thread[] threads = new Thread[8];
+
+        for (int t = 0; t < threads.length; t++) {
+            String prefix = "thread" + t + ".";
+            threads[t] = new Thread(() -> {
+                Random random = new Random();
+                for (int i = 0; i < 20000; i++) {
+                    tracker.record(prefix + random.nextInt(50), 1 + random.nextInt(100));
+                }
+            });
+            threads[t].start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        // One set by messages and one by bytes
+        assertTrue(tracker.getTopSubjects().size() <= 2 * capacity);
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NatsSubscribeBatchTests {
+
+    static String protocol(NatsMessage msg) {
+        return new String(msg.getProtocolBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLinesInOneMessage() {
+        NatsSubscribeBatch batch = new NatsSubscribeBatch(1024, false);
+        batch.add("1", "foo", null);
+        batch.add("2", "bar", "queue");
+
+        List<NatsMessage> messages = batch.finish();
+        assertEquals(1, messages.size());
+        assertEquals(2, batch.getCount());
+        assertEquals("SUB foo 1\r\nSUB bar queue 2", protocol(messages.get(0)));
+        assertEquals(messages.get(0).getProtocolBytes().length + 2, messages.get(0).getSizeInBytes());
+    }
+
+    @Test
+    public void testEmpty() {
+        NatsSubscribeBatch batch = new NatsSubscribeBatch(1024, false);
+        assertTrue(batch.finish().isEmpty());
+        assertEquals(0, batch.getCount());
+    }
+
+    @Test
+    public void testChunksStaySmallerThanTheBuffer() {
+        int chunkSize = 64;
+        NatsSubscribeBatch batch = new NatsSubscribeBatch(chunkSize, false);
+        StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 100; i++) {
+            batch.add(String.valueOf(i), "subject" + i, null);
+            expected.append("SUB subject").append(i).append(" ").append(i).append("\r\n");
+        }
+
+        List<NatsMessage> messages = batch.finish();
+        StringBuilder actual = new StringBuilder();
+
+        assertTrue(messages.size() > 1);
+        for (NatsMessage msg : messages) {
+            assertTrue(msg.getProtocolBytes().length <= chunkSize);
+            actual.append(protocol(msg)).append("\r\n");
+        }
+
+        // Lines are never split across messages
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void testLongLine() {
+        NatsSubscribeBatch batch = new NatsSubscribeBatch(16, false);
+        batch.add("1", "a", null);
+        batch.add("2", "a.very.long.subject.name", null);
+        batch.add("3", "b", null);
+
+        List<NatsMessage> messages = batch.finish();
+        assertEquals(3, messages.size());
+        assertEquals("SUB a.very.long.subject.name 2", protocol(messages.get(1)));
+        assertEquals("SUB b 3", protocol(messages.get(2)));
+    }
+
+    @Test
+    public void testUTF8Subjects() {
+        NatsSubscribeBatch batch = new NatsSubscribeBatch(1024, true);
+        batch.add("1", "häagen", null);
+
+        assertEquals("SUB häagen 1", protocol(batch.finish().get(0)));
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Nats;
+import io.nats.client.NatsTestServer;
+import io.nats.client.Options;
+
+// The build runs these against the Java 21 classes when it has a JDK 21, see testJava21 in build.gradle
+public class NatsThreadsTests {
+
+    static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    static boolean isVirtual(Thread t) throws Exception {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(t);
+        } catch (NoSuchMethodException exp) {
+            return false;
+        }
+    }
+
+    @Test
+    public void testVirtualSupportedFromJava21() {
+        assertEquals(javaVersion() >= 21, NatsThreads.isVirtualSupported());
+    }
+
+    @Test
+    public void testNewVirtualThread() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        Thread t = NatsThreads.newVirtualThread(() -> latch.countDown(), "nats test");
+
+        assertEquals("nats test", t.getName());
+        assertTrue(t.isDaemon());
+        assertEquals(NatsThreads.isVirtualSupported(), isVirtual(t));
+
+        t.start();
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConnectionUsesVirtualThreads() throws Exception {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).useVirtualThreads().build();
+            Connection nc = Nats.connect(options);
+            try {
+                CompletableFuture<Thread> handlerThread = new CompletableFuture<>();
+                Dispatcher d = nc.createDispatcher((msg) -> handlerThread.complete(Thread.currentThread()));
+                d.subscribe("virtual");
+                nc.flush(Duration.ofMillis(500));
+
+                nc.publish("virtual", null);
+
+                Thread t = handlerThread.get(5, TimeUnit.SECONDS);
+                assertNotNull(t);
+                assertEquals(NatsThreads.isVirtualSupported(), isVirtual(t));
+            } finally {
+                nc.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+// Copyright 2015-2018 The NATS Authors
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at:
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package io.nats.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class NatsTimingWheelTests {
+
+    private static NatsTimingWheel createWheel(int size) {
+        return new NatsTimingWheel(Duration.ofMillis(5), size, NatsScheduler.shared(), ForkJoinPool.commonPool());
+    }
+
+    @Test
+    public void testExpires() throws InterruptedException {
+        NatsTimingWheel wheel = createWheel(64);
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            long start = System.nanoTime();
+            wheel.schedule(() -> latch.countDown(), Duration.ofMillis(50));
+            assertEquals(1, wheel.getPendingCount());
+
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+            assertEquals(0, wheel.getPendingCount());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        NatsTimingWheel wheel = createWheel(64);
+        try {
+            AtomicInteger count = new AtomicInteger();
+            NatsTimingWheel.Timeout timeout = wheel.schedule(() -> count.incrementAndGet(), Duration.ofMillis(20));
+            assertTrue(timeout.cancel());
+            assertFalse(timeout.cancel());
+            assertTrue(timeout.isDone());
+            assertEquals(0, wheel.getPendingCount());
+
+            Thread.sleep(100);
+            assertEquals(0, count.get());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void testExpiresOnTheExpiryExecutor() throws InterruptedException {
+        ExecutorService expirer = Executors.newSingleThreadExecutor((r) -> new Thread(r, "expirer"));
+        NatsTimingWheel wheel = new NatsTimingWheel(Duration.ofMillis(5), 64, NatsScheduler.shared(), expirer);
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+            AtomicReference<String> threadName = new AtomicReference<>();
+            AtomicReference<Boolean> locked = new AtomicReference<>();
+            wheel.schedule(() -> {
+                threadName.set(Thread.currentThread().getName());
+                locked.set(Thread.holdsLock(wheel));
+                latch.countDown();
+            }, Duration.ofMillis(10));
+
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals("expirer", threadName.get());
+            assertFalse(locked.get());
+        } finally {
+            wheel.stop();
+            expirer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBlockedTaskDoesNotStopTheWheel() throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService expirer = Executors.newCachedThreadPool();
+        NatsTimingWheel wheel = new NatsTimingWheel(Duration.ofMillis(5), 64, scheduler, expirer);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            wheel.schedule(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }, Duration.ofMillis(5));
+
+            // The first task holds an expiry thread, not the only scheduler thread, so the wheel keeps ticking
+            CountDownLatch latch = new CountDownLatch(1);
+            wheel.schedule(() -> latch.countDown(), Duration.ofMillis(30));
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            wheel.stop();
+            scheduler.shutdownNow();
+            expirer.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMoreThanOneTurn() throws InterruptedException {
+        // 4 buckets of 5ms is a 20ms turn, so these take several rounds
+        NatsTimingWheel wheel = createWheel(4);
+        try {
+            ConcurrentLinkedQueue<Integer> order = new ConcurrentLinkedQueue<>();
+            CountDownLatch latch = new CountDownLatch(3);
+            wheel.schedule(() -> { order.add(3); latch.countDown(); }, Duration.ofMillis(150));
+            wheel.schedule(() -> { order.add(1); latch.countDown(); }, Duration.ofMillis(30));
+            wheel.schedule(() -> { order.add(2); latch.countDown(); }, Duration.ofMillis(90));
+
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals("[1, 2, 3]", order.toString());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void testManyTimeouts() throws InterruptedException {
+        NatsTimingWheel wheel = createWheel(512);
+        try {
+            int count = 10_000;
+            CountDownLatch latch = new CountDownLatch(count / 2);
+            AtomicInteger fired = new AtomicInteger();
+
+            for (int i = 0; i < count; i++) {
+                NatsTimingWheel.Timeout timeout = wheel.schedule(() -> {
+                    fired.incrementAndGet();
+                    latch.countDown();
+                }, Duration.ofMillis(i % 100));
+
+                if (i % 2 == 0) {
+                    timeout.cancel();
+                }
+            }
+
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            assertEquals(count / 2, fired.get());
+            assertEquals(0, wheel.getPendingCount());
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void testNoScheduleAfterStop() {
+        NatsTimingWheel wheel = createWheel(64);
+        wheel.stop();
+        assertNull(wheel.schedule(() -> {}, Duration.ofMillis(10)));
+    }
+
+    @Test
+    public void testCatchesUpWhenSchedulerIsBusy() throws InterruptedException {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        NatsTimingWheel wheel = new NatsTimingWheel(Duration.ofMillis(5), 64, scheduler, ForkJoinPool.commonPool());
+        try {
+            CountDownLatch latch = new CountDownLatch(2);
+            wheel.schedule(() -> latch.countDown(), Duration.ofMillis(10));
+            wheel.schedule(() -> latch.countDown(), Duration.ofMillis(40));
+
+            // Hold the only scheduler thread past both deadlines
+            scheduler.execute(() -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            });
+
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals(0, wheel.getPendingCount());
+        } finally {
+            wheel.stop();
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTicksOnlyWhilePending() throws InterruptedException {
+        NatsTimingWheel wheel = createWheel(64);
+        try {
+            assertFalse(wheel.isTicking());
+
+            CountDownLatch latch = new CountDownLatch(1);
+            wheel.schedule(() -> latch.countDown(), Duration.ofMillis(10));
+            assertTrue(wheel.isTicking());
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+
+            Thread.sleep(50);
+            assertFalse(wheel.isTicking());
+
+            // Cancelling the last timeout idles the wheel too
+            NatsTimingWheel.Timeout timeout = wheel.schedule(() -> {}, Duration.ofSeconds(10));
+            assertTrue(wheel.isTicking());
+            timeout.cancel();
+            Thread.sleep(50);
+            assertFalse(wheel.isTicking());
+
+            // And it starts again for the next one
+            CountDownLatch again = new CountDownLatch(1);
+            wheel.schedule(() -> again.countDown(), Duration.ofMillis(10));
+            assertTrue(again.await(1, TimeUnit.SECONDS));
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void testStopCancelsTicker() {
+        NatsTimingWheel wheel = createWheel(64);
+        wheel.schedule(() -> {}, Duration.ofSeconds(10));
+        assertTrue(wheel.isTicking());
+        wheel.stop();
+        assertFalse(wheel.isTicking());
+    }
+
+    @Test
+    public void testStopCancelsPending() {
+        NatsTimingWheel wheel = createWheel(64);
+        NatsTimingWheel.Timeout timeout = wheel.schedule(() -> {}, Duration.ofSeconds(10));
+        wheel.stop();
+        assertTrue(timeout.isDone());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThrowOnBadWheelSize() {
+        createWheel(100);
+    }
+}
@@ -13,6 +13,7 @@
 
 package io.nats.client.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -22,6 +23,7 @@ import java.time.Duration;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -101,6 +103,53 @@ public class PingTests {
         }
     }
 
+    @Test
+    public void testPingTimerOnSuppliedScheduler() throws IOException, InterruptedException {
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).pingInterval(Duration.ofMillis(5))
+                                    .scheduler(scheduler).build();
+            NatsConnection nc = (NatsConnection) Nats.connect(options);
+            NatsStatistics stats = nc.getNatsStatistics();
+
+            try {
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+                assertEquals("ping and cleanup timers", 2, scheduler.getQueue().size());
+                Thread.sleep(200); // should get 10+ pings
+                assertTrue("got pings", stats.getPings() > 10);
+            } finally {
+                nc.close();
+                assertTrue("Closed Status", Connection.Status.CLOSED == nc.getStatus());
+            }
+
+            // The connection removes its timers but leaves the scheduler to us
+            assertEquals(0, scheduler.getQueue().size());
+            assertFalse(scheduler.isShutdown());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testConnectionsShareTheScheduler() throws IOException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).build();
+            Connection one = Nats.connect(options);
+            Connection two = Nats.connect(options);
+
+            try {
+                boolean timerThread = Thread.getAllStackTraces().keySet().stream()
+                                        .anyMatch((t) -> t.getName().startsWith("Nats Connection Timer"));
+                assertFalse("no timer thread per connection", timerThread);
+            } finally {
+                one.close();
+                two.close();
+            }
+        }
+    }
+
     @Test
     public void testPingFailsWhenClosed() throws Exception {
         try (NatsServerProtocolMock ts = new NatsServerProtocolMock(ExitAt.NO_EXIT)) {
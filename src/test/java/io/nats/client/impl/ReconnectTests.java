@@ -19,9 +19,15 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.net.ServerSocket;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -343,6 +349,161 @@ public class ReconnectTests {
     }
 
 
+    @Test
+    public void testReconnectProbesSkipSilentServer() throws Exception {
+        NatsConnection nc = null;
+        TestHandler handler = new TestHandler();
+
+        // Accepts the socket but never sends INFO, one at a time this would stall the reconnect
+        try (ServerSocket silent = new ServerSocket(0);
+                NatsTestServer ts = new NatsTestServer()) {
+            try (NatsTestServer ts2 = new NatsTestServer()) {
+                Options options = new Options.Builder().
+                                            server(ts2.getURI()).
+                                            server("nats://localhost:" + silent.getLocalPort()).
+                                            server(ts.getURI()).
+                                            noRandomize().
+                                            reconnectProbes(3).
+                                            connectionTimeout(Duration.ofSeconds(5)).
+                                            connectionListener(handler).
+                                            maxReconnects(-1).
+                                            build();
+                nc = (NatsConnection) Nats.connect(options);
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+                assertEquals(ts2.getURI(), nc.getConnectedUrl());
+                handler.prepForStatusChange(Events.RESUBSCRIBED); // reconnects is counted after RECONNECTED fires
+            }
+
+            flushAndWait(nc, handler);
+
+            assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+            assertEquals(ts.getURI(), nc.getConnectedUrl());
+            assertEquals(1, nc.getNatsStatistics().getReconnects());
+        } finally {
+            if (nc != null) {
+                nc.close();
+                assertTrue("Closed Status", Connection.Status.CLOSED == nc.getStatus());
+            }
+        }
+    }
+
+    @Test
+    public void testReconnectOrdersMeasuredServers() throws Exception {
+        NatsConnection nc = null;
+        TestHandler handler = new TestHandler();
+        NatsTestServer ts = new NatsTestServer(false);
+        NatsTestServer ts2 = new NatsTestServer(false);
+
+        try {
+            Options options = new Options.Builder().
+                                        server(ts.getURI()).
+                                        server(ts2.getURI()).
+                                        preferLowLatency().
+                                        connectionListener(handler).
+                                        maxReconnects(-1).
+                                        reconnectWait(Duration.ofMillis(100)).
+                                        build();
+            nc = (NatsConnection) Nats.connect(options);
+            assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+            // The first server to answer wins, only that one has been measured
+            String first = nc.getConnectedUrl();
+            String second = first.equals(ts.getURI()) ? ts2.getURI() : ts.getURI();
+            assertEquals(Arrays.asList(first), new ArrayList<>(nc.getServerLatencies().keySet()));
+
+            handler.prepForStatusChange(Events.RESUBSCRIBED);
+            (first.equals(ts.getURI()) ? ts : ts2).close();
+            flushAndWait(nc, handler);
+            assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+            assertEquals(second, nc.getConnectedUrl());
+
+            // Both servers have been measured now, the one that failed goes last
+            assertEquals(2, nc.getServerLatencies().size());
+            assertEquals(Arrays.asList(second, first), new ArrayList<>(nc.buildReconnectList()));
+        } finally {
+            if (nc != null) {
+                nc.close();
+            }
+            ts.close();
+            ts2.close();
+        }
+    }
+
+    // Connects slowly to the silent server, so its probe only connects after the race is over
+    public static class SlowSilentDataPort extends SocketDataPort {
+        static volatile String silentServer;
+
+        public void connect(String serverURI, NatsConnection conn) throws IOException {
+            if (serverURI.equals(silentServer)) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException exp) {
+                    throw new IOException(exp);
+                }
+            }
+            super.connect(serverURI, conn);
+        }
+    }
+
+    @Test
+    public void testLateProbeClosesItsPort() throws Exception {
+        try (ServerSocket silent = new ServerSocket(0);
+                NatsTestServer ts = new NatsTestServer(false)) {
+            String silentServer = "nats://localhost:" + silent.getLocalPort();
+            SlowSilentDataPort.silentServer = silentServer;
+            Options options = new Options.Builder().
+                                        server(ts.getURI()).
+                                        dataPortType(SlowSilentDataPort.class.getName()).
+                                        build();
+            NatsConnection nc = (NatsConnection) Nats.connect(options);
+
+            try {
+                NatsServerProbe probe = NatsServerProbe.race(nc, Arrays.asList(ts.getURI(), silentServer));
+                assertNotNull(probe);
+                assertEquals(ts.getURI(), probe.getServer());
+                NatsServerProbe.closeQuietly(probe.getDataPort());
+
+                // The silent probe connects after race() closed the ports, it has to close its own
+                Thread silentProbe = null;
+                for (Thread t : Thread.getAllStackTraces().keySet()) {
+                    if (t.getName().equals("Nats Server Probe " + silentServer)) {
+                        silentProbe = t;
+                    }
+                }
+
+                if (silentProbe != null) {
+                    silentProbe.join(5000);
+                    assertFalse(silentProbe.isAlive());
+                }
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReconnectProbesCountTowardMaxReconnects() throws Exception {
+        NatsConnection nc = null;
+        TestHandler handler = new TestHandler();
+
+        try (NatsTestServer ts = new NatsTestServer()) {
+            Options options = new Options.Builder().
+                                        server(ts.getURI()).
+                                        server(NatsTestServer.getURIForPort(NatsTestServer.nextPort())).
+                                        reconnectProbes(2).
+                                        maxReconnects(4).
+                                        reconnectWait(Duration.ofMillis(10)).
+                                        connectionListener(handler).
+                                        build();
+            nc = (NatsConnection) Nats.connect(options);
+            assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+            handler.prepForStatusChange(Events.CLOSED);
+        }
+
+        flushAndWait(nc, handler);
+        assertTrue("Closed Status", Connection.Status.CLOSED == nc.getStatus());
+    }
+
     @Test
     public void testNoRandomizeReconnectToSecondServer() throws Exception {
         NatsConnection nc = null;
@@ -479,6 +640,243 @@ public class ReconnectTests {
         }
     }
 
+    @Test
+    public void testResubscribeManySubscriptions() throws Exception {
+        NatsConnection nc = null;
+        TestHandler handler = new TestHandler();
+        int port = NatsTestServer.nextPort();
+        int count = 5_000;
+
+        try {
+            Subscription[] subs = new Subscription[count];
+            Dispatcher d;
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                Options options = new Options.Builder().
+                                        server(ts.getURI()).
+                                        maxReconnects(-1).
+                                        connectionListener(handler).
+                                        reconnectWait(Duration.ofMillis(100)).
+                                        build();
+                nc = (NatsConnection) Nats.connect(options);
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+                for (int i=0;i<count;i++) {
+                    subs[i] = nc.subscribe("sub." + i);
+                }
+                d = nc.createDispatcher((msg) -> {});
+                d.subscribe("dispatched", "queue");
+                nc.flush(Duration.ofMillis(5000));
+                assertEquals(0, nc.getStatistics().getLastResubscribeNanos());
+                handler.prepForStatusChange(Events.DISCONNECTED);
+            }
+
+            flushAndWait(nc, handler);
+            checkReconnectingStatus(nc);
+            handler.prepForStatusChange(Events.RESUBSCRIBED);
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                handler.waitForStatusChange(5000, TimeUnit.MILLISECONDS);
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+                assertEquals(count + 1, nc.getStatistics().getLastResubscribeCount());
+                assertTrue(nc.getStatistics().getLastResubscribeNanos() > 0);
+
+                for (int i=0;i<count;i+=499) {
+                    nc.publish("sub." + i, null);
+                    assertNotNull(subs[i].nextMessage(Duration.ofMillis(1000)));
+                }
+            }
+        } finally {
+            if (nc != null) {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testFlushAfterReconnectCoversBuffer() throws Exception {
+        NatsConnection nc = null;
+        TestHandler handler = new TestHandler();
+        int port = NatsTestServer.nextPort();
+        int count = 1_000;
+
+        try {
+            Subscription sub;
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                Options options = new Options.Builder().
+                                        server(ts.getURI()).
+                                        maxReconnects(-1).
+                                        connectionListener(handler).
+                                        reconnectWait(Duration.ofMillis(100)).
+                                        build();
+                nc = (NatsConnection) Nats.connect(options);
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+                sub = nc.subscribe("test");
+                nc.flush(Duration.ofMillis(1000));
+                handler.prepForStatusChange(Events.DISCONNECTED);
+            }
+
+            flushAndWait(nc, handler);
+            checkReconnectingStatus(nc);
+
+            for (int i=0;i<count;i++) {
+                nc.publish("test", new byte[1024]);
+            }
+
+            assertEquals(count, nc.getWriter().getReconnectBuffer().length());
+            handler.prepForStatusChange(Events.RESUBSCRIBED);
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                handler.waitForStatusChange(5000, TimeUnit.MILLISECONDS);
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+                // The flush only returns once the buffered publishes are written
+                nc.flush(Duration.ofSeconds(5));
+                assertTrue(nc.getWriter().getReconnectBuffer().isEmpty());
+                assertEquals(count, sub.getPendingMessageCount());
+            }
+        } finally {
+            if (nc != null) {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testPublishRightAfterReconnectWithFullBuffer() throws Exception {
+        NatsConnection nc = null;
+        TestHandler handler = new TestHandler();
+        int port = NatsTestServer.nextPort();
+        int buffered = 3;
+        int count = 100;
+
+        try {
+            Subscription sub;
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                Options options = new Options.Builder().
+                                        server(ts.getURI()).
+                                        maxReconnects(-1).
+                                        connectionListener(handler).
+                                        reconnectBufferSize(4*512).
+                                        reconnectWait(Duration.ofMillis(100)).
+                                        build();
+                nc = (NatsConnection) Nats.connect(options);
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+                sub = nc.subscribe("test");
+                nc.flush(Duration.ofMillis(1000));
+                handler.prepForStatusChange(Events.DISCONNECTED);
+            }
+
+            flushAndWait(nc, handler);
+            checkReconnectingStatus(nc);
+
+            // Fill the buffer up to the reconnect limit
+            for (int i=0;i<buffered;i++) {
+                byte[] payload = new byte[512];
+                payload[0] = (byte) i;
+                nc.publish("test", payload);
+            }
+
+            // A connected publish while the buffer is still replaying follows it, past the limit
+            for (int i=buffered;i<2*buffered;i++) {
+                byte[] payload = new byte[512];
+                payload[0] = (byte) i;
+                assertTrue(nc.getWriter().buffer(new NatsMessage("test", null, payload, false), false));
+            }
+            assertEquals(2*buffered, nc.getWriter().getReconnectBuffer().length());
+
+            handler.prepForStatusChange(Events.RECONNECTED);
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                handler.waitForStatusChange(5000, TimeUnit.MILLISECONDS);
+
+                // Publish straight away, the buffer may not have drained yet
+                for (int i=2*buffered;i<count;i++) {
+                    byte[] payload = new byte[512];
+                    payload[0] = (byte) i;
+                    nc.publish("test", payload);
+                }
+
+                for (int i=0;i<count;i++) {
+                    Message msg = sub.nextMessage(Duration.ofMillis(1000));
+                    assertNotNull(msg);
+                    assertEquals((byte) i, msg.getData()[0]);
+                }
+            }
+        } finally {
+            if (nc != null) {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testReconnectSpool() throws Exception {
+        NatsConnection nc = null;
+        TestHandler handler = new TestHandler();
+        int port = NatsTestServer.nextPort();
+        Path spoolFile = Files.createTempFile("nats", ".spool");
+        int count = 100;
+
+        try {
+            Subscription sub;
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                Options options = new Options.Builder().
+                                        server(ts.getURI()).
+                                        maxReconnects(-1).
+                                        connectionListener(handler).
+                                        reconnectBufferSize(4*512).
+                                        reconnectSpool(spoolFile, 1024*1024).
+                                        reconnectWait(Duration.ofMillis(100)).
+                                        build();
+                nc = (NatsConnection) Nats.connect(options);
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+                sub = nc.subscribe("test");
+                nc.flush(Duration.ofMillis(1000));
+                handler.prepForStatusChange(Events.DISCONNECTED);
+            }
+
+            flushAndWait(nc, handler);
+            checkReconnectingStatus(nc);
+
+            // Far more than the reconnect buffer holds, the rest go to the spool
+            for (int i=0;i<count;i++) {
+                byte[] payload = new byte[512];
+                payload[0] = (byte) i;
+                nc.publish("test", payload);
+            }
+
+            handler.prepForStatusChange(Events.RESUBSCRIBED);
+
+            try (NatsTestServer ts = new NatsTestServer(port, false)) {
+                handler.waitForStatusChange(5000, TimeUnit.MILLISECONDS);
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+                for (int i=0;i<count;i++) {
+                    Message msg = sub.nextMessage(Duration.ofMillis(1000));
+                    assertNotNull(msg);
+                    assertEquals((byte) i, msg.getData()[0]);
+                }
+
+                // The spool is empty, so publishes are queued as usual again
+                nc.publish("test", new byte[512]);
+                assertNotNull(sub.nextMessage(Duration.ofMillis(1000)));
+            }
+        } finally {
+            if (nc != null) {
+                nc.close();
+            }
+        }
+
+        assertFalse("Spool deleted on close", Files.exists(spoolFile));
+    }
+
     @Test
     public void testReconnectDropOnLineFeed() throws Exception {
         NatsConnection nc = null;
@@ -23,10 +23,14 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -37,6 +41,7 @@ import io.nats.client.Nats;
 import io.nats.client.NatsServerProtocolMock;
 import io.nats.client.NatsTestServer;
 import io.nats.client.Options;
+import io.nats.client.Statistics;
 import io.nats.client.Subscription;
 
 public class RequestTests {
@@ -177,6 +182,58 @@ public class RequestTests {
         }
     }
 
+    @Test
+    public void testRequestWithTimeoutCleansUp() throws IOException, ExecutionException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).requestCleanupInterval(Duration.ofHours(1)).build();
+            Connection nc = Nats.connect(options);
+            try {
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+                
+                CompletableFuture<Message> incoming = nc.requestWithTimeout("subject", null, Duration.ofMillis(50));
+
+                try {
+                    incoming.get(1000, TimeUnit.MILLISECONDS);
+                    assertFalse(true);
+                } catch(ExecutionException e) {
+                    assertTrue(e.getCause() instanceof TimeoutException);
+                } catch(TimeoutException e) {
+                    assertFalse(true); // the wheel should have timed it out
+                }
+
+                assertTrue(incoming.isCompletedExceptionally());
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+
+                // The synchronous version cleans up the same way
+                assertNull(nc.request("subject", null, Duration.ofMillis(50)));
+                Thread.sleep(100);
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+            } finally {
+                nc.close();
+                assertTrue("Closed Status", Connection.Status.CLOSED == nc.getStatus());
+            }
+        }
+    }
+
+    @Test
+    public void testRequestWithTimeoutReply() throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).maxReconnects(0).build())) {
+            Dispatcher d = nc.createDispatcher((msg) -> {
+                nc.publish(msg.getReplyTo(), null);
+            });
+            d.subscribe("subject");
+
+            CompletableFuture<Message> incoming = nc.requestWithTimeout("subject", null, Duration.ofSeconds(5));
+            Message msg = incoming.get(1000, TimeUnit.MILLISECONDS);
+
+            assertNotNull(msg);
+            assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+            Thread.sleep(50); // the timeout is cancelled by a completion callback
+            assertEquals(0, ((NatsConnection) nc).getRequestTimeoutCount());
+        }
+    }
+
     @Test
     public void testRequireCleanupOnCancel() throws IOException, ExecutionException, TimeoutException, InterruptedException {
         try (NatsTestServer ts = new NatsTestServer(false)) {
@@ -303,6 +360,310 @@ public class RequestTests {
             }
     }
 
+    @Test
+    public void testRequestMany() throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Connection nc = Nats.connect(ts.getURI());
+            try {
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+
+                for (int i = 0; i < 3; i++) {
+                    byte[] id = new byte[] {(byte) i};
+                    Dispatcher d = nc.createDispatcher((msg) -> {
+                        nc.publish(msg.getReplyTo(), id);
+                    });
+                    d.subscribe("subject");
+                }
+                nc.flush(Duration.ofSeconds(1));
+
+                // Completes as soon as all the replies are in, well before the timeout
+                long start = System.nanoTime();
+                List<Message> replies = nc.requestMany("subject", null, 3, Duration.ofSeconds(10)).get(5, TimeUnit.SECONDS);
+                long elapsed = System.nanoTime() - start;
+
+                assertEquals(3, replies.size());
+                assertTrue(elapsed < Duration.ofSeconds(5).toNanos());
+                assertEquals(3, replies.stream().map((m) -> m.getData()[0]).distinct().count());
+
+                // Gathers what it can before the timeout
+                replies = nc.requestMany("subject", null, 10, Duration.ofMillis(200)).get(5, TimeUnit.SECONDS);
+                assertEquals(3, replies.size());
+
+                // Nobody home is an empty list, not an error
+                replies = nc.requestMany("nobody", null, 1, Duration.ofMillis(50)).get(5, TimeUnit.SECONDS);
+                assertEquals(0, replies.size());
+
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+            } finally {
+                nc.close();
+                assertTrue("Closed Status", Connection.Status.CLOSED == nc.getStatus());
+            }
+        }
+    }
+
+    @Test
+    public void testRequestManyWithHandler() throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Connection nc = Nats.connect(new Options.Builder().server(ts.getURI()).counterResponseTokens().build());
+            try {
+                for (int i = 0; i < 4; i++) {
+                    Dispatcher d = nc.createDispatcher((msg) -> {
+                        nc.publish(msg.getReplyTo(), null);
+                    });
+                    d.subscribe("subject");
+                }
+                nc.flush(Duration.ofSeconds(1));
+
+                CountDownLatch seen = new CountDownLatch(2);
+                CompletableFuture<List<Message>> gathered = nc.requestMany("subject", null, 2, Duration.ofSeconds(5), (msg) -> {
+                    seen.countDown();
+                });
+
+                assertTrue(seen.await(5, TimeUnit.SECONDS));
+                assertEquals(2, gathered.get(5, TimeUnit.SECONDS).size());
+
+                // Regular requests still work alongside
+                assertNotNull(nc.request("subject", null, Duration.ofSeconds(1)));
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testRequestManyCancel() throws IOException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Connection nc = Nats.connect(ts.getURI());
+            try {
+                CompletableFuture<List<Message>> gathered = nc.requestMany("subject", null, 2, Duration.ofSeconds(30));
+                assertEquals(1, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+
+                gathered.cancel(true);
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+                assertEquals(0, ((NatsConnection)nc).getRequestTimeoutCount());
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testRequestManyRequiresReplies() throws IOException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            nc.requestMany("subject", null, 0, Duration.ofSeconds(1));
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testRequestManyRequiresTimeout() throws IOException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            nc.requestMany("subject", null, 1, null);
+        }
+    }
+
+    @Test
+    public void testCachedRequests() throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).cacheRequests("config", Duration.ofMinutes(1)).build();
+            Connection nc = Nats.connect(options);
+            try {
+                AtomicInteger handled = new AtomicInteger();
+                Dispatcher d = nc.createDispatcher((msg) -> {
+                    handled.incrementAndGet();
+                    nc.publish(msg.getReplyTo(), msg.getData());
+                });
+                d.subscribe("config");
+                d.subscribe("other");
+                nc.flush(Duration.ofSeconds(1));
+
+                byte[] body = "key".getBytes(StandardCharsets.UTF_8);
+                List<CompletableFuture<Message>> incoming = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    incoming.add(nc.request("config", body));
+                }
+                for (CompletableFuture<Message> f : incoming) {
+                    assertEquals("key", new String(f.get(5, TimeUnit.SECONDS).getData(), StandardCharsets.UTF_8));
+                }
+
+                assertNotNull(nc.request("config", body, Duration.ofSeconds(1)));
+                assertNotNull(nc.request("other", body, Duration.ofSeconds(1)));
+                assertNotNull(nc.request("other", body, Duration.ofSeconds(1)));
+
+                Statistics stats = nc.getStatistics();
+                assertEquals(3, handled.get());
+                assertEquals(1, stats.getRequestCacheMisses());
+                assertEquals(10, stats.getRequestCacheHits() + stats.getRequestCacheCoalesced());
+                assertTrue(stats.getRequestCacheHits() >= 1);
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testHedgedRequest() throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Connection nc = Nats.connect(ts.getURI());
+            try {
+                // Stalls on the first request, like a responder stuck in GC
+                AtomicInteger count = new AtomicInteger();
+                Dispatcher d = nc.createDispatcher((msg) -> {
+                    if (count.incrementAndGet() > 1) {
+                        nc.publish(msg.getReplyTo(), null);
+                    }
+                });
+                d.subscribe("subject");
+                nc.flush(Duration.ofSeconds(1));
+
+                Message msg = nc.requestHedged("subject", null, Duration.ofMillis(50), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+                assertNotNull(msg);
+
+                Statistics stats = nc.getStatistics();
+                assertEquals(1, stats.getHedgedRequests());
+                assertEquals(1, stats.getHedgesSent());
+                assertEquals(1, stats.getHedgeWins());
+
+                // The stalled original was removed, not left for the cleanup timer
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+                assertEquals(0, ((NatsConnection)nc).getOutstandingResponseCount());
+
+                // A fast reply doesn't need a hedge
+                assertNotNull(nc.requestHedged("subject", null, Duration.ofSeconds(2), Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS));
+                assertEquals(1, stats.getHedgesSent());
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testHedgedRequestUsesObservedLatency() throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            NatsConnection nc = (NatsConnection) Nats.connect(ts.getURI());
+            try {
+                Dispatcher d = nc.createDispatcher((msg) -> {
+                    nc.publish(msg.getReplyTo(), null);
+                });
+                d.subscribe("subject");
+
+                // Too few replies to go on, so no hedge is sent and the request times out
+                try {
+                    nc.requestHedged("nobody", null, null, Duration.ofMillis(100)).get(5, TimeUnit.SECONDS);
+                    assertFalse(true);
+                } catch (ExecutionException e) {
+                    assertTrue(e.getCause() instanceof TimeoutException);
+                }
+                assertEquals(0, nc.getStatistics().getHedgesSent());
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+
+                for (int i = 0; i < NatsConnection.HEDGE_MIN_SAMPLES; i++) {
+                    assertNotNull(nc.request("subject", null, Duration.ofSeconds(1)));
+                }
+
+                Duration delay = nc.getObservedHedgeDelay();
+                assertNotNull(delay);
+                assertTrue(delay.toNanos() > 0);
+
+                assertNotNull(nc.requestHedged("subject", null, null, Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS));
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
+    @Test
+    public void testHedgeDelayIsReused() throws IOException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                NatsConnection nc = (NatsConnection) Nats.connect(ts.getURI())) {
+            assertNull(nc.getHedgeDelay());
+
+            NatsStatistics stats = (NatsStatistics) nc.getStatistics();
+            for (int i = 0; i < NatsConnection.HEDGE_MIN_SAMPLES; i++) {
+                stats.recordRequestLatency(Duration.ofMillis(5).toNanos());
+            }
+
+            // The histogram has enough samples, but the delay isn't worked out again until the refresh
+            assertNotNull(nc.getObservedHedgeDelay());
+            assertNull(nc.getHedgeDelay());
+
+            Duration delay = null;
+            for (int i = 0; i < NatsConnection.HEDGE_REFRESH_REQUESTS && delay == null; i++) {
+                delay = nc.getHedgeDelay();
+            }
+            assertNotNull(delay);
+            assertEquals(nc.getObservedHedgeDelay(), delay);
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testHedgedRequestRequiresTimeout() throws IOException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false);
+                Connection nc = Nats.connect(ts.getURI())) {
+            nc.requestHedged("subject", null, Duration.ofMillis(10), null);
+        }
+    }
+
+    @Test
+    public void testCounterTokenRequest() throws IOException, ExecutionException, TimeoutException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            Options options = new Options.Builder().server(ts.getURI()).counterResponseTokens().build();
+            Connection nc = Nats.connect(options);
+            try {
+                assertTrue("Connected Status", Connection.Status.CONNECTED == nc.getStatus());
+                
+                Dispatcher d = nc.createDispatcher((msg) -> {
+                    nc.publish(msg.getReplyTo(), msg.getData());
+                });
+                d.subscribe("subject");
+
+                for (int i = 0; i < 10; i++) {
+                    Future<Message> incoming = nc.request("subject", new byte[i]);
+                    Message msg = incoming.get(500, TimeUnit.MILLISECONDS);
+
+                    assertNotNull(msg);
+                    assertEquals(i, msg.getData().length);
+
+                    String token = msg.getSubject().substring(msg.getSubject().lastIndexOf('.') + 1);
+                    assertEquals(String.valueOf(i + 1), token);
+                }
+
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+                assertEquals(0, ((NatsConnection)nc).getOutstandingResponseCount());
+
+                // Timeouts are removed from the table as well
+                assertNull(nc.request("nobody", null, Duration.ofMillis(50)));
+                Thread.sleep(100);
+                assertEquals(0, ((NatsStatistics)nc.getStatistics()).getOutstandingRequests());
+                assertEquals(0, ((NatsConnection)nc).getOutstandingResponseCount());
+            } finally {
+                nc.close();
+                assertTrue("Closed Status", Connection.Status.CLOSED == nc.getStatus());
+            }
+        }
+    }
+
+    @Test
+    public void testCounterTokenParsing() throws IOException, InterruptedException {
+        try (NatsTestServer ts = new NatsTestServer(false)) {
+            NatsConnection nc = (NatsConnection) Nats.connect(new Options.Builder().server(ts.getURI()).counterResponseTokens().build());
+            try {
+                String prefix = nc.createResponseInbox("_INBOX.0123456789012345678901.*");
+                prefix = prefix.substring(0, nc.getRespInboxLength());
+
+                assertEquals(0, nc.getCounterResponseToken(prefix + "0"));
+                assertEquals(1234567, nc.getCounterResponseToken(prefix + "1234567"));
+                assertEquals(-1, nc.getCounterResponseToken(prefix));
+                assertEquals(-1, nc.getCounterResponseToken(prefix + "12a"));
+                assertEquals(-1, nc.getCounterResponseToken(prefix + "1234567890123456789"));
+            } finally {
+                nc.close();
+            }
+        }
+    }
+
     @Test
     public void testOldStyleRequest() throws IOException, ExecutionException, TimeoutException, InterruptedException {
         try (NatsTestServer ts = new NatsTestServer(false)) {